@@ -1,13 +1,23 @@
 package io.github.xico26.spotifum2;
 
 import io.github.xico26.spotifum2.exceptions.*;
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.LeaderboardEntry;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.RankedEntry;
+import io.github.xico26.spotifum2.model.dto.StatisticsSnapshot;
 import io.github.xico26.spotifum2.model.entity.*;
 import io.github.xico26.spotifum2.model.entity.music.ExplicitMusic;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
 import io.github.xico26.spotifum2.model.entity.playlist.RandomPlaylist;
 import io.github.xico26.spotifum2.model.entity.playlist.CustomPlaylist;
+import io.github.xico26.spotifum2.playback.FinishedPlay;
+import io.github.xico26.spotifum2.playback.PlaybackSession;
+import io.github.xico26.spotifum2.playback.PlaybackTrack;
 import io.github.xico26.spotifum2.service.*;
+import io.github.xico26.spotifum2.trending.TrendingWindow;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -15,7 +25,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 /**
  * Controlador da aplicação. Inclui lógica para gerir inputs, impressão de menus, entre outros.
  */
@@ -33,8 +46,15 @@ public class Controller {
     private final PlaylistService playlistService;
     private final UserService userService;
     private final MusicService musicService;
-
-    public Controller(AlbumService albumService, ArtistService artistService, LibraryService libraryService, ListeningRecordService listeningRecordService, PlaylistService playlistService, UserService userService, MusicService musicService) {
+    private final MetricsService metricsService;
+    private final PlayCountService playCountService;
+    private final StatisticsService statisticsService;
+    private final SearchService searchService;
+    private final LeaderboardService leaderboardService;
+    private final TrendingService trendingService;
+    private final PlaybackService playbackService;
+
+    public Controller(AlbumService albumService, ArtistService artistService, LibraryService libraryService, ListeningRecordService listeningRecordService, PlaylistService playlistService, UserService userService, MusicService musicService, MetricsService metricsService, PlayCountService playCountService, StatisticsService statisticsService, SearchService searchService, LeaderboardService leaderboardService, TrendingService trendingService, PlaybackService playbackService) {
         this.albumService = albumService;
         this.artistService = artistService;
         this.userService = userService;
@@ -42,6 +62,13 @@ public class Controller {
         this.listeningRecordService = listeningRecordService;
         this.libraryService = libraryService;
         this.musicService = musicService;
+        this.metricsService = metricsService;
+        this.playCountService = playCountService;
+        this.statisticsService = statisticsService;
+        this.searchService = searchService;
+        this.leaderboardService = leaderboardService;
+        this.trendingService = trendingService;
+        this.playbackService = playbackService;
     }
 
     /**
@@ -186,15 +213,45 @@ public class Controller {
             "Search for album",
             "Search for playlist",
             "Search for artist",
+            "Trending",
         });
         searchMenu.setHandler(1, () -> categorySearchMenu("music"));
         searchMenu.setHandler(2, () -> categorySearchMenu("album"));
         searchMenu.setHandler(3, () -> categorySearchMenu("playlist"));
         searchMenu.setHandler(4, () -> categorySearchMenu("artist"));
+        searchMenu.setHandler(5, () -> trendingMenu());
 
         searchMenu.run();
     }
 
+    /**
+     * Trending charts, for a chosen time window.
+     */
+    private void trendingMenu() {
+        TrendingWindow[] windows = TrendingWindow.values();
+        Menu trendingMenu = new Menu("trending", Arrays.stream(windows).map(TrendingWindow::getLabel).toArray(String[]::new));
+        for (int i = 0; i < windows.length; i++) {
+            TrendingWindow window = windows[i];
+            trendingMenu.setHandler(i + 1, () -> {
+                System.out.println("== TRENDING: " + window.getLabel().toUpperCase() + " ==");
+                printChart("Musics", trendingService.getTopMusics(window, 10));
+                printChart("Artists", trendingService.getTopArtists(window, 10));
+                printChart("Genres", trendingService.getTopGenres(window, 5));
+            });
+        }
+        trendingMenu.run();
+    }
+
+    private static void printChart(String title, List<RankedEntry> chart) {
+        System.out.println(title + ":");
+        if (chart.isEmpty()) {
+            System.out.println("  -");
+        }
+        for (int i = 0; i < chart.size(); i++) {
+            System.out.println("  " + (i + 1) + ". " + chart.get(i));
+        }
+    }
+
     /**
      * User settings/overview menu.
      */
@@ -202,15 +259,32 @@ public class Controller {
         Menu userMenu = new Menu("my profile", new String[]{
             "Explore library",
             "Settings",
+            "Leaderboard",
             "Logout",
         });
         userMenu.setHandler(1, () -> exploreLibrary());
         userMenu.setHandler(2, () -> userSettingsMenu());
-        userMenu.setHandler(3, () -> logout());
+        userMenu.setHandler(3, () -> leaderboardMenu());
+        userMenu.setHandler(4, () -> logout());
 
         userMenu.run();
     }
 
+    /**
+     * Top users by points and the users ranked around the current user.
+     */
+    private void leaderboardMenu() {
+        System.out.println("== LEADERBOARD ==");
+        leaderboardService.getTop(10).forEach(System.out::println);
+
+        int rank = leaderboardService.getRank(currentUser);
+        if (rank > 10) {
+            System.out.println("...");
+            leaderboardService.getAround(currentUser, 2).forEach(System.out::println);
+        }
+        System.out.println("Your rank: " + (rank == 0 ? "-" : "#" + rank));
+    }
+
     /**
      * Menu que contém as definições de um utilizador, como atualizar o plano, mostrar / esconder músicas e apagar a conta.
      */
@@ -283,8 +357,9 @@ public class Controller {
         System.out.println("Email: " + currentUser.getEmail().toLowerCase());
         System.out.println("Address: " + currentUser.getAddress());
         System.out.println("Birth Date: " + currentUser.getBirthDate().toString());
-        System.out.println("Points: " + currentUser.getPoints());
+        System.out.println("Points: " + userService.getPoints(currentUser));
         System.out.println("Number of musics heard: " + listeningRecordService.getNumListened(currentUser));
+        System.out.println("Different musics heard: " + listeningRecordService.getNumUniqueListened(currentUser));
 
         userSettingsMenu();
     }
@@ -392,42 +467,21 @@ public class Controller {
      * Intermediate method for exploring saved playlists.
      */
     private void exploreSavedPlaylists() {
-        List<Playlist> savedPlaylists = this.currentUser.getLibrary().getPlaylists().stream().toList();
-
-        if (savedPlaylists.isEmpty()) {
-            System.out.println("No saved playlists found!");
-            return;
-        }
-
-        printPlaylistsList(savedPlaylists);
+        printPlaylistsList((cursor, size) -> libraryService.getSavedPlaylists(currentUser, cursor, size));
     }
 
     /**
      * Intermediate method for exploring saved albums.
      */
     private void exploreSavedAlbums() {
-        List<Album> savedAlbums = this.currentUser.getLibrary().getAlbums().stream().toList();
-
-        if (savedAlbums.isEmpty()) {
-            System.out.println("No saved albums found!");
-            return;
-        }
-
-        printAlbumsList(savedAlbums);
+        printAlbumsList((cursor, size) -> libraryService.getSavedAlbums(currentUser, cursor, size));
     }
 
     /**
      * Intermediate method for exploring saved musics.
      */
     private void exploreSavedMusics() {
-        List<Music> savedMusics = this.currentUser.getLibrary().getMusics().stream().toList();
-
-        if (savedMusics.isEmpty()) {
-            System.out.println("No saved musics found!");
-            return;
-        }
-
-        printMusicsList(savedMusics);
+        printMusicSummaries((cursor, size) -> libraryService.getSavedMusics(currentUser, cursor, size));
     }
 
     /**
@@ -439,13 +493,13 @@ public class Controller {
         String query = scanner.nextLine();
         switch (category) {
             case "music":
-                printMusicsList(this.musicService.searchByTitle(query));
+                printMusicSummaries((cursor, size) -> this.musicService.searchByTitle(query, cursor, size));
                 break;
             case "album":
-                printAlbumsList(this.albumService.searchByTitle(query));
+                printAlbumsList((cursor, size) -> this.albumService.searchByTitle(query, cursor, size));
                 break;
             case "playlist":
-                printPlaylistsList(this.playlistService.searchByTitle(query));
+                printPlaylistsList((cursor, size) -> this.playlistService.searchByTitle(query, cursor, size));
                 break;
             case "artist":
                 searchArtistMenu();
@@ -462,16 +516,14 @@ public class Controller {
         System.out.println("== SEARCH BY ARTIST ==");
         System.out.print("Artist: ");
         String artist = scanner.nextLine();
-        List<Music> musics = this.musicService.searchByArtist(artist);
-        List<Album> albums = this.albumService.searchByArtist(artist);
 
         Menu searchArtistMenu = new Menu("search for...", new String[]{
                 "Musics",
                 "Albums"
         });
 
-        searchArtistMenu.setHandler(1, () -> printMusicsList(musics));
-        searchArtistMenu.setHandler(2, () -> printAlbumsList(albums));
+        searchArtistMenu.setHandler(1, () -> printMusicSummaries((cursor, size) -> this.musicService.searchByArtist(artist, cursor, size)));
+        searchArtistMenu.setHandler(2, () -> printAlbumsList((cursor, size) -> this.albumService.searchByArtist(artist, cursor, size)));
 
         searchArtistMenu.run();
     }
@@ -481,59 +533,111 @@ public class Controller {
      * @param musics lista de músicas
      */
     public void printMusicsList(List<Music> musics) {
-        if (musics.isEmpty()) {
-            System.out.println("No musics found!");
-            return;
-        }
-        List<Music> filteredMusics = musics.stream()
-                .filter(m -> !(m.isExplicit() && !currentUser.wantsExplicit()))
-                .toList();
-        String[] musicNames = filteredMusics.stream().map(Music::getTitle).toArray(String[]::new);
-        Menu musicListMenu = new Menu("found musics",musicNames);
-        for (int i = 0; i < filteredMusics.size(); i++) {
-            int index = i;
-            musicListMenu.setHandler(index+1,() -> musicInfoMenu(filteredMusics.get(index)));
-        }
+        printMusicsList(Page.over(musics));
+    }
 
-        musicListMenu.run();
+    /**
+     * Prints a list of music one page at a time, with regards to user preferences.
+     * @param musics consulta paginada de músicas
+     */
+    public void printMusicsList(Page.Query<Music> musics) {
+        printMusicSummaries((cursor, size) -> musics.fetch(cursor, size).map(MusicSummary::of));
     }
 
     /**
-     * Prints a list of albums.
-     * @param albums lista de álbuns
+     * Prints a list of music summaries one page at a time, with regards to user preferences.
+     * The music is only loaded when it is chosen.
+     * @param musics consulta paginada de músicas
      */
-    public void printAlbumsList(List<Album> albums) {
-        if (albums.isEmpty()) {
-            System.out.println("No albums found!");
-            return;
-        }
-        String[] albumNames = albums.stream().map(Album::toString).toArray(String[]::new);
-        Menu albumListMenu = new Menu("found albums", albumNames);
-        for (int i = 0; i < albums.size(); i++) {
-            int index = i;
-            albumListMenu.setHandler(index+1,() -> albumInfoMenu(albums.get(index)));
-        }
+    public void printMusicSummaries(Page.Query<MusicSummary> musics) {
+        Page.Query<MusicSummary> filtered = (cursor, size) -> {
+            Page<MusicSummary> page = musics.fetch(cursor, size);
+            List<MusicSummary> visible = page.items().stream()
+                    .filter(m -> !(m.explicit() && !currentUser.wantsExplicit()))
+                    .toList();
+            return new Page<>(visible, page.nextCursor(), page.hasNext());
+        };
+        // musics the user never listened to are marked as new
+        browse("found musics", filtered,
+                m -> listeningRecordService.hasListenedMusic(currentUser, m.id()) ? m.title() : m.title() + " (new)",
+                m -> {
+                    Music music = musicService.findById(m.id());
+                    if (music == null) {
+                        System.out.println("Music not found!");
+                        return;
+                    }
+                    musicInfoMenu(music);
+                }, "No musics found!");
+    }
+
+    /**
+     * Prints a list of albums one page at a time.
+     * @param albums consulta paginada de álbuns
+     */
+    public void printAlbumsList(Page.Query<AlbumSummary> albums) {
+        browse("found albums", albums, AlbumSummary::toString, a -> albumInfoMenu(a.id()), "No albums found!");
+    }
 
-        albumListMenu.run();
+    /**
+     * Prints a list of playlists one page at a time.
+     * @param playlists consulta paginada de playlists
+     */
+    public void printPlaylistsList(Page.Query<Playlist> playlists) {
+        browse("found playlists", playlists, Playlist::getName, this::playlistInfoMenu, "No playlists found!");
     }
 
     /**
-     * Prints a list of playlists.
-     * @param playlists lista de playlists
+     * Shows a list one page at a time, with options to move to the next and previous pages.
+     * Only the page on screen is ever loaded.
+     * @param title menu title
+     * @param query paged query
+     * @param label text shown for each item
+     * @param open action run when an item is chosen
+     * @param emptyMessage message shown when the list is empty
      */
-    public void printPlaylistsList(List<Playlist> playlists) {
-        if (playlists.isEmpty()) {
-            System.out.println("No playlists found!");
+    private <T> void browse(String title, Page.Query<T> query, Function<T, String> label, Consumer<T> open, String emptyMessage) {
+        Deque<Integer> previous = new ArrayDeque<>();
+        int cursor = Page.FIRST;
+        Page<T> page = query.fetch(cursor, Page.DEFAULT_SIZE);
+        if (page.isEmpty() && !page.hasNext()) {
+            System.out.println(emptyMessage);
             return;
         }
-        String[] playlistsNames = playlists.stream().map(Playlist::getName).toArray(String[]::new);
-        Menu playlistListMenu = new Menu("found playlists", playlistsNames);
-        for (int i = 0; i < playlists.size(); i++) {
-            int index = i;
-            playlistListMenu.setHandler(index+1,() -> playlistInfoMenu(playlists.get(index)));
-        }
+        while (true) {
+            List<T> items = page.items();
+            int n = items.size();
+            String[] options = new String[n + 2];
+            for (int i = 0; i < n; i++) {
+                options[i] = label.apply(items.get(i));
+            }
+            options[n] = "Next page";
+            options[n + 1] = "Previous page";
 
-        playlistListMenu.run();
+            Menu menu = new Menu(title + " (page " + (previous.size() + 1) + ")", options);
+            for (int i = 0; i < n; i++) {
+                T item = items.get(i);
+                menu.setHandler(i + 1, () -> open.accept(item));
+            }
+            boolean hasNext = page.hasNext();
+            menu.setPreCondition(n + 1, () -> hasNext);
+            menu.setPreCondition(n + 2, () -> !previous.isEmpty());
+            // the page changes below, from the option returned
+            menu.setHandler(n + 1, () -> {});
+            menu.setHandler(n + 2, () -> {});
+
+            int op = menu.runOnce();
+            if (op == 0) {
+                return;
+            }
+            if (op == n + 1) {
+                previous.push(cursor);
+                cursor = page.nextCursor();
+                page = query.fetch(cursor, Page.DEFAULT_SIZE);
+            } else if (op == n + 2) {
+                cursor = previous.pop();
+                page = query.fetch(cursor, Page.DEFAULT_SIZE);
+            }
+        }
     }
 
     /**
@@ -562,9 +666,10 @@ public class Controller {
                 System.out.println("To listen to musics, please create a random playlist!");
                 return;
             }
-            System.out.println(listeningRecordService.playMusic(currentUser, music));
+            System.out.println(listeningRecordService.playMusic(currentUser, music) + "\n");
+            musicService.getLyrics(music).forEach(System.out::println);
         });
-        musicMenu.setHandler(2, () -> System.out.println(music.getLyrics()));
+        musicMenu.setHandler(2, () -> musicService.getLyrics(music).forEach(System.out::println));
         musicMenu.setHandler(3, () -> {
             try {
                 this.libraryService.addMusic(currentUser, music);
@@ -593,47 +698,50 @@ public class Controller {
     private void addMusicToPlaylist(Music music) {
         System.out.println("== ADD MUSIC TO PLAYLIST ==");
 
-        List<Playlist> playlists = playlistService.findByUser(currentUser);
-        if (playlists.isEmpty()) {
-            System.out.println("No playlists found!");
-            return;
-        }
-        String[] playlistNames = playlists.stream().map(Playlist::getName).toArray(String[]::new);
-        Menu playlistListMenu = new Menu("choose playlist", playlistNames);
-        for (int i = 0; i < playlists.size(); i++) {
-            int index = i;
-            playlistListMenu.setHandler(index+1,() -> {
-                Playlist playlist = playlists.get(index);
-                if (playlistService.hasMusic(playlist, music)) {
-                    System.out.println("Music already saved!");
-                }
-                playlist.addMusic(music);
-                playlistService.save(playlist);
-                System.out.println("Music added successfully!");
-                exploreLibrary();
-            });
-        }
-
-        playlistListMenu.run();
+        browse("choose playlist", (cursor, size) -> playlistService.findByUser(currentUser, cursor, size), Playlist::getName, playlist -> {
+            int size = playlistService.getTracks(playlist).size();
+            int position = readPosition("Enter the position in the playlist (1-" + (size + 1) + ", ENTER for the end): ", size + 1, size + 1);
+            if (position < 0) {
+                System.out.println("Invalid position!");
+                return;
+            }
+            boolean added = position > size ? playlistService.addMusic(playlist, music) : playlistService.insertMusic(playlist, position - 1, music);
+            if (!added) {
+                System.out.println("Music already saved!");
+                return;
+            }
+            System.out.println("Music added successfully!");
+            exploreLibrary();
+        }, "No playlists found!");
     }
 
     /**
      * Menu with information and options related to an album
-     * @param album álbum
+     * @param albumId id do álbum
      */
-    public void albumInfoMenu(Album album) {
+    public void albumInfoMenu(int albumId) {
+        // the tracks and the artist are read with the album, for listing and playing
+        Album album = albumService.findDetail(albumId);
+        if (album == null) {
+            System.out.println("Album not found!");
+            return;
+        }
         System.out.println(album.toString());
         Menu albumMenu = new Menu("options", new String[]{
                 "Listen to album",
                 "See musics",
                 "Add to favourites",
                 "Add music",
+                "Mark musics as explicit",
+                "Mark musics as not explicit",
                 "Remove"
         });
         albumMenu.setPreCondition(1, () -> loggedIn);
         albumMenu.setPreCondition(3, () -> loggedIn);
         albumMenu.setPreCondition(4, () -> isAdmin);
         albumMenu.setPreCondition(5, () -> isAdmin);
+        albumMenu.setPreCondition(6, () -> isAdmin);
+        albumMenu.setPreCondition(7, () -> isAdmin);
 
         albumMenu.setHandler(1, () -> playAlbum(album));
         albumMenu.setHandler(2, () -> printMusicsList(album.getMusics()));
@@ -647,7 +755,9 @@ public class Controller {
             System.out.println("Album added successfully!");
         });
         albumMenu.setHandler(4, () -> createMusicMenu(album.getId()));
-        albumMenu.setHandler(5, () -> {
+        albumMenu.setHandler(5, () -> System.out.println(musicService.reclassifyAlbum(album.getId(), true) + " musics marked as explicit."));
+        albumMenu.setHandler(6, () -> System.out.println(musicService.reclassifyAlbum(album.getId(), false) + " musics marked as not explicit."));
+        albumMenu.setHandler(7, () -> {
             try {
                 albumService.delete(album);
             } catch (AlbumNotFoundException e) {
@@ -664,90 +774,94 @@ public class Controller {
      * @param music lista de músicas
      */
     public void playMusicList(String listName, List<Music> music) {
-        int i = 0;
-        boolean playing = true;
-        Random r = new Random();
         if (music.isEmpty()) {
             System.out.println("Empty music list!");
             return;
         }
         System.out.println("NOW PLAYING: " + listName);
-        while (playing && i < music.size()) {
-            Music current = music.get(i);
-            if ((current.isExplicit() && !currentUser.wantsExplicit())) {
-                i++;
-                if (i >= music.size()) {
-                    System.out.println("End of list!");
-                    playing = false;
-                }
-                continue;
-            }
-            System.out.println("PLAY CONTROLS:");
-            System.out.println("ENTER: continue, P=Previous Music, N=Next Music, R=Random Music, Q=Quit");
+        listen(music, true);
+    }
 
-            System.out.println("\nPLAYING MUSIC: " + current + "\n");
-            if (i+1 < music.size()) {
-                System.out.println("Next music: " + music.get(i+1).toString() + "\n");
+    /**
+     * Plays musics for the current user, and warns of plays that could not be registered.
+     * @param music lista de músicas
+     * @param listControls whether going back, skipping and repeating are offered
+     */
+    private void listen(List<Music> music, boolean listControls) {
+        PlaybackSession session = playbackService.open(currentUser, music);
+        try {
+            play(session, listControls);
+        } finally {
+            session.close();
+        }
+        for (FinishedPlay play : session.getUnregistered()) {
+            System.out.println("Could not register the play of " + play.music() + " in your history!");
+        }
+    }
+
+    /**
+     * Plays a session, one lyrics line per ENTER, until the list ends or the user quits.
+     * @param session sessão
+     * @param listControls whether going back, skipping and repeating are offered
+     */
+    private void play(PlaybackSession session, boolean listControls) {
+        while (session.hasCurrent()) {
+            PlaybackTrack current = session.current();
+            System.out.println("PLAY CONTROLS:");
+            if (listControls) {
+                System.out.println("ENTER: continue, P=Previous Music, N=Next Music, R=Random Music, L=Repeat (" + session.getRepeat().getLabel() + "), Q=Quit");
             } else {
-                System.out.println("Last music");
+                System.out.println("ENTER: continue, R=Random Music, Q=Quit");
             }
 
-            boolean skipped = false;
+            System.out.println("\nPLAYING MUSIC: " + current.music() + "\n");
+            if (listControls) {
+                Music upcoming = session.upcoming();
+                System.out.println(upcoming != null ? "Next music: " + upcoming + "\n" : "Last music");
+            }
 
-            String lyricsString = current.getLyrics();
-            List<String> lyrics = Arrays.asList(lyricsString.split("\n"));
-            for (String line : lyrics) {
+            boolean skipped = false;
+            boolean quit = false;
+            // a music without lyrics still waits for one ENTER
+            Iterable<String> lines = current.lyrics().isEmpty() ? List.of("") : current.lyrics();
+            for (String line : lines) {
                 System.out.print(line + " ");
-                String cmd = scanner.nextLine();
-
-                switch (cmd.toLowerCase()) {
-                    case "p":
-                        if (userService.getSubscriptionPlan(currentUser).podeAvancarRetroceder() && i > 0) {
-                            i--;
-                            skipped = true;
-                        } else {
-                            System.out.println("The current plan doesn't allow going back!");
-                        }
-                        break;
-                    case "n":
-                        i++;
+                String cmd = scanner.nextLine().toLowerCase();
+
+                if (cmd.equals("q")) {
+                    quit = true;
+                } else if (cmd.equals("r")) {
+                    session.random();
+                    skipped = true;
+                } else if (listControls && cmd.equals("n")) {
+                    session.next();
+                    skipped = true;
+                } else if (listControls && cmd.equals("p")) {
+                    if (!session.canGoBack()) {
+                        System.out.println("The current plan doesn't allow going back!");
+                    } else if (session.previous()) {
                         skipped = true;
-                        break;
-                    case "r":
-                        if (music.size() > 1) {
-                            int newI;
-                            do {
-                                newI = r.nextInt(music.size());
-                            } while (newI == i);
-                            i = newI;
-                            skipped = true;
-                        }
-                        break;
-                    case "q":
-                        playing = false;
-                        break;
-                    default:
-                        break;
-                }
-                if (cmd.toLowerCase().equals("p") && userService.getSubscriptionPlan(currentUser).podeAvancarRetroceder()) {
-                    break;
+                    } else {
+                        System.out.println("This is the first music!");
+                    }
+                } else if (listControls && cmd.equals("l")) {
+                    session.setRepeat(session.getRepeat().next());
+                    System.out.println("Repeat: " + session.getRepeat().getLabel());
                 }
-                if (cmd.toLowerCase().equals("r") || cmd.toLowerCase().equals("q") || cmd.toLowerCase().equals("n")) {
+                if (skipped || quit) {
                     break;
                 }
             }
 
-            if (!skipped) {
-                i++;
-                current.registaReproducao();
-                listeningRecordService.registerMusicPlay(currentUser, current);
+            if (quit) {
+                session.stop();
+                return;
             }
-
-            if (i >= music.size()) {
-                System.out.println("\nEnd of list!\n");
-                playing = false;
+            if (!skipped) {
+                session.finish();
             }
         }
+        System.out.println("\nEnd of list!\n");
     }
 
     /**
@@ -769,15 +883,19 @@ public class Controller {
                 "See musics",
                 "Add to library",
                 "Toggle visibility. Currently: " + (playlist.isPublic() ? "public" : "private"),
-                "Remove"
+                "Remove",
+                "Move music",
+                "Remove music"
         });
         playlistMenu.setPreCondition(1, () -> loggedIn);
         playlistMenu.setPreCondition(3, () -> loggedIn && playlist.isPublic());
         playlistMenu.setPreCondition(4, () -> isAdmin || playlist.getCreator().equals(currentUser));
         playlistMenu.setPreCondition(5, () -> isAdmin || playlist.getCreator().equals(currentUser));
+        playlistMenu.setPreCondition(6, () -> playlist instanceof CustomPlaylist && (isAdmin || playlist.getCreator().equals(currentUser)));
+        playlistMenu.setPreCondition(7, () -> playlist instanceof CustomPlaylist && (isAdmin || playlist.getCreator().equals(currentUser)));
 
         playlistMenu.setHandler(1, () -> playPlaylist(playlist));
-        playlistMenu.setHandler(2, () -> printMusicsList(playlist.getMusics()));
+        playlistMenu.setHandler(2, () -> printMusicsList(playlistService.getTracks(playlist)));
         playlistMenu.setHandler(3, () -> {
             try {
                 libraryService.addPlaylist(currentUser, playlist);
@@ -789,10 +907,52 @@ public class Controller {
         });
         playlistMenu.setHandler(4, () -> playlistService.toggleVisbility(playlist));
         playlistMenu.setHandler(5, () -> playlistService.delete(playlist));
+        playlistMenu.setHandler(6, () -> {
+            int size = playlistService.getTracks(playlist).size();
+            int from = readPosition("Enter the position of the music to move (1-" + size + "): ", size, -1);
+            int to = from < 0 ? -1 : readPosition("Enter its new position (1-" + size + "): ", size, -1);
+            if (to < 0) {
+                System.out.println("Invalid position!");
+                return;
+            }
+            playlistService.moveMusic(playlist, from - 1, to - 1);
+            System.out.println("Music moved successfully!");
+        });
+        playlistMenu.setHandler(7, () -> {
+            int size = playlistService.getTracks(playlist).size();
+            int position = readPosition("Enter the position of the music to remove (1-" + size + "): ", size, -1);
+            if (position < 0) {
+                System.out.println("Invalid position!");
+                return;
+            }
+            playlistService.removeMusic(playlist, position - 1);
+            System.out.println("Music removed successfully!");
+        });
 
         playlistMenu.run();
     }
 
+    /**
+     * Reads a position in a list, counted from 1.
+     * @param prompt texto a apresentar
+     * @param max largest position accepted
+     * @param orElse position returned on an empty line, or -1 if one is required
+     * @return position, or -1 if it is not valid
+     */
+    private int readPosition(String prompt, int max, int orElse) {
+        System.out.print(prompt);
+        String line = scanner.nextLine().trim();
+        if (line.isEmpty()) {
+            return orElse;
+        }
+        try {
+            int position = Integer.parseInt(line);
+            return position >= 1 && position <= max ? position : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Intermediate method for playling a playlist.
      * @param playlist
@@ -800,13 +960,13 @@ public class Controller {
     public void playPlaylist(Playlist playlist) {
         if (playlist instanceof CustomPlaylist) {
             if (userService.getSubscriptionPlan(currentUser).canListenCustomPlaylist()) {
-                List<Music> music = playlist.getMusics();
+                List<Music> music = playlistService.getTracks(playlist);
                 playMusicList(playlist.getName(), music);
             } else {
                 System.out.println("The current plan only allows listening to random playlists!");
             }
         } else if (playlist instanceof RandomPlaylist) {
-            List<Music> music = playlist.getMusics();
+            List<Music> music = playlistService.getTracks(playlist);
             playMusicList(playlist.getName(), music);
         }
     }
@@ -836,9 +996,6 @@ public class Controller {
         System.out.println("Playlist created successfully!");
 
         // PLAYING
-        int i = 0;
-        boolean playing = true;
-        Random r = new Random();
         System.out.println("\nPLAYING THE RANDOM PLAYLIST");
         List<Music> music = randomPlaylist.getMusics();
 
@@ -847,60 +1004,7 @@ public class Controller {
             return;
         }
 
-        while (playing && i < music.size()) {
-            Music current = music.get(i);
-            if ((current.isExplicit() && !currentUser.wantsExplicit())) {
-                i++;
-                if (i >= music.size()) {
-                    System.out.println("End of list!\n");
-                    playing = false;
-                }
-                continue;
-            }
-            System.out.println("PLAY CONTROLS:");
-            System.out.println("ENTER: continue, R=Random Music, Q=Quit");
-
-            System.out.println("\nPLAYING MUSIC: " + current.toString() + "\n");
-
-            boolean skipped = false;
-
-            String lyricsString = current.getLyrics();
-            List<String> lyrics = Arrays.asList(lyricsString.split("\n"));
-            for (String line : lyrics) {
-                System.out.print(line + " ");
-                String cmd = scanner.nextLine();
-
-                switch (cmd.toLowerCase()) {
-                    case "r":
-                        int newI = i;
-                        while (newI == i) {
-                            newI = r.nextInt(music.size());
-                        }
-                        i = newI;
-                        skipped = true;
-                        break;
-                    case "q":
-                        playing = false;
-                        break;
-                    default:
-                        break;
-                }
-                if (cmd.toLowerCase().equals("r") || cmd.toLowerCase().equals("q")) {
-                    break;
-                }
-            }
-
-            if (!skipped) {
-                i++;
-                current.registaReproducao();
-                listeningRecordService.registerMusicPlay(currentUser, current);
-            }
-
-            if (i >= music.size()) {
-                System.out.println("\nEnd of list!\n");
-                playing = false;
-            }
-        }
+        listen(music, false);
     }
 
     /**
@@ -908,18 +1012,25 @@ public class Controller {
      */
     public void statsMenu() {
         System.out.println("== STATISTICS ==");
-        System.out.println("Nº. de utilizadores: ");
-        System.out.println("Nº. de músicas: " + musicService.getTotalNumberOfMusics());
-        System.out.println("Nº. de álbuns: " + albumService.findAll().size());
-        System.out.println("Nº. de playlists públicas: " + playlistService.findPublicPlaylists().size());
-        System.out.println("Nº. de intérpretes: " + artistService.findAll().size());
-        System.out.println("Música mais reproduzida: " );
-        System.out.println("Intérprete mais escutado: " );
-        System.out.println("User que mais músicas ouviu desde sempre: " );
-        System.out.println("User que mais músicas ouviu no último mês: " );
-        System.out.println("User com mais pontos: " );
-        System.out.println("Género de música mais reproduzida: " );
-        System.out.println("User com mais playlists: " );
+        StatisticsSnapshot stats = statisticsService.getSnapshot();
+        System.out.println("Nº. de utilizadores: " + stats.users());
+        System.out.println("Nº. de músicas: " + stats.musics());
+        System.out.println("Nº. de álbuns: " + stats.albums());
+        System.out.println("Nº. de playlists públicas: " + stats.publicPlaylists());
+        System.out.println("Nº. de intérpretes: " + stats.artists());
+        System.out.println("Música mais reproduzida: " + orNone(stats.mostPlayedMusic()));
+        System.out.println("Intérprete mais escutado: " + orNone(stats.mostListenedArtist()));
+        System.out.println("User que mais músicas ouviu desde sempre: " + orNone(stats.topListener()));
+        System.out.println("User que mais músicas ouviu no último mês: " + orNone(stats.topListenerLastMonth()));
+        LeaderboardEntry leader = leaderboardService.getLeader();
+        System.out.println("User com mais pontos: " + (leader == null ? "-" : leader.username() + " (" + leader.points() + ")"));
+        System.out.println("Género de música mais reproduzida: " + orNone(stats.mostPlayedGenre()));
+        System.out.println("User com mais playlists: " + orNone(stats.mostPlaylists()));
+        System.out.println("(atualizado a " + stats.computedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + ")");
+    }
+
+    private static String orNone(RankedEntry entry) {
+        return entry == null ? "-" : entry.toString();
     }
 
     /**
@@ -929,13 +1040,74 @@ public class Controller {
         Menu administrationMenu = new Menu("administration", new String[]{
             "Create album",
             "Create playlist",
+            "Connection pool status",
+            "Rebuild play counts",
+            "Catalog cache status",
+            "Rebuild search index",
+            "Listening ingestion status",
+            "Migrate lyrics",
         });
         administrationMenu.setHandler(1, () -> createAlbumMenu());
         administrationMenu.setHandler(2, () -> createPlaylistMenu());
+        administrationMenu.setHandler(3, () -> connectionPoolMenu());
+        administrationMenu.setHandler(4, () -> rebuildPlayCountsMenu());
+        administrationMenu.setHandler(5, () -> catalogCacheMenu());
+        administrationMenu.setHandler(6, () -> rebuildSearchIndexMenu());
+        administrationMenu.setHandler(7, () -> listeningIngestMenu());
+        administrationMenu.setHandler(8, () -> migrateLyricsMenu());
 
         administrationMenu.run();
     }
 
+    /**
+     * Prints live connection pool metrics.
+     */
+    public void connectionPoolMenu() {
+        System.out.println("== CONNECTION POOL ==");
+        System.out.println(metricsService.getConnectionPoolReport());
+    }
+
+    /**
+     * Prints hit/miss counts of the catalog second-level cache.
+     */
+    public void catalogCacheMenu() {
+        System.out.println("== CATALOG CACHE ==");
+        System.out.println(metricsService.getCatalogCacheReport());
+    }
+
+    /**
+     * Prints the backlog and lag of the listening history writer.
+     */
+    public void listeningIngestMenu() {
+        System.out.println("== LISTENING INGESTION ==");
+        System.out.println(metricsService.getListeningIngestReport());
+    }
+
+    /**
+     * Reloads the search indexes, picking up catalog changes made outside the application.
+     */
+    public void rebuildSearchIndexMenu() {
+        searchService.rebuild();
+        System.out.println("== SEARCH INDEX ==");
+        System.out.println(searchService);
+    }
+
+    /**
+     * Moves lyrics left in music.lyrics by versions before music_lyrics; needed once after upgrading.
+     */
+    public void migrateLyricsMenu() {
+        int moved = musicService.migrateLyrics();
+        System.out.println("Lyrics migrated (" + moved + " musics).");
+    }
+
+    /**
+     * Recomputes every music's play count from the listening history.
+     */
+    public void rebuildPlayCountsMenu() {
+        int fixed = playCountService.rebuild();
+        System.out.println("Play counts rebuilt (" + fixed + " musics corrected).");
+    }
+
     /**
      * UI for creating a playlist.
      */
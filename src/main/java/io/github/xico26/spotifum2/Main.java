@@ -1,6 +1,10 @@
 package io.github.xico26.spotifum2;
 
 import io.github.xico26.spotifum2.dao.*;
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+import io.github.xico26.spotifum2.persistence.PlayJournal;
+import io.github.xico26.spotifum2.persistence.PooledConnectionProvider;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import io.github.xico26.spotifum2.service.*;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
@@ -11,28 +15,60 @@ import jakarta.persistence.Persistence;
 public class Main {
     public static void main(String[] args) {
         EntityManagerFactory emf = Persistence.createEntityManagerFactory("spotifumPU");
+        UnitOfWork uow = new UnitOfWork(emf);
+        CatalogCache catalogCache = new CatalogCache(emf);
 
-        AlbumDAO albumDAO = new AlbumDAOImpl(emf);
-        ArtistDAO artistDAO = new ArtistDAOImpl(emf);
-        LibraryDAO libraryDAO = new LibraryDAOImpl(emf);
-        ListeningRecordDAO lrDAO = new ListeningRecordDAOImpl(emf);
-        PlaylistDAO playlistDAO = new PlaylistDAOImpl(emf);
-        UserDAO userDAO = new UserDAOImpl(emf);
-        MusicDAO musicDAO = new MusicDAOImpl(emf);
+        AlbumDAO albumDAO = new AlbumDAOImpl(uow);
+        ArtistDAO artistDAO = new ArtistDAOImpl(uow);
+        LibraryDAO libraryDAO = new LibraryDAOImpl(uow);
+        ListeningRecordDAO lrDAO = new ListeningRecordDAOImpl(uow);
+        PlaylistDAO playlistDAO = new PlaylistDAOImpl(uow);
+        PlaylistTrackDAO playlistTrackDAO = new PlaylistTrackDAOImpl(uow);
+        UserDAO userDAO = new UserDAOImpl(uow);
+        MusicDAO musicDAO = new MusicDAOImpl(uow);
+        StatisticsDAO statisticsDAO = new StatisticsDAOImpl(uow);
+        PointsLedgerDAO pointsLedgerDAO = new PointsLedgerDAOImpl(uow);
 
-        ArtistService artistService = new ArtistService(artistDAO);
-        AlbumService albumService = new AlbumService(albumDAO, artistService);
-        MusicService musicService = new MusicService(musicDAO, albumService);
-        UserService userService = new UserService(userDAO);
-        LibraryService libraryService = new LibraryService(libraryDAO);
-        ListeningRecordService listeningRecordService = new ListeningRecordService(lrDAO, userService);
-        PlaylistService playlistService = new PlaylistService(playlistDAO, libraryService, listeningRecordService, musicService, albumService);
-        musicService.setPlaylistService(playlistService);
-        musicService.setLibraryService(libraryService);
+        SearchService searchService = new SearchService(musicDAO, albumDAO, artistDAO, playlistDAO);
+        searchService.rebuild();
 
+        LibraryService libraryService = new LibraryService(libraryDAO, uow);
+        DeletionService deletionService = new DeletionService(new DeletionDAOImpl(uow), libraryService, searchService, catalogCache, uow);
+        ArtistService artistService = new ArtistService(artistDAO, deletionService);
+        AlbumService albumService = new AlbumService(albumDAO, artistService, catalogCache, searchService, deletionService, uow);
+        LyricsService lyricsService = new LyricsService(new LyricsDAOImpl(uow), uow);
+        MusicService musicService = new MusicService(musicDAO, albumService, catalogCache, searchService, deletionService, lyricsService, uow);
+        LeaderboardService leaderboardService = new LeaderboardService(userDAO, pointsLedgerDAO);
+        leaderboardService.load();
+        PointsService pointsService = new PointsService(pointsLedgerDAO, userDAO, leaderboardService, uow);
+        pointsService.start();
+        UserService userService = new UserService(userDAO, pointsService, leaderboardService, uow);
+        PlayCountService playCountService = new PlayCountService(musicDAO, catalogCache);
+        playCountService.start();
+        TrendingService trendingService = new TrendingService(musicDAO);
+        ListenedSetService listenedSetService = new ListenedSetService(new ListenedSetDAOImpl(uow), lrDAO, uow);
+        PlayJournal playJournal = new PlayJournal();
+        ListeningIngestService ingestService = new ListeningIngestService(lrDAO, pointsService, playCountService, trendingService, listenedSetService, playJournal, uow);
+        ingestService.start();
+        ListeningRecordService listeningRecordService = new ListeningRecordService(lrDAO, userService, pointsService, ingestService, listenedSetService);
+        PlaybackService playbackService = new PlaybackService(userService, musicService, listeningRecordService);
+        PlaylistService playlistService = new PlaylistService(playlistDAO, playlistTrackDAO, libraryService, listeningRecordService, musicService, albumService, searchService, deletionService, uow);
+        MetricsService metricsService = new MetricsService(PooledConnectionProvider.metricsOf(emf), catalogCache, ingestService);
+        StatisticsService statisticsService = new StatisticsService(statisticsDAO);
+        statisticsService.start();
 
-        Controller controller = new Controller(albumService, artistService, libraryService, listeningRecordService, playlistService, userService, musicService);
+        Controller controller = new Controller(albumService, artistService, libraryService, listeningRecordService, playlistService, userService, musicService, metricsService, playCountService, statisticsService, searchService, leaderboardService, trendingService, playbackService);
 
-        controller.run();
+        try {
+            controller.run();
+        } finally {
+            statisticsService.close();
+            ingestService.close();
+            playJournal.close();
+            playCountService.close();
+            pointsService.close();
+            leaderboardService.close();
+            emf.close();
+        }
     }
 }
\ No newline at end of file
@@ -64,6 +64,26 @@ public class Menu {
         } while (op != 0);
     }
 
+    /**
+     * Mostra o menu e executa uma única opção, sem repetir.
+     * @return opção escolhida (0 para sair, -1 se a opção estava indisponível)
+     */
+    public int runOnce() {
+        int op;
+        do {
+            imprimeMenu();
+            op = readOption();
+        } while (op < 0);
+        if (op > 0 && !this.disponivel.get(op-1).validar()) {
+            System.out.println("Opção indisponível! Tente novamente.");
+            return -1;
+        }
+        if (op > 0) {
+            this.handlers.get(op-1).execute();
+        }
+        return op;
+    }
+
     /**
      * Metodo que regista uma pré-condição numa opção do menu.
      *
@@ -1,15 +1,24 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface AlbumDAO {
     Album findById(int id);
 
+    Album findDetail(int id);
+
     List<Album> findAll();
 
+    Page<Album> findAll(int afterId, int size);
+
     void save(Album a);
 
     void delete(Album a);
@@ -18,5 +27,23 @@ public interface AlbumDAO {
 
     List<Album> findByTitle(String title);
 
+    Page<Album> findByTitle(String title, int afterId, int size);
+
     List<Album> findByArtist(String artist);
+
+    Page<Album> findByArtist(String artist, int afterId, int size);
+
+    List<Album> findAllById(Collection<Integer> ids);
+
+    List<AlbumSummary> findSummaries(Collection<Integer> ids);
+
+    Page<AlbumSummary> findSummariesByArtistIds(Collection<Integer> artistIds, int afterId, int size);
+
+    void saveAll(Collection<Album> albums);
+
+    void updateAll(Collection<Album> albums);
+
+    void deleteAll(Collection<Album> albums);
+
+    void forEachName(Consumer<NamedId> action);
 }
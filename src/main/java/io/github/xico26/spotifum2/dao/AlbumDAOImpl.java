@@ -1,88 +1,186 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
-import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.SpecHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class AlbumDAOImpl implements AlbumDAO {
-    private EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public AlbumDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public AlbumDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Album findById(int id) {
-        EntityManager em = emf.createEntityManager();
-        Album a = em.find(Album.class, id);
-        em.close();
-        return a;
+        return uow.read(em -> em.find(Album.class, id));
+    }
+
+    /**
+     * Album with its artist and musics, read in one query for the album page.
+     * @param id id of the album
+     * @return album, or null if there is none
+     */
+    @Override
+    public Album findDetail(int id) {
+        return uow.read(em -> em.find(Album.class, id, Map.of(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Album.DETAIL_GRAPH))));
     }
 
     @Override
     public List<Album> findAll() {
-        EntityManager em = emf.createEntityManager();
-        List<Album> albums = em.createQuery("FROM Album", Album.class).getResultList();
-        em.close();
-        return albums;
+        return uow.read(em -> em.createQuery("FROM Album", Album.class).getResultList());
     }
 
     @Override
     public void save(Album a) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.persist(a);
-        tx.commit();
-        em.close();
+        uow.run(em -> {
+            if (a.getId() == 0) {
+                em.persist(a);
+            } else {
+                em.merge(a);
+            }
+        });
     }
 
     @Override
     public void delete(Album a) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.remove(a);
-        tx.commit();
-        em.close();
+        uow.run(em -> em.remove(UnitOfWork.attach(em, a)));
     }
 
     @Override
     public void update(Album a) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.merge(a);
-        tx.commit();
-        em.close();
+        uow.run(em -> em.merge(a));
     }
 
     @Override
     public List<Album> findByTitle(String title) {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE LOWER(a.name) LIKE :title", Album.class);
             query.setParameter("title", "%" + title.toLowerCase() + "%");
             return query.getResultList();
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Album> findByArtist(String artist) {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE LOWER(a.artist.name) LIKE :artist", Album.class);
             query.setParameter("artist", "%" + artist.toLowerCase() + "%");
             return query.getResultList();
-        } finally {
-            em.close();
+        });
+    }
+
+    @Override
+    public List<Album> findAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return uow.read(em -> {
+            TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE a.id IN :ids", Album.class);
+            query.setParameter("ids", ids);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Album.SUMMARY_GRAPH));
+            return query.getResultList();
+        });
+    }
+
+    @Override
+    public Page<Album> findAll(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE a.id > :after ORDER BY a.id", Album.class);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Album.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Album::getId);
+        });
+    }
+
+    @Override
+    public Page<Album> findByTitle(String title, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE LOWER(a.name) LIKE :title AND a.id > :after ORDER BY a.id", Album.class);
+            query.setParameter("title", "%" + title.toLowerCase() + "%");
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Album.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Album::getId);
+        });
+    }
+
+    @Override
+    public Page<Album> findByArtist(String artist, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Album> query = em.createQuery("SELECT a FROM Album a WHERE LOWER(a.artist.name) LIKE :artist AND a.id > :after ORDER BY a.id", Album.class);
+            query.setParameter("artist", "%" + artist.toLowerCase() + "%");
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Album.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Album::getId);
+        });
+    }
+
+    /**
+     * Summaries of albums, in one query and without loading any entity.
+     * @param ids ids of the albums
+     * @return summaries, in no particular order
+     */
+    @Override
+    public List<AlbumSummary> findSummaries(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return uow.read(em -> em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.AlbumSummary(a.id, a.name, ar.name, a.year) FROM Album a JOIN a.artist ar WHERE a.id IN :ids", AlbumSummary.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    @Override
+    public Page<AlbumSummary> findSummariesByArtistIds(Collection<Integer> artistIds, int afterId, int size) {
+        if (artistIds.isEmpty()) {
+            return new Page<>(List.of(), afterId, false);
+        }
+        return uow.read(em -> {
+            TypedQuery<AlbumSummary> query = em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.AlbumSummary(a.id, a.name, ar.name, a.year) FROM Album a JOIN a.artist ar WHERE ar.id IN :ids AND a.id > :after ORDER BY a.id", AlbumSummary.class);
+            query.setParameter("ids", artistIds);
+            return Keyset.page(query, afterId, size, AlbumSummary::id);
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<Album> albums) {
+        uow.batch(albums, (em, a) -> {
+            if (a.getId() == 0) {
+                em.persist(a);
+            } else {
+                em.merge(a);
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Album> albums) {
+        uow.batch(albums, EntityManager::merge);
+    }
+
+    @Override
+    public void deleteAll(Collection<Album> albums) {
+        uow.batch(albums, (em, a) -> em.remove(UnitOfWork.attach(em, a)));
+    }
+
+    @Override
+    public void forEachName(Consumer<NamedId> action) {
+        uow.read(em -> {
+            try (Stream<NamedId> rows = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.NamedId(x.id, x.name) FROM Album x", NamedId.class)
+                    .setHint("org.hibernate.fetchSize", 1000)
+                    .getResultStream()) {
+                rows.forEach(action);
+            }
+            return null;
+        });
     }
 }
@@ -1,14 +1,20 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Artist;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ArtistDAO {
     Artist findById(int id);
 
     List<Artist> findAll();
 
+    Page<Artist> findAll(int afterId, int size);
+
     Artist findByName(String name);
 
     void save(Artist a);
@@ -16,4 +22,12 @@ public interface ArtistDAO {
     void delete(Artist a);
 
     void update(Artist a);
+
+    void saveAll(Collection<Artist> artists);
+
+    void updateAll(Collection<Artist> artists);
+
+    void deleteAll(Collection<Artist> artists);
+
+    void forEachName(Consumer<NamedId> action);
 }
@@ -1,87 +1,106 @@
 package io.github.xico26.spotifum2.dao;
 
-import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class ArtistDAOImpl implements ArtistDAO {
-    private final EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public ArtistDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public ArtistDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Artist findById(int id) {
-        EntityManager em = emf.createEntityManager();
-        Artist a = em.find(Artist.class, id);
-        em.close();
-        return a;
+        return uow.read(em -> em.find(Artist.class, id));
     }
 
     @Override
     public List<Artist> findAll() {
-        EntityManager em = emf.createEntityManager();
-        List<Artist> artists = em.createQuery("FROM Artist", Artist.class).getResultList();
-        em.close();
-        return artists;
+        return uow.read(em -> em.createQuery("FROM Artist", Artist.class).getResultList());
     }
 
     @Override
     public Artist findByName(String name) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Artist> query = em.createQuery("SELECT a FROM Artist a WHERE LOWER(a.name) == :name", Artist.class);
-            query.setParameter("name", name.toLowerCase());
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> {
+            try {
+                TypedQuery<Artist> query = em.createQuery("SELECT a FROM Artist a WHERE LOWER(a.name) = :name", Artist.class);
+                query.setParameter("name", name.toLowerCase());
+                return query.getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
     }
 
     @Override
     public void save(Artist a) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(a);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-        }  finally {
-            em.close();
-        }
+        uow.run(em -> {
+            if (a.getId() == 0) {
+                em.persist(a);
+            } else {
+                em.merge(a);
+            }
+        });
     }
 
     @Override
     public void delete(Artist a) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.remove(a);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.remove(UnitOfWork.attach(em, a)));
     }
 
     @Override
     public void update(Artist a) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.merge(a);
-            em.getTransaction().commit();
-        }  catch (Exception e) {
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.merge(a));
+    }
+
+    @Override
+    public Page<Artist> findAll(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Artist> query = em.createQuery("SELECT a FROM Artist a WHERE a.id > :after ORDER BY a.id", Artist.class);
+            return Keyset.page(query, afterId, size, Artist::getId);
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<Artist> artists) {
+        uow.batch(artists, (em, a) -> {
+            if (a.getId() == 0) {
+                em.persist(a);
+            } else {
+                em.merge(a);
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Artist> artists) {
+        uow.batch(artists, EntityManager::merge);
+    }
+
+    @Override
+    public void deleteAll(Collection<Artist> artists) {
+        uow.batch(artists, (em, a) -> em.remove(UnitOfWork.attach(em, a)));
+    }
+
+    @Override
+    public void forEachName(Consumer<NamedId> action) {
+        uow.read(em -> {
+            try (Stream<NamedId> rows = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.NamedId(x.id, x.name) FROM Artist x", NamedId.class)
+                    .setHint("org.hibernate.fetchSize", 1000)
+                    .getResultStream()) {
+                rows.forEach(action);
+            }
+            return null;
+        });
     }
 }
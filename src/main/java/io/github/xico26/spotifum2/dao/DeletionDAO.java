@@ -0,0 +1,15 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.DeletedCatalog;
+
+import java.util.Collection;
+
+public interface DeletionDAO {
+    DeletedCatalog deleteMusics(Collection<Integer> musicIds);
+
+    DeletedCatalog deleteAlbum(int albumId);
+
+    DeletedCatalog deleteArtist(int artistId);
+
+    void deletePlaylist(int playlistId);
+}
@@ -0,0 +1,138 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.DeletedCatalog;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.hibernate.Session;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Deletes catalog entries and every row that refers to them with one set-based DELETE per table,
+ * instead of loading and editing each playlist and library that holds them.
+ * Runs on the JDBC connection of the unit of work, so the second-level cache is left alone;
+ * callers evict what they delete.
+ */
+public class DeletionDAOImpl implements DeletionDAO {
+    private final UnitOfWork uow;
+
+    public DeletionDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    /**
+     * Deletes musics, their places in playlists and libraries, and their listening history.
+     * @param musicIds ids of the musics
+     * @return deleted musics
+     */
+    @Override
+    public DeletedCatalog deleteMusics(Collection<Integer> musicIds) {
+        if (musicIds.isEmpty()) {
+            return new DeletedCatalog(List.of(), List.of(), List.of(), List.of(), List.of());
+        }
+        return work(connection -> {
+            Array musics = connection.createArrayOf("integer", musicIds.toArray());
+            List<Integer> albumIds = ids(connection, "SELECT DISTINCT album_id FROM music WHERE id = ANY (?)", musics);
+            List<Integer> deleted = deleteMusics(connection, musics);
+            return new DeletedCatalog(List.of(), List.of(), deleted, List.of(), albumIds);
+        });
+    }
+
+    /**
+     * Deletes an album with its musics, and every reference to them.
+     * @param albumId id of the album
+     * @return deleted album and musics
+     */
+    @Override
+    public DeletedCatalog deleteAlbum(int albumId) {
+        return work(connection -> {
+            Array albums = connection.createArrayOf("integer", new Integer[]{albumId});
+            List<Integer> artistIds = ids(connection, "SELECT artist_id FROM album WHERE id = ANY (?)", albums);
+            List<Integer> musicIds = deleteAlbums(connection, albums);
+            return new DeletedCatalog(List.of(), List.of(albumId), musicIds, artistIds, List.of());
+        });
+    }
+
+    /**
+     * Deletes an artist with their albums and musics, and every reference to them.
+     * @param artistId id of the artist
+     * @return deleted artist, albums and musics
+     */
+    @Override
+    public DeletedCatalog deleteArtist(int artistId) {
+        return work(connection -> {
+            List<Integer> albumIds = ids(connection, "SELECT id FROM album WHERE artist_id = ?", artistId);
+            List<Integer> musicIds = deleteAlbums(connection, connection.createArrayOf("integer", albumIds.toArray()));
+            update(connection, "DELETE FROM artist WHERE id = ?", artistId);
+            return new DeletedCatalog(List.of(artistId), albumIds, musicIds, List.of(), List.of());
+        });
+    }
+
+    /**
+     * Deletes a playlist, its list of musics and its places in libraries.
+     * @param playlistId id of the playlist
+     */
+    @Override
+    public void deletePlaylist(int playlistId) {
+        work(connection -> {
+            update(connection, "DELETE FROM playlist_music WHERE playlist_id = ?", playlistId);
+            update(connection, "DELETE FROM library_saved_playlists WHERE playlist_id = ?", playlistId);
+            update(connection, "DELETE FROM playlist WHERE id = ?", playlistId);
+            return null;
+        });
+    }
+
+    private interface Work<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    // flushes first, so rows written earlier in the unit of work are seen and nothing is flushed over the deletes
+    private <T> T work(Work<T> work) {
+        return uow.call(em -> {
+            em.flush();
+            return em.unwrap(Session.class).doReturningWork(work::run);
+        });
+    }
+
+    private static List<Integer> deleteAlbums(Connection connection, Array albums) throws SQLException {
+        List<Integer> musicIds = ids(connection, "SELECT id FROM music WHERE album_id = ANY (?)", albums);
+        deleteMusics(connection, connection.createArrayOf("integer", musicIds.toArray()));
+        update(connection, "DELETE FROM library_saved_albums WHERE album_id = ANY (?)", albums);
+        update(connection, "DELETE FROM album WHERE id = ANY (?)", albums);
+        return musicIds;
+    }
+
+    // returns the ids of the musics that existed
+    private static List<Integer> deleteMusics(Connection connection, Array musics) throws SQLException {
+        update(connection, "DELETE FROM playlist_music WHERE music_id = ANY (?)", musics);
+        update(connection, "DELETE FROM library_saved_musics WHERE music_id = ANY (?)", musics);
+        update(connection, "DELETE FROM user_listened_music WHERE music_id = ANY (?)", musics);
+        return ids(connection, "DELETE FROM music WHERE id = ANY (?) RETURNING id", musics);
+    }
+
+    private static int update(Connection connection, String sql, Object param) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setObject(1, param);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static List<Integer> ids(Connection connection, String sql, Object param) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setObject(1, param);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.Page;
+import jakarta.persistence.TypedQuery;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Keyset pagination for the DAOs. Paged queries filter with {@code id > :after}, are ordered by id
+ * and read one row more than the page size, so no page ever needs an OFFSET scan.
+ */
+final class Keyset {
+    private Keyset() {
+    }
+
+    static <T> Page<T> page(TypedQuery<T> query, int afterId, int size, ToIntFunction<T> idOf) {
+        query.setParameter("after", afterId);
+        query.setMaxResults(size + 1);
+        return Page.of(query.getResultList(), size, afterId, idOf);
+    }
+}
@@ -1,20 +1,43 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.LibraryContents;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Library;
 import io.github.xico26.spotifum2.model.entity.User;
-import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
 
-import java.util.List;
+import java.util.Collection;
 
 public interface LibraryDAO {
     Library findByUser (User u);
 
+    LibraryContents findContents(int userId);
+
+    Page<MusicSummary> findSavedMusics(User u, int afterId, int size);
+
+    Page<AlbumSummary> findSavedAlbums(User u, int afterId, int size);
+
+    Page<Playlist> findSavedPlaylists(User u, int afterId, int size);
+
+    void addMusic(int libraryId, int musicId);
+
+    void removeMusic(int libraryId, int musicId);
+
+    void addAlbum(int libraryId, int albumId);
+
+    void removeAlbum(int libraryId, int albumId);
+
+    void addPlaylist(int libraryId, int playlistId);
+
+    void removePlaylist(int libraryId, int playlistId);
+
     void save (Library library);
 
     void update (Library library);
 
-    List<Library> findAllWithMusic(Music music);
+    void saveAll(Collection<Library> libraries);
 
-    List<Library> findAllWithPlaylist(Playlist playlist);
+    void deleteAll(Collection<Library> libraries);
 }
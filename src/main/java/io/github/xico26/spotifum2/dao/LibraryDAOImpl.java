@@ -1,91 +1,180 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.LibraryContents;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Library;
 import io.github.xico26.spotifum2.model.entity.User;
-import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.jpa.SpecHints;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class LibraryDAOImpl implements LibraryDAO {
-    private EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public LibraryDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public LibraryDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Library findByUser(User u) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Library> query = em.createQuery("FROM Library WHERE user = :user", Library.class);
-            query.setParameter("user", u);
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> {
+            try {
+                TypedQuery<Library> query = em.createQuery("FROM Library WHERE user = :user", Library.class);
+                query.setParameter("user", u);
+                return query.getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Ids of everything a user saved, in one query per kind, without loading the library or the saved entities.
+     * @param userId id of the user
+     * @return contents, or null if the user has no library
+     */
+    @Override
+    public LibraryContents findContents(int userId) {
+        return uow.read(em -> {
+            List<Integer> libraryIds = em.createQuery("SELECT l.id FROM Library l WHERE l.user.id = :user", Integer.class)
+                    .setParameter("user", userId)
+                    .getResultList();
+            if (libraryIds.isEmpty()) {
+                return null;
+            }
+            int libraryId = libraryIds.getFirst();
+            List<Integer> musicIds = em.createQuery("SELECT m.id FROM Library l JOIN l.savedMusics m WHERE l.id = :library", Integer.class)
+                    .setParameter("library", libraryId)
+                    .getResultList();
+            List<Integer> albumIds = em.createQuery("SELECT a.id FROM Library l JOIN l.savedAlbums a WHERE l.id = :library", Integer.class)
+                    .setParameter("library", libraryId)
+                    .getResultList();
+            Map<Integer, String> playlists = new HashMap<>();
+            em.createQuery("SELECT p.id, p.name FROM Library l JOIN l.savedPlaylists p WHERE l.id = :library", Object[].class)
+                    .setParameter("library", libraryId)
+                    .getResultList()
+                    .forEach(row -> playlists.put((Integer) row[0], (String) row[1]));
+            return new LibraryContents(libraryId, musicIds, albumIds, playlists);
+        });
+    }
+
+    @Override
+    public Page<MusicSummary> findSavedMusics(User u, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<MusicSummary> query = em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.MusicSummary(m.id, m.title, ar.name, m.genre, m.duration, CASE WHEN TYPE(m) = ExplicitMusic THEN true ELSE false END) "
+                    + "FROM Library l JOIN l.savedMusics m JOIN m.album al JOIN al.artist ar WHERE l.user.id = :user AND m.id > :after ORDER BY m.id", MusicSummary.class);
+            query.setParameter("user", u.getId());
+            return Keyset.page(query, afterId, size, MusicSummary::id);
+        });
+    }
+
+    @Override
+    public Page<AlbumSummary> findSavedAlbums(User u, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<AlbumSummary> query = em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.AlbumSummary(a.id, a.name, ar.name, a.year) "
+                    + "FROM Library l JOIN l.savedAlbums a JOIN a.artist ar WHERE l.user.id = :user AND a.id > :after ORDER BY a.id", AlbumSummary.class);
+            query.setParameter("user", u.getId());
+            return Keyset.page(query, afterId, size, AlbumSummary::id);
+        });
+    }
+
+    @Override
+    public Page<Playlist> findSavedPlaylists(User u, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Library l JOIN l.savedPlaylists p WHERE l.user.id = :user AND p.id > :after ORDER BY p.id", Playlist.class);
+            query.setParameter("user", u.getId());
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Playlist::getId);
+        });
+    }
+
+    @Override
+    public void addMusic(int libraryId, int musicId) {
+        execute("INSERT INTO library_saved_musics (library_id, music_id) VALUES (?, ?)", libraryId, musicId);
+    }
+
+    @Override
+    public void removeMusic(int libraryId, int musicId) {
+        execute("DELETE FROM library_saved_musics WHERE library_id = ? AND music_id = ?", libraryId, musicId);
+    }
+
+    @Override
+    public void addAlbum(int libraryId, int albumId) {
+        execute("INSERT INTO library_saved_albums (library_id, album_id) VALUES (?, ?)", libraryId, albumId);
+    }
+
+    @Override
+    public void removeAlbum(int libraryId, int albumId) {
+        execute("DELETE FROM library_saved_albums WHERE library_id = ? AND album_id = ?", libraryId, albumId);
+    }
+
+    @Override
+    public void addPlaylist(int libraryId, int playlistId) {
+        execute("INSERT INTO library_saved_playlists (library_id, playlist_id) VALUES (?, ?)", libraryId, playlistId);
+    }
+
+    @Override
+    public void removePlaylist(int libraryId, int playlistId) {
+        execute("DELETE FROM library_saved_playlists WHERE library_id = ? AND playlist_id = ?", libraryId, playlistId);
+    }
+
+    /**
+     * Writes library_saved_* rows directly, after flushing the entities they may refer to.
+     * Libraries already loaded in the unit of work do not see the change.
+     */
+    private int execute(String sql, int... params) {
+        return uow.call(em -> {
+            em.flush();
+            return em.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        ps.setInt(i + 1, params[i]);
+                    }
+                    return ps.executeUpdate();
+                }
+            });
+        });
     }
 
     @Override
     public void save(Library library) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(library);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        uow.run(em -> {
+            if (library.getId() == 0) {
+                em.persist(library);
+            } else {
+                em.merge(library);
+            }
+        });
     }
 
     @Override
     public void update(Library library) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.merge(library);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.merge(library));
     }
 
     @Override
-    public List<Library> findAllWithMusic(Music music) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Library> query = em.createQuery(
-                    "SELECT l FROM Library l JOIN l.savedMusics m WHERE m = :music", Library.class);
-            query.setParameter("music", music);
-            return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+    public void saveAll(Collection<Library> libraries) {
+        uow.batch(libraries, (em, l) -> {
+            if (l.getId() == 0) {
+                em.persist(l);
+            } else {
+                em.merge(l);
+            }
+        });
     }
 
     @Override
-    public List<Library> findAllWithPlaylist(Playlist playlist) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Library> query = em.createQuery(
-                    "SELECT l FROM Library l JOIN l.savedPlaylists p WHERE p = :playlist", Library.class);
-            query.setParameter("playlist", playlist);
-            return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+    public void deleteAll(Collection<Library> libraries) {
+        uow.batch(libraries, (em, l) -> em.remove(UnitOfWork.attach(em, l)));
     }
 }
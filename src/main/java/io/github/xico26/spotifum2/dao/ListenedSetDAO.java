@@ -0,0 +1,11 @@
+package io.github.xico26.spotifum2.dao;
+
+import java.util.Map;
+
+public interface ListenedSetDAO {
+    byte[] find(int userId);
+
+    void saveAll(Map<Integer, byte[]> bitmaps);
+
+    void delete(int userId);
+}
@@ -0,0 +1,66 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serialized listened-music bitmaps, one row per user in user_listened_set.
+ */
+public class ListenedSetDAOImpl implements ListenedSetDAO {
+    private final UnitOfWork uow;
+
+    public ListenedSetDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    @Override
+    public byte[] find(int userId) {
+        return uow.read(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT bitmap FROM user_listened_set WHERE user_id = ?")) {
+                ps.setInt(1, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getBytes(1) : null;
+                }
+            }
+        }));
+    }
+
+    /**
+     * Inserts or replaces the bitmaps of several users in one JDBC batch, in user id order.
+     * @param bitmaps serialized bitmaps, by user id
+     */
+    @Override
+    public void saveAll(Map<Integer, byte[]> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return;
+        }
+        Map<Integer, byte[]> ordered = new TreeMap<>(bitmaps);
+        uow.run(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO user_listened_set (user_id, bitmap) VALUES (?, ?) " +
+                    "ON CONFLICT (user_id) DO UPDATE SET bitmap = EXCLUDED.bitmap")) {
+                for (Map.Entry<Integer, byte[]> e : ordered.entrySet()) {
+                    ps.setInt(1, e.getKey());
+                    ps.setBytes(2, e.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }));
+    }
+
+    @Override
+    public void delete(int userId) {
+        uow.run(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM user_listened_set WHERE user_id = ?")) {
+                ps.setInt(1, userId);
+                ps.executeUpdate();
+            }
+        }));
+    }
+}
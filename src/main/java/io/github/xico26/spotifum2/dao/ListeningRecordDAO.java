@@ -1,14 +1,22 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.MusicPlayCount;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
 import io.github.xico26.spotifum2.model.entity.ListeningRecord;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public interface ListeningRecordDAO {
     List<ListeningRecord> findByUser(User u);
 
+    Page<ListeningRecord> findByUser(User u, int afterId, int size);
+
     void deleteByUser(User u);
 
     void save(ListeningRecord listeningRecord);
@@ -19,5 +27,19 @@ public interface ListeningRecordDAO {
 
     List<Music> getUniqueListens (User u);
 
+    Page<Music> getUniqueListens(User u, int afterId, int size);
+
+    List<Integer> findListenedMusicIds(int userId);
+
     int getNumListensToMusic (User u, Music m);
+
+    List<MusicPlayCount> findTopListened (User u, int limit);
+
+    void saveAll(Collection<ListeningRecord> listeningRecords);
+
+    void insertAll(Collection<PlayEvent> events);
+
+    Set<UUID> findExistingKeys(Collection<UUID> keys);
+
+    void deleteAll(Collection<ListeningRecord> listeningRecords);
 }
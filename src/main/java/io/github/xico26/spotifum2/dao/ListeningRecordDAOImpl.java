@@ -1,129 +1,168 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.MusicPlayCount;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
 import io.github.xico26.spotifum2.model.entity.ListeningRecord;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.*;
+import org.hibernate.jpa.SpecHints;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 public class ListeningRecordDAOImpl implements ListeningRecordDAO {
-    private EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public ListeningRecordDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public ListeningRecordDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public List<ListeningRecord> findByUser(User u) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<ListeningRecord> query = em.createQuery("SELECT l FROM ListeningRecord l WHERE l.user == :user", ListeningRecord.class);
+        return uow.read(em -> {
+            TypedQuery<ListeningRecord> query = em.createQuery("SELECT l FROM ListeningRecord l WHERE l.user = :user", ListeningRecord.class);
             query.setParameter("user", u);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(ListeningRecord.HISTORY_GRAPH));
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public void deleteByUser(User u) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.createQuery("DELETE FROM ListeningRecord l WHERE l.user == :user")
-                    .setParameter("user", u)
-                    .executeUpdate();
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.createQuery("DELETE FROM ListeningRecord l WHERE l.user = :user")
+                .setParameter("user", u)
+                .executeUpdate());
     }
 
     @Override
     public void save (ListeningRecord listeningRecord) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.persist(listeningRecord);
-        tx.commit();
-        em.close();
+        uow.run(em -> em.persist(listeningRecord));
     }
 
     @Override
     public boolean hasListened (User u, int musicId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user == :user AND l.music.id = :music_id", Long.class);
+        return uow.read(em -> {
+            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user = :user AND l.music.id = :music_id", Long.class);
             query.setParameter("user", u);
             query.setParameter("music_id", musicId);
 
             Long count = query.getSingleResult();
             return count > 0;
-        } catch (NoResultException e) {
-            return false;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public int getNumListened (User u) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user == :user", Long.class);
+        return uow.read(em -> {
+            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user = :user", Long.class);
             query.setParameter("user", u);
 
             return query.getSingleResult().intValue();
-        } catch (NoResultException e) {
-            return 0;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Music> getUniqueListens (User u) {
-        EntityManager em = emf.createEntityManager();
-        Set<Music> musics = new HashSet<Music>();
-        try {
-            TypedQuery<ListeningRecord> query = em.createQuery("SELECT l FROM ListeningRecord l WHERE l.user == :user", ListeningRecord.class);
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT DISTINCT l.music FROM ListeningRecord l WHERE l.user = :user", Music.class);
             query.setParameter("user", u);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return query.getResultList();
+        });
+    }
 
-            List<ListeningRecord> recs = query.getResultList();
-
-            for (ListeningRecord listeningRecord : recs) {
-                musics.add(listeningRecord.getMusic());
-            }
-
-            return musics.stream().toList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+    @Override
+    public List<Integer> findListenedMusicIds(int userId) {
+        return uow.read(em -> em.createQuery("SELECT DISTINCT l.music.id FROM ListeningRecord l WHERE l.user.id = :user", Integer.class)
+                .setParameter("user", userId)
+                .getResultList());
     }
 
     @Override
     public int getNumListensToMusic(User u, Music m) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user == :user AND l.music = :music", Long.class);
+        return uow.read(em -> {
+            TypedQuery<Long> query = em.createQuery("SELECT COUNT(l) FROM ListeningRecord l WHERE l.user = :user AND l.music = :music", Long.class);
             query.setParameter("user", u);
             query.setParameter("music", m);
 
             return query.getSingleResult().intValue();
-        } catch (NoResultException e) {
-            return 0;
-        } finally {
-            em.close();
+        });
+    }
+
+    @Override
+    public List<MusicPlayCount> findTopListened(User u, int limit) {
+        return uow.read(em -> {
+            TypedQuery<MusicPlayCount> query = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.MusicPlayCount(l.music.id, COUNT(l)) " +
+                    "FROM ListeningRecord l WHERE l.user = :user " +
+                    "GROUP BY l.music.id ORDER BY COUNT(l) DESC, l.music.id", MusicPlayCount.class);
+            query.setParameter("user", u);
+            query.setMaxResults(limit);
+            return query.getResultList();
+        });
+    }
+
+    @Override
+    public Page<ListeningRecord> findByUser(User u, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<ListeningRecord> query = em.createQuery("SELECT l FROM ListeningRecord l WHERE l.user = :user AND l.id > :after ORDER BY l.id", ListeningRecord.class);
+            query.setParameter("user", u);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(ListeningRecord.HISTORY_GRAPH));
+            return Keyset.page(query, afterId, size, ListeningRecord::getId);
+        });
+    }
+
+    @Override
+    public Page<Music> getUniqueListens(User u, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.id > :after AND EXISTS (SELECT 1 FROM ListeningRecord l WHERE l.user = :user AND l.music = m) ORDER BY m.id", Music.class);
+            query.setParameter("user", u);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Music::getId);
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<ListeningRecord> listeningRecords) {
+        uow.batch(listeningRecords, EntityManager::persist);
+    }
+
+    /**
+     * Writes plays to the listening history, referencing users and musics by id without loading them.
+     * @param events plays
+     */
+    @Override
+    public void insertAll(Collection<PlayEvent> events) {
+        uow.batch(events, (em, e) -> {
+            ListeningRecord lr = new ListeningRecord(em.getReference(User.class, e.userId()), em.getReference(Music.class, e.musicId()), e.listenedAt());
+            lr.setPlayKey(e.key());
+            em.persist(lr);
+        });
+    }
+
+    /**
+     * Returns which of the given play keys are already in the listening history.
+     * @param keys play keys
+     * @return keys already written
+     */
+    @Override
+    public Set<UUID> findExistingKeys(Collection<UUID> keys) {
+        if (keys.isEmpty()) {
+            return Set.of();
         }
+        return uow.read(em -> new HashSet<>(em.createQuery("SELECT l.playKey FROM ListeningRecord l WHERE l.playKey IN :keys", UUID.class)
+                .setParameter("keys", keys)
+                .getResultList()));
+    }
+
+    @Override
+    public void deleteAll(Collection<ListeningRecord> listeningRecords) {
+        uow.batch(listeningRecords, (em, lr) -> em.remove(UnitOfWork.attach(em, lr)));
     }
 }
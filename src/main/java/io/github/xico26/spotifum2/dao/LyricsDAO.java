@@ -0,0 +1,18 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.lyrics.CompressedLyrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface LyricsDAO {
+    CompressedLyrics find(int musicId);
+
+    void saveAll(Map<Integer, CompressedLyrics> lyrics);
+
+    boolean hasLegacy();
+
+    Map<Integer, String> findLegacy(int afterId, int size);
+
+    void clearLegacy(Collection<Integer> musicIds);
+}
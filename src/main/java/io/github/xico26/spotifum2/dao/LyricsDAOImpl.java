@@ -0,0 +1,120 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.lyrics.CompressedLyrics;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compressed lyrics, one row per music in music_lyrics. Kept apart from the music table so that reading the
+ * catalog never reads lyrics; they are only read, one music at a time, when a music is played or opened.
+ */
+public class LyricsDAOImpl implements LyricsDAO {
+    private final UnitOfWork uow;
+
+    public LyricsDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    @Override
+    public CompressedLyrics find(int musicId) {
+        return uow.read(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT dictionary, line_index, body FROM music_lyrics WHERE music_id = ?")) {
+                ps.setInt(1, musicId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? new CompressedLyrics(rs.getInt(1), rs.getBytes(2), rs.getBytes(3)) : null;
+                }
+            }
+        }));
+    }
+
+    /**
+     * Inserts or replaces the lyrics of several musics in one JDBC batch, in music id order.
+     * Musics saved in the same unit of work are flushed first, so that their rows exist.
+     * @param lyrics compressed lyrics, by music id
+     */
+    @Override
+    public void saveAll(Map<Integer, CompressedLyrics> lyrics) {
+        if (lyrics.isEmpty()) {
+            return;
+        }
+        Map<Integer, CompressedLyrics> ordered = new TreeMap<>(lyrics);
+        uow.run(em -> {
+            em.flush();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO music_lyrics (music_id, dictionary, line_index, body) VALUES (?, ?, ?, ?) " +
+                        "ON CONFLICT (music_id) DO UPDATE SET dictionary = EXCLUDED.dictionary, " +
+                        "line_index = EXCLUDED.line_index, body = EXCLUDED.body")) {
+                    for (Map.Entry<Integer, CompressedLyrics> e : ordered.entrySet()) {
+                        ps.setInt(1, e.getKey());
+                        ps.setShort(2, (short) e.getValue().dictionary());
+                        ps.setBytes(3, e.getValue().lineIndex());
+                        ps.setBytes(4, e.getValue().body());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            });
+        });
+    }
+
+    /**
+     * Whether the music.lyrics column, from before music_lyrics existed, is still there.
+     * @return true / false
+     */
+    @Override
+    public boolean hasLegacy() {
+        return uow.read(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = 'music' AND column_name = 'lyrics'");
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }));
+    }
+
+    /**
+     * Lyrics still kept as text in music.lyrics, from before music_lyrics existed.
+     * @param afterId id of the last music of the previous batch, 0 for the first
+     * @param size maximum number of musics
+     * @return lyrics by music id, in id order
+     */
+    @Override
+    public Map<Integer, String> findLegacy(int afterId, int size) {
+        return uow.read(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, lyrics FROM music WHERE id > ? AND lyrics IS NOT NULL ORDER BY id LIMIT ?")) {
+                ps.setInt(1, afterId);
+                ps.setInt(2, size);
+                Map<Integer, String> lyrics = new LinkedHashMap<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lyrics.put(rs.getInt(1), rs.getString(2));
+                    }
+                }
+                return lyrics;
+            }
+        }));
+    }
+
+    @Override
+    public void clearLegacy(Collection<Integer> musicIds) {
+        if (musicIds.isEmpty()) {
+            return;
+        }
+        uow.run(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE music SET lyrics = NULL WHERE id = ANY (?)")) {
+                ps.setArray(1, connection.createArrayOf("integer", musicIds.toArray()));
+                ps.executeUpdate();
+            }
+        }));
+    }
+}
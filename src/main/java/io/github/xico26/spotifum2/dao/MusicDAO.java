@@ -1,15 +1,28 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.TrackInfo;
 import io.github.xico26.spotifum2.model.entity.Artist;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface MusicDAO {
     Music findById(int id);
 
     List<Music> findAll();
 
+    Page<Music> findAll(int afterId, int size);
+
+    List<Music> findAllById(Collection<Integer> ids);
+
+    List<TrackInfo> findTrackInfo(Collection<Integer> ids);
+
     void save(Music music);
 
     void delete(Music music);
@@ -18,6 +31,31 @@ public interface MusicDAO {
 
     List<Music> findByTitle(String title);
 
+    Page<Music> findByTitle(String title, int afterId, int size);
+
     List<Music> getMusicsByGenre(String genre);
-}
 
+    Page<Music> getMusicsByGenre(String genre, int afterId, int size);
+
+    List<MusicSummary> findSummaries(Collection<Integer> ids);
+
+    Page<MusicSummary> findSummariesByArtistIds(Collection<Integer> artistIds, int afterId, int size);
+
+    void saveAll(Collection<Music> musics);
+
+    void updateAll(Collection<Music> musics);
+
+    void deleteAll(Collection<Music> musics);
+
+    void incrementPlays(Map<Integer, Long> deltas);
+
+    List<Integer> reclassify(Collection<Integer> musicIds, boolean explicit);
+
+    List<Integer> reclassifyAlbum(int albumId, boolean explicit);
+
+    List<Integer> reclassifyLabel(String label, boolean explicit);
+
+    int rebuildPlayCounts();
+
+    void forEachName(Consumer<NamedId> action);
+}
@@ -1,120 +1,310 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.TrackInfo;
 import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.jpa.SpecHints;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class MusicDAOImpl implements MusicDAO {
-    private final EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public MusicDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public MusicDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Music findById(int id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Music.class, id);
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> em.find(Music.class, id));
     }
 
     @Override
     public List<Music> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m", Music.class);
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
+        });
+    }
+
+    @Override
+    public List<Music> findAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.id IN :ids", Music.class);
+            query.setParameter("ids", ids);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return query.getResultList();
+        });
+    }
+
+    /**
+     * Reads title, artist and genre of several musics without loading the entities.
+     * @param ids ids of the musics
+     * @return one row per music found
+     */
+    @Override
+    public List<TrackInfo> findTrackInfo(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return uow.read(em -> em.createQuery(
+                        "SELECT new io.github.xico26.spotifum2.model.dto.TrackInfo(m.id, m.title, a.id, a.name, m.genre) " +
+                        "FROM Music m JOIN m.album al JOIN al.artist a WHERE m.id IN :ids", TrackInfo.class)
+                .setParameter("ids", ids)
+                .getResultList());
     }
 
     @Override
     public void save(Music music) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        try {
-            tx.begin();
+        uow.run(em -> {
             if (music.getId() == 0) {
                 em.persist(music);
             } else {
                 em.merge(music);
             }
-            tx.commit();
-        } catch (Exception e) {
-            if (tx.isActive()) tx.rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public void delete(Music music) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        try {
-            tx.begin();
+        uow.run(em -> {
             Music managedMusic = em.find(Music.class, music.getId());
             if (managedMusic != null) {
                 em.remove(managedMusic);
             }
-            tx.commit();
-        } catch (Exception e) {
-            if (tx.isActive()) tx.rollback();
-            throw e;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public int getMusicCount() {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Long> query = em.createQuery("SELECT COUNT(m) FROM Music m", Long.class);
             return query.getSingleResult().intValue();
-        } catch (NoResultException e) {
-            return 0;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Music> findByTitle(String title) {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE LOWER(m.title) LIKE :title", Music.class);
             query.setParameter("title", "%" + title.toLowerCase() + "%");
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Music> getMusicsByGenre(String genre) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.genre == :genre", Music.class);
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.genre = :genre", Music.class);
             query.setParameter("genre", genre);
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
+        });
+    }
+
+    @Override
+    public Page<Music> findAll(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.id > :after ORDER BY m.id", Music.class);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Music::getId);
+        });
+    }
+
+    @Override
+    public Page<Music> findByTitle(String title, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE LOWER(m.title) LIKE :title AND m.id > :after ORDER BY m.id", Music.class);
+            query.setParameter("title", "%" + title.toLowerCase() + "%");
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Music::getId);
+        });
+    }
+
+    @Override
+    public Page<Music> getMusicsByGenre(String genre, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Music> query = em.createQuery("SELECT m FROM Music m WHERE m.genre = :genre AND m.id > :after ORDER BY m.id", Music.class);
+            query.setParameter("genre", genre);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Music.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Music::getId);
+        });
+    }
+
+    /**
+     * Summaries of musics, in one query and without loading any entity.
+     * @param ids ids of the musics
+     * @return summaries, in no particular order
+     */
+    @Override
+    public List<MusicSummary> findSummaries(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return uow.read(em -> em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.MusicSummary(m.id, m.title, ar.name, m.genre, m.duration, CASE WHEN TYPE(m) = ExplicitMusic THEN true ELSE false END) FROM Music m JOIN m.album al JOIN al.artist ar WHERE m.id IN :ids", MusicSummary.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    @Override
+    public Page<MusicSummary> findSummariesByArtistIds(Collection<Integer> artistIds, int afterId, int size) {
+        if (artistIds.isEmpty()) {
+            return new Page<>(List.of(), afterId, false);
+        }
+        return uow.read(em -> {
+            TypedQuery<MusicSummary> query = em.createQuery("SELECT new io.github.xico26.spotifum2.model.dto.MusicSummary(m.id, m.title, ar.name, m.genre, m.duration, CASE WHEN TYPE(m) = ExplicitMusic THEN true ELSE false END) FROM Music m JOIN m.album al JOIN al.artist ar WHERE ar.id IN :ids AND m.id > :after ORDER BY m.id", MusicSummary.class);
+            query.setParameter("ids", artistIds);
+            return Keyset.page(query, afterId, size, MusicSummary::id);
+        });
     }
-}
 
+    @Override
+    public void saveAll(Collection<Music> musics) {
+        uow.batch(musics, (em, music) -> {
+            if (music.getId() == 0) {
+                em.persist(music);
+            } else {
+                em.merge(music);
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Music> musics) {
+        uow.batch(musics, EntityManager::merge);
+    }
+
+    @Override
+    public void deleteAll(Collection<Music> musics) {
+        uow.batch(musics, (em, music) -> {
+            Music managedMusic = em.find(Music.class, music.getId());
+            if (managedMusic != null) {
+                em.remove(managedMusic);
+            }
+        });
+    }
+
+    /**
+     * Adds play count deltas to the music table with relative {@code num_plays = num_plays + ?} updates,
+     * sent as JDBC batches. Rows are updated in id order so concurrent flushes always lock them in the same order.
+     * @param deltas plays to add, by music id
+     */
+    @Override
+    public void incrementPlays(Map<Integer, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> ordered = new TreeMap<>(deltas);
+        uow.run(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE music SET num_plays = num_plays + ? WHERE id = ?")) {
+                int n = 0;
+                for (Map.Entry<Integer, Long> e : ordered.entrySet()) {
+                    ps.setLong(1, e.getValue());
+                    ps.setInt(2, e.getKey());
+                    ps.addBatch();
+                    if (++n % uow.getBatchSize() == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }));
+    }
+
+    /**
+     * Makes musics explicit or normal by changing their type in place, so ids, play counts, listening history
+     * and playlist and library membership are kept. Musics already loaded in the unit of work keep their old class.
+     * @param musicIds ids of the musics
+     * @param explicit true to make them explicit
+     * @return ids of the musics whose type changed
+     */
+    @Override
+    public List<Integer> reclassify(Collection<Integer> musicIds, boolean explicit) {
+        if (musicIds.isEmpty()) {
+            return List.of();
+        }
+        return retype("id = ANY (?)", explicit, connection -> connection.createArrayOf("integer", musicIds.toArray()));
+    }
+
+    @Override
+    public List<Integer> reclassifyAlbum(int albumId, boolean explicit) {
+        return retype("album_id = ?", explicit, connection -> albumId);
+    }
+
+    @Override
+    public List<Integer> reclassifyLabel(String label, boolean explicit) {
+        return retype("album_id IN (SELECT id FROM album WHERE label = ?)", explicit, connection -> label);
+    }
+
+    private interface Parameter {
+        Object of(Connection connection) throws SQLException;
+    }
+
+    private List<Integer> retype(String where, boolean explicit, Parameter parameter) {
+        String type = explicit ? Music.EXPLICIT : Music.NORMAL;
+        return uow.call(em -> {
+            em.flush();
+            return em.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement("UPDATE music SET type = ? WHERE " + where + " AND type <> ? RETURNING id")) {
+                    ps.setString(1, type);
+                    ps.setObject(2, parameter.of(connection));
+                    ps.setString(3, type);
+                    List<Integer> ids = new ArrayList<>();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getInt(1));
+                        }
+                    }
+                    return ids;
+                }
+            });
+        });
+    }
+
+    /**
+     * Recomputes num_plays of every music from the listening history.
+     * @return number of musics whose count changed
+     */
+    @Override
+    public int rebuildPlayCounts() {
+        return uow.call(em -> em.createNativeQuery(
+                "UPDATE music m SET num_plays = c.plays " +
+                "FROM (SELECT mu.id, COUNT(l.id) AS plays FROM music mu " +
+                "LEFT JOIN user_listened_music l ON l.music_id = mu.id GROUP BY mu.id) c " +
+                "WHERE m.id = c.id AND m.num_plays <> c.plays")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Music.class)
+                .executeUpdate());
+    }
+
+    @Override
+    public void forEachName(Consumer<NamedId> action) {
+        uow.read(em -> {
+            try (Stream<NamedId> rows = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.NamedId(x.id, x.title) FROM Music x", NamedId.class)
+                    .setHint("org.hibernate.fetchSize", 1000)
+                    .getResultStream()) {
+                rows.forEach(action);
+            }
+            return null;
+        });
+    }
+}
@@ -1,9 +1,12 @@
 package io.github.xico26.spotifum2.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.User;
-import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
 
 public interface PlaylistDAO {
@@ -11,6 +14,8 @@ public interface PlaylistDAO {
 
     List<Playlist> findAll();
 
+    Page<Playlist> findAll(int afterId, int size);
+
     void save(Playlist playlist);
 
     void update(Playlist playlist);
@@ -19,10 +24,21 @@ public interface PlaylistDAO {
 
     List<Playlist> findByUser(User user);
 
+    Page<Playlist> findByUser(User user, int afterId, int size);
+
     List<Playlist> findPublicPlaylists();
 
+    Page<Playlist> findPublicPlaylists(int afterId, int size);
+
     List<Playlist> findByTitle(String title);
 
-    List<Playlist> findAllWithMusic(Music music);
+    Page<Playlist> findByTitle(String title, int afterId, int size);
+
+    List<Playlist> findAllById(Collection<Integer> ids);
+
+    void saveAll(Collection<Playlist> playlists);
+
+    void deleteAll(Collection<Playlist> playlists);
 
+    void forEachName(Consumer<NamedId> action);
 }
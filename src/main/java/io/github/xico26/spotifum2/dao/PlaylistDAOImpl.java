@@ -1,138 +1,159 @@
 package io.github.xico26.spotifum2.dao;
 
-import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.dto.NamedId;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.User;
-import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.NoResultException;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.SpecHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PlaylistDAOImpl implements PlaylistDAO {
-    private final EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public PlaylistDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public PlaylistDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Playlist findById(int id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Playlist.class, id);
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> em.find(Playlist.class, id));
     }
 
     @Override
     public List<Playlist> findByUser(User user) {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.creator = :user", Playlist.class);
             query.setParameter("user", user);
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Playlist> findPublicPlaylists() {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.isPublic = true", Playlist.class);
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        });
     }
 
     @Override
     public List<Playlist> findByTitle(String title) {
-        EntityManager em = emf.createEntityManager();
-        try {
+        return uow.read(em -> {
             TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE LOWER(p.name) LIKE :title", Playlist.class);
             query.setParameter("title", "%" + title.toLowerCase() + "%");
             return query.getResultList();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
+        });
+    }
+
+    @Override
+    public List<Playlist> findAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.id IN :ids", Playlist.class);
+            query.setParameter("ids", ids);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return query.getResultList();
+        });
     }
 
     @Override
     public List<Playlist> findAll() {
-        EntityManager em = emf.createEntityManager();
-        List<Playlist> playlists = em.createQuery("FROM Playlist", Playlist.class).getResultList();
-        em.close();
-        return playlists;
+        return uow.read(em -> em.createQuery("FROM Playlist", Playlist.class).getResultList());
     }
 
     @Override
     public void save(Playlist p) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(p);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-        }  finally {
-            em.close();
-        }
+        uow.run(em -> {
+            if (p.getId() == 0) {
+                em.persist(p);
+            } else {
+                em.merge(p);
+            }
+        });
     }
 
     @Override
     public void delete(Playlist p) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.remove(p);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.remove(UnitOfWork.attach(em, p)));
     }
 
     @Override
     public void update(Playlist p) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.merge(p);
-            em.getTransaction().commit();
-        }  catch (Exception e) {
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
-        }
+        uow.run(em -> em.merge(p));
     }
 
     @Override
-    public List<Playlist> findAllWithMusic(Music music) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<Playlist> query = em.createQuery(
-                    "SELECT p FROM Playlist p JOIN p.musics m WHERE m = :music", Playlist.class);
-            query.setParameter("music", music);
-            return query.getResultList();
-        } catch (NoResultException e) {
+    public Page<Playlist> findAll(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.id > :after ORDER BY p.id", Playlist.class);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Playlist::getId);
+        });
+    }
+
+    @Override
+    public Page<Playlist> findByUser(User user, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.creator = :user AND p.id > :after ORDER BY p.id", Playlist.class);
+            query.setParameter("user", user);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Playlist::getId);
+        });
+    }
+
+    @Override
+    public Page<Playlist> findPublicPlaylists(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE p.isPublic = true AND p.id > :after ORDER BY p.id", Playlist.class);
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Playlist::getId);
+        });
+    }
+
+    @Override
+    public Page<Playlist> findByTitle(String title, int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<Playlist> query = em.createQuery("SELECT p FROM Playlist p WHERE LOWER(p.name) LIKE :title AND p.id > :after ORDER BY p.id", Playlist.class);
+            query.setParameter("title", "%" + title.toLowerCase() + "%");
+            query.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(Playlist.SUMMARY_GRAPH));
+            return Keyset.page(query, afterId, size, Playlist::getId);
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<Playlist> playlists) {
+        uow.batch(playlists, (em, p) -> {
+            if (p.getId() == 0) {
+                em.persist(p);
+            } else {
+                em.merge(p);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Playlist> playlists) {
+        uow.batch(playlists, (em, p) -> em.remove(UnitOfWork.attach(em, p)));
+    }
+
+    @Override
+    public void forEachName(Consumer<NamedId> action) {
+        uow.read(em -> {
+            try (Stream<NamedId> rows = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.NamedId(x.id, x.name) FROM Playlist x", NamedId.class)
+                    .setHint("org.hibernate.fetchSize", 1000)
+                    .getResultStream()) {
+                rows.forEach(action);
+            }
             return null;
-        } finally {
-            em.close();
-        }
+        });
     }
 }
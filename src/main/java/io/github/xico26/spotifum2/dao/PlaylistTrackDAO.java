@@ -0,0 +1,23 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.playlist.PlaylistTrack;
+
+import java.util.List;
+
+public interface PlaylistTrackDAO {
+    int count(int playlistId);
+
+    List<PlaylistTrack> findAfter(int playlistId, long afterPosition, int size);
+
+    List<PlaylistTrack> findAt(int playlistId, int index, int size);
+
+    boolean contains(int playlistId, int musicId);
+
+    void append(int playlistId, List<Integer> musicIds);
+
+    void insert(int playlistId, int index, int musicId);
+
+    void move(int playlistId, int from, int to);
+
+    void remove(int playlistId, int index);
+}
@@ -0,0 +1,243 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.playlist.PlaylistTrack;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.jpa.SpecHints;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Musics of playlists, in order. Every change writes only the rows it affects: tracks are spaced by
+ * {@link PlaylistTrack#GAP}, so a music inserted or moved between two others takes a position between theirs.
+ * When two neighbours have no room left between them, the playlist is renumbered once.
+ * Writes go through the JDBC connection of the unit of work and take a lock on the playlist row, so concurrent
+ * changes to the same playlist wait for each other.
+ */
+public class PlaylistTrackDAOImpl implements PlaylistTrackDAO {
+    private final UnitOfWork uow;
+
+    public PlaylistTrackDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    @Override
+    public int count(int playlistId) {
+        return uow.read(em -> em.createQuery("SELECT COUNT(t) FROM PlaylistTrack t WHERE t.playlistId = :playlist", Long.class)
+                .setParameter("playlist", playlistId)
+                .getSingleResult()
+                .intValue());
+    }
+
+    /**
+     * Tracks after a position, with their musics, albums and artists.
+     * @param playlistId id of the playlist
+     * @param afterPosition position of the last track already read, or 0 for the first
+     * @param size maximum number of tracks
+     * @return tracks in order
+     */
+    @Override
+    public List<PlaylistTrack> findAfter(int playlistId, long afterPosition, int size) {
+        return uow.read(em -> em.createQuery(
+                        "SELECT t FROM PlaylistTrack t WHERE t.playlistId = :playlist AND t.position > :after ORDER BY t.position", PlaylistTrack.class)
+                .setParameter("playlist", playlistId)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(PlaylistTrack.PLAYBACK_GRAPH))
+                .setParameter("after", afterPosition)
+                .setMaxResults(size)
+                .getResultList());
+    }
+
+    /**
+     * Tracks from an index, with their musics, albums and artists. Skips the tracks before it on the primary key;
+     * prefer {@link #findAfter} when the previous track is known.
+     * @param playlistId id of the playlist
+     * @param index index of the first track
+     * @param size maximum number of tracks
+     * @return tracks in order
+     */
+    @Override
+    public List<PlaylistTrack> findAt(int playlistId, int index, int size) {
+        return uow.read(em -> em.createQuery(
+                        "SELECT t FROM PlaylistTrack t WHERE t.playlistId = :playlist ORDER BY t.position", PlaylistTrack.class)
+                .setParameter("playlist", playlistId)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, em.getEntityGraph(PlaylistTrack.PLAYBACK_GRAPH))
+                .setFirstResult(index)
+                .setMaxResults(size)
+                .getResultList());
+    }
+
+    @Override
+    public boolean contains(int playlistId, int musicId) {
+        return uow.read(em -> !em.createQuery("SELECT t.position FROM PlaylistTrack t WHERE t.playlistId = :playlist AND t.music.id = :music", Long.class)
+                .setParameter("playlist", playlistId)
+                .setParameter("music", musicId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty());
+    }
+
+    /**
+     * Adds musics to the end of a playlist, in one batch.
+     * @param playlistId id of the playlist
+     * @param musicIds ids of the musics, in order
+     */
+    @Override
+    public void append(int playlistId, List<Integer> musicIds) {
+        if (musicIds.isEmpty()) {
+            return;
+        }
+        work(playlistId, connection -> {
+            long last = 0;
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COALESCE(MAX(position), 0) FROM playlist_music WHERE playlist_id = ?")) {
+                ps.setInt(1, playlistId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    last = rs.getLong(1);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO playlist_music (playlist_id, position, music_id) VALUES (?, ?, ?)")) {
+                for (int musicId : musicIds) {
+                    last += PlaylistTrack.GAP;
+                    ps.setInt(1, playlistId);
+                    ps.setLong(2, last);
+                    ps.setInt(3, musicId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Inserts a music before the track at an index, or at the end if the index is past the last track.
+     * @param playlistId id of the playlist
+     * @param index index the music will have
+     * @param musicId id of the music
+     */
+    @Override
+    public void insert(int playlistId, int index, int musicId) {
+        work(playlistId, connection -> {
+            insert(connection, playlistId, index, musicId);
+            return null;
+        });
+    }
+
+    /**
+     * Moves the track at an index to another index; only its row changes.
+     * @param playlistId id of the playlist
+     * @param from index of the track
+     * @param to index the track will have
+     */
+    @Override
+    public void move(int playlistId, int from, int to) {
+        work(playlistId, connection -> {
+            Integer musicId = remove(connection, playlistId, from);
+            if (musicId != null) {
+                insert(connection, playlistId, to, musicId);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(int playlistId, int index) {
+        work(playlistId, connection -> remove(connection, playlistId, index));
+    }
+
+    // returns the id of the removed music, or null if there is no track at the index
+    private static Integer remove(Connection connection, int playlistId, int index) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM playlist_music WHERE playlist_id = ? AND position = "
+                        + "(SELECT position FROM playlist_music WHERE playlist_id = ? ORDER BY position OFFSET ? LIMIT 1) RETURNING music_id")) {
+            ps.setInt(1, playlistId);
+            ps.setInt(2, playlistId);
+            ps.setInt(3, index);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private static void insert(Connection connection, int playlistId, int index, int musicId) throws SQLException {
+        long position = freePosition(connection, playlistId, index);
+        if (position < 0) {
+            renumber(connection, playlistId);
+            position = freePosition(connection, playlistId, index);
+        }
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO playlist_music (playlist_id, position, music_id) VALUES (?, ?, ?)")) {
+            ps.setInt(1, playlistId);
+            ps.setLong(2, position);
+            ps.setInt(3, musicId);
+            ps.executeUpdate();
+        }
+    }
+
+    // position between the tracks at index - 1 and index, or -1 if they are adjacent
+    private static long freePosition(Connection connection, int playlistId, int index) throws SQLException {
+        long before = 0;
+        long after = -1;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT position FROM playlist_music WHERE playlist_id = ? ORDER BY position OFFSET ? LIMIT 2")) {
+            ps.setInt(1, playlistId);
+            ps.setInt(2, Math.max(index - 1, 0));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (index == 0) {
+                    after = rs.next() ? rs.getLong(1) : -1;
+                } else {
+                    before = rs.next() ? rs.getLong(1) : -1;
+                    after = rs.next() ? rs.getLong(1) : -1;
+                }
+            }
+        }
+        if (before < 0) {
+            // past the end
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COALESCE(MAX(position), 0) FROM playlist_music WHERE playlist_id = ?")) {
+                ps.setInt(1, playlistId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1) + PlaylistTrack.GAP;
+                }
+            }
+        }
+        if (after < 0) {
+            return before + PlaylistTrack.GAP;
+        }
+        return after - before > 1 ? before + (after - before) / 2 : -1;
+    }
+
+    // spaces every track of the playlist by GAP again, keeping their order; negated first so no two rows collide
+    private static void renumber(Connection connection, int playlistId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("UPDATE playlist_music SET position = -position WHERE playlist_id = ?")) {
+            ps.setInt(1, playlistId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE playlist_music pm SET position = n.rn * ? "
+                        + "FROM (SELECT position, row_number() OVER (ORDER BY position DESC) AS rn FROM playlist_music WHERE playlist_id = ?) n "
+                        + "WHERE pm.playlist_id = ? AND pm.position = n.position")) {
+            ps.setLong(1, PlaylistTrack.GAP);
+            ps.setInt(2, playlistId);
+            ps.setInt(3, playlistId);
+            ps.executeUpdate();
+        }
+    }
+
+    // flushes pending entities (a playlist just created) and locks the playlist row before writing its tracks
+    private <T> T work(int playlistId, ReturningWork<T> work) {
+        return uow.call(em -> {
+            em.flush();
+            return em.unwrap(Session.class).doReturningWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT id FROM playlist WHERE id = ? FOR UPDATE")) {
+                    ps.setInt(1, playlistId);
+                    ps.executeQuery().close();
+                }
+                return work.execute(connection);
+            });
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.PointsEntry;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+public interface PointsLedgerDAO {
+    void saveAll(Collection<PointsEntry> entries);
+
+    Map<Integer, Long> sumBefore(LocalDateTime cutoff);
+
+    int deleteBefore(LocalDateTime cutoff, Collection<Integer> userIds);
+
+    int findMaxId();
+
+    Map<Integer, Long> sumAfter(int afterId);
+}
@@ -0,0 +1,82 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.PointsEntry;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PointsLedgerDAOImpl implements PointsLedgerDAO {
+    private final UnitOfWork uow;
+
+    public PointsLedgerDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    @Override
+    public void saveAll(Collection<PointsEntry> entries) {
+        uow.batch(entries, EntityManager::persist);
+    }
+
+    /**
+     * Sums the entries older than a cutoff, for the users with more than one such entry.
+     * @param cutoff cutoff
+     * @return sum of the deltas, by user id
+     */
+    @Override
+    public Map<Integer, Long> sumBefore(LocalDateTime cutoff) {
+        return uow.read(em -> {
+            Map<Integer, Long> sums = new HashMap<>();
+            em.createQuery("SELECT p.user.id, SUM(p.delta) FROM PointsEntry p WHERE p.createdAt < :cutoff " +
+                            "GROUP BY p.user.id HAVING COUNT(p) > 1", Object[].class)
+                    .setParameter("cutoff", cutoff)
+                    .getResultList()
+                    .forEach(row -> sums.put((Integer) row[0], (Long) row[1]));
+            return sums;
+        });
+    }
+
+    /**
+     * Deletes the entries of some users older than a cutoff.
+     * @param cutoff cutoff
+     * @param userIds users
+     * @return number of entries deleted
+     */
+    @Override
+    public int deleteBefore(LocalDateTime cutoff, Collection<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return uow.call(em -> em.createQuery("DELETE FROM PointsEntry p WHERE p.createdAt < :cutoff AND p.user.id IN :users")
+                .setParameter("cutoff", cutoff)
+                .setParameter("users", userIds)
+                .executeUpdate());
+    }
+
+    @Override
+    public int findMaxId() {
+        return uow.read(em -> em.createQuery("SELECT COALESCE(MAX(p.id), 0) FROM PointsEntry p", Integer.class).getSingleResult());
+    }
+
+    /**
+     * Sums the entries after a given id, by user. Compacted entries only regroup older ones and are left out.
+     * @param afterId last id already accounted for
+     * @return sum of the deltas, by user id
+     */
+    @Override
+    public Map<Integer, Long> sumAfter(int afterId) {
+        return uow.read(em -> {
+            Map<Integer, Long> sums = new HashMap<>();
+            em.createQuery("SELECT p.user.id, SUM(p.delta) FROM PointsEntry p WHERE p.id > :after AND p.reason <> :compacted " +
+                            "GROUP BY p.user.id", Object[].class)
+                    .setParameter("after", afterId)
+                    .setParameter("compacted", PointsEntry.COMPACTED)
+                    .getResultList()
+                    .forEach(row -> sums.put((Integer) row[0], (Long) row[1]));
+            return sums;
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.RankedEntry;
+
+import java.time.LocalDateTime;
+
+public interface StatisticsDAO {
+    long countUsers();
+
+    long countMusics();
+
+    long countAlbums();
+
+    long countPublicPlaylists();
+
+    long countArtists();
+
+    RankedEntry findMostPlayedMusic();
+
+    RankedEntry findMostListenedArtist();
+
+    RankedEntry findTopListenerSince(LocalDateTime since);
+
+    RankedEntry findMostPlayedGenre();
+
+    RankedEntry findUserWithMostPlaylists();
+}
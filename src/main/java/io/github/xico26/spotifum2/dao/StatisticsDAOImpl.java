@@ -0,0 +1,104 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.RankedEntry;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Aggregate queries for the statistics screen. Every ranking is a single GROUP BY ... ORDER BY ... LIMIT 1;
+ * music and artist rankings use the num_plays counters instead of scanning the listening history.
+ */
+public class StatisticsDAOImpl implements StatisticsDAO {
+    private final UnitOfWork uow;
+
+    public StatisticsDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    private long count(String jpql) {
+        return uow.read(em -> em.createQuery(jpql, Long.class).getSingleResult());
+    }
+
+    private RankedEntry top(String jpql) {
+        return uow.read(em -> first(em.createQuery(jpql, RankedEntry.class)));
+    }
+
+    private static RankedEntry first(TypedQuery<RankedEntry> query) {
+        List<RankedEntry> result = query.setMaxResults(1).getResultList();
+        return result.isEmpty() ? null : result.getFirst();
+    }
+
+    @Override
+    public long countUsers() {
+        return count("SELECT COUNT(u) FROM User u");
+    }
+
+    @Override
+    public long countMusics() {
+        return count("SELECT COUNT(m) FROM Music m");
+    }
+
+    @Override
+    public long countAlbums() {
+        return count("SELECT COUNT(a) FROM Album a");
+    }
+
+    @Override
+    public long countPublicPlaylists() {
+        return count("SELECT COUNT(p) FROM Playlist p WHERE p.isPublic = true");
+    }
+
+    @Override
+    public long countArtists() {
+        return count("SELECT COUNT(a) FROM Artist a");
+    }
+
+    @Override
+    public RankedEntry findMostPlayedMusic() {
+        return top("SELECT new io.github.xico26.spotifum2.model.dto.RankedEntry(m.title, CAST(m.numPlays AS Long)) " +
+                "FROM Music m ORDER BY m.numPlays DESC, m.id");
+    }
+
+    @Override
+    public RankedEntry findMostListenedArtist() {
+        return top("SELECT new io.github.xico26.spotifum2.model.dto.RankedEntry(a.name, SUM(m.numPlays)) " +
+                "FROM Music m JOIN m.album al JOIN al.artist a " +
+                "GROUP BY a.id, a.name ORDER BY SUM(m.numPlays) DESC, a.id");
+    }
+
+    /**
+     * User with the most listening records.
+     * @param since only count records from this moment on, or null for the whole history
+     * @return top listener
+     */
+    @Override
+    public RankedEntry findTopListenerSince(LocalDateTime since) {
+        return uow.read(em -> {
+            String where = since == null ? "" : "WHERE l.listenedAt >= :since ";
+            TypedQuery<RankedEntry> query = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.RankedEntry(u.username, COUNT(l)) " +
+                    "FROM ListeningRecord l JOIN l.user u " + where +
+                    "GROUP BY u.id, u.username ORDER BY COUNT(l) DESC, u.id", RankedEntry.class);
+            if (since != null) {
+                query.setParameter("since", since);
+            }
+            return first(query);
+        });
+    }
+
+    @Override
+    public RankedEntry findMostPlayedGenre() {
+        return top("SELECT new io.github.xico26.spotifum2.model.dto.RankedEntry(m.genre, SUM(m.numPlays)) " +
+                "FROM Music m GROUP BY m.genre ORDER BY SUM(m.numPlays) DESC");
+    }
+
+    @Override
+    public RankedEntry findUserWithMostPlaylists() {
+        return top("SELECT new io.github.xico26.spotifum2.model.dto.RankedEntry(u.username, COUNT(p)) " +
+                "FROM Playlist p JOIN p.creator u " +
+                "GROUP BY u.id, u.username ORDER BY COUNT(p) DESC, u.id");
+    }
+}
@@ -1,8 +1,13 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.UserPoints;
 import io.github.xico26.spotifum2.model.entity.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserDAO {
     User findByUsername(String username);
@@ -13,9 +18,25 @@ public interface UserDAO {
 
     List<User> findAll();
 
+    Page<User> findAll(int afterId, int size);
+
     void save(User user);
 
     void delete(User user);
 
     void update(User user);
+
+    int findPoints(int userId);
+
+    long count();
+
+    void forEachPoints(Consumer<UserPoints> action);
+
+    void incrementPoints(Map<Integer, Integer> deltas);
+
+    void saveAll(Collection<User> users);
+
+    void updateAll(Collection<User> users);
+
+    void deleteAll(Collection<User> users);
 }
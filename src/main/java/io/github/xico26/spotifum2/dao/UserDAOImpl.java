@@ -1,89 +1,173 @@
 package io.github.xico26.spotifum2.dao;
 
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.dto.UserPoints;
 import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 import jakarta.persistence.*;
+import org.hibernate.Session;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class UserDAOImpl implements UserDAO {
-    private EntityManagerFactory emf;
+    private final UnitOfWork uow;
 
-    public UserDAOImpl(EntityManagerFactory emf) {
-        this.emf = emf;
+    public UserDAOImpl(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public User findById(int userId) {
-        EntityManager em = emf.createEntityManager();
-        User u = em.find(User.class, userId);
-        em.close();
-        return u;
+        return uow.read(em -> em.find(User.class, userId));
     }
 
     @Override
     public List<User> findAll() {
-        EntityManager em = emf.createEntityManager();
-        List<User> users = em.createQuery("FROM User", User.class).getResultList();
-        em.close();
-        return users;
+        return uow.read(em -> em.createQuery("FROM User", User.class).getResultList());
     }
 
     @Override
     public User findByUsername(String username) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.username=:username", User.class);
-            query.setParameter("username", username);
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> {
+            try {
+                TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.username=:username", User.class);
+                query.setParameter("username", username);
+                return query.getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
     }
 
     @Override
     public User findByEmail(String email) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.email=:email", User.class);
-            query.setParameter("email", email);
-            return query.getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        } finally {
-            em.close();
-        }
+        return uow.read(em -> {
+            try {
+                TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.email=:email", User.class);
+                query.setParameter("email", email);
+                return query.getSingleResult();
+            } catch (NoResultException e) {
+                return null;
+            }
+        });
     }
 
     @Override
     public void save(User u) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.persist(u);
-        tx.commit();
-        em.close();
+        uow.run(em -> {
+            if (u.getId() == 0) {
+                em.persist(u);
+            } else {
+                em.merge(u);
+            }
+        });
     }
 
     @Override
     public void delete(User u) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.remove(u);
-        tx.commit();
-        em.close();
+        uow.run(em -> em.remove(UnitOfWork.attach(em, u)));
     }
 
     @Override
     public void update(User u) {
-        EntityManager em = emf.createEntityManager();
-        EntityTransaction tx = em.getTransaction();
-        tx.begin();
-        em.merge(u);
-        tx.commit();
-        em.close();
+        uow.run(em -> em.merge(u));
     }
 
+    /**
+     * Reads the points balance of a user without loading the user.
+     * @param userId id of the user
+     * @return points, 0 if the user does not exist
+     */
+    @Override
+    public int findPoints(int userId) {
+        return uow.read(em -> em.createQuery("SELECT u.points FROM User u WHERE u.id = :id", Integer.class)
+                .setParameter("id", userId)
+                .getResultStream()
+                .findFirst()
+                .orElse(0));
+    }
+
+    @Override
+    public long count() {
+        return uow.read(em -> em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult());
+    }
+
+    /**
+     * Streams the points of every user, without loading whole users.
+     * @param action action applied to each row
+     */
+    @Override
+    public void forEachPoints(Consumer<UserPoints> action) {
+        uow.read(em -> {
+            try (Stream<UserPoints> rows = em.createQuery(
+                    "SELECT new io.github.xico26.spotifum2.model.dto.UserPoints(u.id, u.username, u.points) FROM User u", UserPoints.class)
+                    .setHint("org.hibernate.fetchSize", 1000)
+                    .getResultStream()) {
+                rows.forEach(action);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Adds to the points of several users with relative updates, in one JDBC batch.
+     * Rows are updated in id order so concurrent batches lock them in the same order.
+     * @param deltas points to add, by user id
+     */
+    @Override
+    public void incrementPoints(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> ordered = new TreeMap<>(deltas);
+        uow.run(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE users SET points = points + ? WHERE id = ?")) {
+                int n = 0;
+                for (Map.Entry<Integer, Integer> e : ordered.entrySet()) {
+                    ps.setInt(1, e.getValue());
+                    ps.setInt(2, e.getKey());
+                    ps.addBatch();
+                    if (++n % uow.getBatchSize() == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }));
+    }
+
+    @Override
+    public Page<User> findAll(int afterId, int size) {
+        return uow.read(em -> {
+            TypedQuery<User> query = em.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class);
+            return Keyset.page(query, afterId, size, User::getId);
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<User> users) {
+        uow.batch(users, (em, u) -> {
+            if (u.getId() == 0) {
+                em.persist(u);
+            } else {
+                em.merge(u);
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<User> users) {
+        uow.batch(users, EntityManager::merge);
+    }
+
+    @Override
+    public void deleteAll(Collection<User> users) {
+        uow.batch(users, (em, u) -> em.remove(UnitOfWork.attach(em, u)));
+    }
 }
@@ -0,0 +1,71 @@
+package io.github.xico26.spotifum2.library;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Library memberships of the most recently used users, loaded on demand.
+ * Answers whether a user saved a music, album or playlist without loading the library or the saved entities.
+ */
+public class LibraryIndex {
+    private final IntFunction<LibraryMembership> loader;
+    private final LinkedHashMap<Integer, LibraryMembership> cache;
+
+    /**
+     * @param loader reads the membership of a user, or returns null if the user has no library
+     * @param capacity number of users kept
+     */
+    public LibraryIndex(IntFunction<LibraryMembership> loader, int capacity) {
+        this.loader = loader;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LibraryMembership> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Membership of a user, read on first use.
+     * @param userId id of the user
+     * @return membership, or null if the user has no library
+     */
+    public LibraryMembership get(int userId) {
+        synchronized (cache) {
+            LibraryMembership membership = cache.get(userId);
+            if (membership != null) {
+                return membership;
+            }
+        }
+        LibraryMembership loaded = loader.apply(userId);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (cache) {
+            LibraryMembership membership = cache.putIfAbsent(userId, loaded);
+            return membership != null ? membership : loaded;
+        }
+    }
+
+    /**
+     * Applies a change to every cached membership, such as a music removed from every library.
+     * @param change change
+     */
+    public void forEach(Consumer<LibraryMembership> change) {
+        List<LibraryMembership> memberships;
+        synchronized (cache) {
+            memberships = new ArrayList<>(cache.values());
+        }
+        memberships.forEach(change);
+    }
+
+    public void evict(int userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+}
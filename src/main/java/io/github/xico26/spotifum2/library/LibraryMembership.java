@@ -0,0 +1,74 @@
+package io.github.xico26.spotifum2.library;
+
+import io.github.xico26.spotifum2.model.dto.LibraryContents;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * What one user saved in their library, as sets of ids. Safe for concurrent use.
+ */
+public class LibraryMembership {
+    private final int libraryId;
+    private final RoaringBitmap musics = new RoaringBitmap();
+    private final RoaringBitmap albums = new RoaringBitmap();
+    private final Map<Integer, String> playlists = new HashMap<>();
+
+    public LibraryMembership(LibraryContents contents) {
+        this.libraryId = contents.libraryId();
+        contents.musicIds().forEach(musics::add);
+        contents.albumIds().forEach(albums::add);
+        playlists.putAll(contents.playlists());
+    }
+
+    public int getLibraryId() {
+        return libraryId;
+    }
+
+    public synchronized boolean hasMusic(int musicId) {
+        return musics.contains(musicId);
+    }
+
+    public synchronized void addMusic(int musicId) {
+        musics.add(musicId);
+    }
+
+    public synchronized void removeMusic(int musicId) {
+        musics.remove(musicId);
+    }
+
+    public synchronized boolean hasAlbum(int albumId) {
+        return albums.contains(albumId);
+    }
+
+    public synchronized void addAlbum(int albumId) {
+        albums.add(albumId);
+    }
+
+    public synchronized void removeAlbum(int albumId) {
+        albums.remove(albumId);
+    }
+
+    public synchronized boolean hasPlaylist(int playlistId) {
+        return playlists.containsKey(playlistId);
+    }
+
+    /**
+     * A saved playlist with the given name.
+     * @param name name of the playlist
+     * @return id of the playlist, if one is saved
+     */
+    public synchronized Optional<Integer> findPlaylist(String name) {
+        return playlists.entrySet().stream().filter(e -> e.getValue().equals(name)).map(Map.Entry::getKey).findFirst();
+    }
+
+    public synchronized void addPlaylist(int playlistId, String name) {
+        playlists.put(playlistId, name);
+    }
+
+    public synchronized void removePlaylist(int playlistId) {
+        playlists.remove(playlistId);
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.xico26.spotifum2.lyrics;
+
+/**
+ * Lyrics as stored in music_lyrics.
+ * @param dictionary id of the preset dictionary the body was compressed with
+ * @param lineIndex number of lines and the length in bytes of each, as varints
+ * @param body UTF-8 lines without separators, raw deflate
+ */
+public record CompressedLyrics(int dictionary, byte[] lineIndex, byte[] body) {
+}
@@ -0,0 +1,86 @@
+package io.github.xico26.spotifum2.lyrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lines of the lyrics of a music. Each iteration inflates the compressed text as it goes, one line at a time,
+ * so only the lines actually read are ever decoded. The inflater of an iteration left unfinished is released
+ * when the iterator is garbage collected.
+ */
+public class Lyrics implements Iterable<String> {
+    public static final Lyrics EMPTY = new Lyrics(new int[0], new byte[0], new byte[0]);
+
+    private final int[] lengths;
+    private final byte[] body;
+    private final byte[] dictionary;
+
+    Lyrics(int[] lengths, byte[] body, byte[] dictionary) {
+        this.lengths = lengths;
+        this.body = body;
+        this.dictionary = dictionary;
+    }
+
+    public int lineCount() {
+        return lengths.length;
+    }
+
+    public boolean isEmpty() {
+        return lengths.length == 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new LineIterator();
+    }
+
+    /**
+     * Whole text, lines separated by \n.
+     * @return text
+     */
+    @Override
+    public String toString() {
+        return String.join("\n", this);
+    }
+
+    private final class LineIterator implements Iterator<String> {
+        private Inflater inflater;
+        private int line;
+
+        @Override
+        public boolean hasNext() {
+            return line < lengths.length;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (inflater == null) {
+                inflater = new Inflater(true);
+                inflater.setInput(body);
+                inflater.setDictionary(dictionary);
+            }
+            byte[] bytes = new byte[lengths[line]];
+            try {
+                for (int n = 0; n < bytes.length; ) {
+                    int read = inflater.inflate(bytes, n, bytes.length - n);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Lyrics shorter than their line index");
+                    }
+                    n += read;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt lyrics", e);
+            }
+            if (++line == lengths.length) {
+                inflater.end();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.xico26.spotifum2.lyrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses lyrics with deflate and a preset dictionary of words and phrases common in lyrics, which most
+ * of a short text can refer back to from its first line. Each stored row names its dictionary, so a new
+ * dictionary only applies to lyrics written after it; the old one stays readable as long as its resource exists.
+ * The lines are stored without separators, next to an index of their lengths, so they can be decoded one at a
+ * time without looking for line breaks.
+ */
+public final class LyricsCodec {
+    /** Dictionary used for new lyrics, read from /lyrics/dictionary-{id}.txt. */
+    public static final int DICTIONARY = 1;
+
+    private static final ConcurrentHashMap<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    private LyricsCodec() {
+    }
+
+    /**
+     * Compresses lyrics given as one text, as they were kept in music.lyrics. A final line break does not
+     * start another line.
+     * @param text lyrics, lines separated by \n
+     * @return compressed lyrics
+     */
+    public static CompressedLyrics compress(String text) {
+        List<String> lines = new ArrayList<>(List.of(text.split("\n", -1)));
+        if (lines.getLast().isEmpty()) {
+            lines.removeLast();
+        }
+        return compress(lines);
+    }
+
+    public static CompressedLyrics compress(List<String> lines) {
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        writeVarint(index, lines.size());
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            writeVarint(index, bytes.length);
+            text.writeBytes(bytes);
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(dictionary(DICTIONARY));
+            deflater.setInput(text.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(text.size() / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                body.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return new CompressedLyrics(DICTIONARY, index.toByteArray(), body.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Lyrics that decode their lines as they are read.
+     * @param compressed compressed lyrics
+     * @return lyrics
+     */
+    public static Lyrics open(CompressedLyrics compressed) {
+        byte[] index = compressed.lineIndex();
+        int[] position = {0};
+        int[] lengths = new int[readVarint(index, position)];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = readVarint(index, position);
+        }
+        return new Lyrics(lengths, compressed.body(), dictionary(compressed.dictionary()));
+    }
+
+    static byte[] dictionary(int id) {
+        return dictionaries.computeIfAbsent(id, LyricsCodec::loadDictionary);
+    }
+
+    private static byte[] loadDictionary(int id) {
+        String name = "/lyrics/dictionary-" + id + ".txt";
+        try (InputStream in = LyricsCodec.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Lyrics dictionary not found: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] in, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * What a list of albums shows about each of them, read with one joined query instead of the album entity
+ * and its artist.
+ * @param id id of the album
+ * @param name name
+ * @param artistName name of the artist
+ * @param year year
+ */
+public record AlbumSummary(int id, String name, String artistName, int year) {
+    /**
+     * Same text as Album.toString.
+     */
+    @Override
+    public String toString() {
+        return name + " - " + artistName + " - " + year;
+    }
+}
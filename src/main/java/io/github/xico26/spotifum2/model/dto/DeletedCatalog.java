@@ -0,0 +1,15 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import java.util.List;
+
+/**
+ * What a catalog deletion removed or changed, so caches and indexes can forget it.
+ * @param artistIds ids of the deleted artists
+ * @param albumIds ids of the deleted albums
+ * @param musicIds ids of the deleted musics
+ * @param updatedArtistIds artists that lost albums but were not deleted
+ * @param updatedAlbumIds albums that lost musics but were not deleted
+ */
+public record DeletedCatalog(List<Integer> artistIds, List<Integer> albumIds, List<Integer> musicIds,
+                             List<Integer> updatedArtistIds, List<Integer> updatedAlbumIds) {
+}
@@ -0,0 +1,15 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * Position of a user in the points leaderboard.
+ * @param rank rank, starting at 1
+ * @param userId id of the user
+ * @param username username
+ * @param points points
+ */
+public record LeaderboardEntry(int rank, int userId, String username, int points) {
+    @Override
+    public String toString() {
+        return "#" + rank + " " + username + " (" + points + ")";
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids of what a user saved in their library, read without loading the saved entities.
+ * @param libraryId id of the library
+ * @param musicIds ids of the saved musics
+ * @param albumIds ids of the saved albums
+ * @param playlists names of the saved playlists, by id
+ */
+public record LibraryContents(int libraryId, List<Integer> musicIds, List<Integer> albumIds, Map<Integer, String> playlists) {
+}
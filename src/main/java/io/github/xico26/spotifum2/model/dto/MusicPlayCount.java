@@ -0,0 +1,9 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * Number of times a user listened to a music.
+ * @param musicId id of the music
+ * @param plays number of plays
+ */
+public record MusicPlayCount(int musicId, long plays) {
+}
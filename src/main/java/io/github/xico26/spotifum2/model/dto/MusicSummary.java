@@ -0,0 +1,32 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import io.github.xico26.spotifum2.model.entity.music.Music;
+
+/**
+ * What a list of musics shows about each of them, read with one joined query instead of the music entity,
+ * its lyrics, album and artist.
+ * @param id id of the music
+ * @param title title
+ * @param artistName name of the album's artist
+ * @param genre genre
+ * @param duration duration, in seconds
+ * @param explicit whether the music is explicit
+ */
+public record MusicSummary(int id, String title, String artistName, String genre, int duration, boolean explicit) {
+    /**
+     * Summary of a music already loaded, with its album and artist.
+     * @param m music
+     * @return summary
+     */
+    public static MusicSummary of(Music m) {
+        return new MusicSummary(m.getId(), m.getTitle(), m.getArtist().getName(), m.getGenre(), m.getDuration(), m.isExplicit());
+    }
+
+    /**
+     * Same text as Music.toString, or ExplicitMusic.toString for explicit musics.
+     */
+    @Override
+    public String toString() {
+        return (explicit ? "(MÚSICA EXPLÍCITA) " : "") + title + " - " + artistName + " - " + genre;
+    }
+}
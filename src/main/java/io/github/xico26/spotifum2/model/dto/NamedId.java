@@ -0,0 +1,9 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * Id and display name of an entity, used to build the search indexes without loading whole entities.
+ * @param id id
+ * @param name name or title
+ */
+public record NamedId(int id, String name) {
+}
@@ -0,0 +1,64 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of a list. The cursor is opaque to callers: for database queries it is the id of the last row
+ * returned (keyset pagination), for ranked in-memory results it is an offset. {@link #FIRST} starts a list.
+ * @param items rows of this page
+ * @param nextCursor cursor of the following page
+ * @param hasNext whether there is a following page
+ */
+public record Page<T>(List<T> items, int nextCursor, boolean hasNext) {
+    public static final int FIRST = 0;
+    public static final int DEFAULT_SIZE = 20;
+
+    /**
+     * Source of pages, e.g. a paged DAO query.
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        Page<T> fetch(int cursor, int size);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Same page with every item converted.
+     * @param f conversion
+     * @return page
+     */
+    public <R> Page<R> map(Function<T, R> f) {
+        return new Page<>(items.stream().map(f).toList(), nextCursor, hasNext);
+    }
+
+    /**
+     * Builds a page out of size + 1 rows fetched after a cursor; the extra row only tells that there is more.
+     * @param rows rows fetched (at most size + 1)
+     * @param size page size
+     * @param cursor cursor used for the fetch
+     * @param next cursor following the last row kept
+     * @return page
+     */
+    public static <T> Page<T> of(List<T> rows, int size, int cursor, ToIntFunction<T> next) {
+        boolean hasNext = rows.size() > size;
+        List<T> items = hasNext ? rows.subList(0, size) : rows;
+        return new Page<>(List.copyOf(items), items.isEmpty() ? cursor : next.applyAsInt(items.getLast()), hasNext);
+    }
+
+    /**
+     * Pages through a list that is already in memory, by offset.
+     * @param list list
+     * @return page query over the list
+     */
+    public static <T> Query<T> over(List<T> list) {
+        return (offset, size) -> {
+            int to = Math.min(list.size(), offset + size);
+            return new Page<>(List.copyOf(list.subList(Math.min(offset, to), to)), to, to < list.size());
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A finished play waiting to be written to the listening history.
+ * @param key unique key of the play, so a replayed play is written only once
+ * @param userId id of the user
+ * @param musicId id of the music
+ * @param listenedAt when the play happened
+ * @param points points earned by the play
+ * @param enqueuedAt {@link System#nanoTime()} when the play was registered, used to measure ingestion lag
+ */
+public record PlayEvent(UUID key, int userId, int musicId, LocalDateTime listenedAt, int points, long enqueuedAt) {
+}
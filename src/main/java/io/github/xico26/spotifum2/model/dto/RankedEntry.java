@@ -0,0 +1,13 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * Leader of a ranking (e.g. the most played music and its number of plays).
+ * @param name name of the leader
+ * @param value value it was ranked by
+ */
+public record RankedEntry(String name, long value) {
+    @Override
+    public String toString() {
+        return name + " (" + value + ")";
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.xico26.spotifum2.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Application-wide statistics computed at a given moment.
+ * Rankings are null when there is nothing to rank yet.
+ */
+public record StatisticsSnapshot(
+        long users,
+        long musics,
+        long albums,
+        long publicPlaylists,
+        long artists,
+        RankedEntry mostPlayedMusic,
+        RankedEntry mostListenedArtist,
+        RankedEntry topListener,
+        RankedEntry topListenerLastMonth,
+        RankedEntry mostPlayedGenre,
+        RankedEntry mostPlaylists,
+        LocalDateTime computedAt) {
+}
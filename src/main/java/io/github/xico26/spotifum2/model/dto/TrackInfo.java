@@ -0,0 +1,12 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * What the trending charts need to know about a music.
+ * @param musicId id of the music
+ * @param title title
+ * @param artistId id of the album's artist
+ * @param artistName name of the album's artist
+ * @param genre genre
+ */
+public record TrackInfo(int musicId, String title, int artistId, String artistName, String genre) {
+}
@@ -0,0 +1,10 @@
+package io.github.xico26.spotifum2.model.dto;
+
+/**
+ * Points of a user, used to build the leaderboard without loading whole users.
+ * @param userId id of the user
+ * @param username username
+ * @param points points
+ */
+public record UserPoints(int userId, String username, int points) {
+}
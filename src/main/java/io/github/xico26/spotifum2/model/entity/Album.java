@@ -2,15 +2,26 @@ package io.github.xico26.spotifum2.model.entity;
 
 import io.github.xico26.spotifum2.model.entity.music.Music;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.album")
 @Table(name="album")
+@NamedEntityGraph(name = Album.SUMMARY_GRAPH, attributeNodes = @NamedAttributeNode("artist"))
+@NamedEntityGraph(name = Album.DETAIL_GRAPH, attributeNodes = {@NamedAttributeNode("artist"), @NamedAttributeNode("musics")})
 public class Album {
+    // planos de leitura: listas de álbuns (com o artista) e página do álbum (com o artista e as músicas)
+    public static final String SUMMARY_GRAPH = "Album.summary";
+    public static final String DETAIL_GRAPH = "Album.detail";
+
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "album_seq")
+    @SequenceGenerator(name = "album_seq", sequenceName = "album_seq", allocationSize = 50)
     private int id;
 
     @Column(name="name", nullable = false)
@@ -29,6 +40,7 @@ public class Album {
     @JoinColumn(name = "artist_id", nullable = false)
     private Artist artist;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.album.musics")
     @OneToMany(mappedBy = "album", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Music> musics = new ArrayList<>();
 
@@ -159,27 +171,28 @@ public class Album {
     }
 
     /**
-     * Calcula o hashCode para álbuns
-     * @return hashCode
+     * Hash code igual para todos os álbuns, que não muda quando o álbum é guardado; não carrega o artista.
+     * @return hash code
      */
-    public int hashCode() {
-        return (int) (this.name.hashCode() + this.artist.hashCode() + this.label.hashCode() + (this.year * 13));
+    @Override
+    public final int hashCode() {
+        return Album.class.hashCode();
     }
 
     /**
-     * Implementa a igualdade entre álbuns
+     * Dois álbuns são iguais se tiverem o mesmo id.
      * @param o objeto
      * @return true / false
      */
-    public boolean equals(Object o) {
+    @Override
+    public final boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if ((o == null) || (this.getClass() != o.getClass())) {
+        if (!(o instanceof Album a)) {
             return false;
         }
-        Album a = (Album) o;
-        return (this.name.equals(a.name)) && (this.artist.equals(a.artist)) && (this.label.equals(a.label)) && this.year == a.year && this.duration == a.duration;
+        return getId() != 0 && getId() == a.getId();
     }
 
     /**
@@ -1,16 +1,21 @@
 package io.github.xico26.spotifum2.model.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.artist")
 @Table(name="artist")
 public class Artist {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "artist_seq")
+    @SequenceGenerator(name = "artist_seq", sequenceName = "artist_seq", allocationSize = 50)
     private int id;
 
     @Column(name="name", nullable=false)
@@ -25,6 +30,7 @@ public class Artist {
     @Column(name="death_date")
     private LocalDate deathDate;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.artist.albums")
     @OneToMany(mappedBy = "artist", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Album> albums = new ArrayList<>();
 
@@ -93,20 +99,19 @@ public class Artist {
     }
 
     @Override
-    public int hashCode() {
-        return this.id * 17 + this.name.hashCode() +  this.country.hashCode() + this.birthDate.hashCode() + (this.deathDate == null ? 0 : this.deathDate.hashCode());
+    public final int hashCode() {
+        return Artist.class.hashCode();
     }
 
     @Override
-    public boolean equals(Object obj) {
+    public final boolean equals(Object obj) {
         if (this == obj) {
             return true;
         }
-        if (obj == null || getClass() != obj.getClass()) {
+        if (!(obj instanceof Artist a)) {
             return false;
         }
-        Artist a =  (Artist) obj;
-        return this.id == a.id && this.name.equals(a.name) && this.country.equals(a.country);
+        return getId() != 0 && getId() == a.getId();
     }
 
     @Override
@@ -4,6 +4,7 @@ import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
 import jakarta.persistence.*;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,7 +12,8 @@ import java.util.Set;
 @Table(name="library")
 public class Library {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "library_seq")
+    @SequenceGenerator(name = "library_seq", sequenceName = "library_seq", allocationSize = 50)
     private int id;
 
     @OneToOne
@@ -69,7 +71,7 @@ public class Library {
     }
 
     public Set<Album> getAlbums() {
-        return new HashSet<>(this.savedAlbums);
+        return Collections.unmodifiableSet(this.savedAlbums);
     }
 
     public void setAlbums(Set<Album> albums) {
@@ -77,7 +79,7 @@ public class Library {
     }
 
     public Set<Music> getMusics() {
-        return new HashSet<>(this.savedMusics);
+        return Collections.unmodifiableSet(this.savedMusics);
     }
 
     public void setMusics(Set<Music> musics) {
@@ -85,7 +87,7 @@ public class Library {
     }
 
     public Set<Playlist> getPlaylists() {
-        return new HashSet<>(this.savedPlaylists);
+        return Collections.unmodifiableSet(this.savedPlaylists);
     }
 
     public void setPlaylists(Set<Playlist> playlists) {
@@ -118,27 +120,29 @@ public class Library {
 
 
     /**
-     * Calcula o hash code para uma biblioteca.
+     * Hash code igual para todas as bibliotecas, que não muda quando a biblioteca é guardada; não percorre os
+     * itens guardados.
      * @return hash code
      */
-    public int hashCode() {
-        return this.savedAlbums.hashCode() * 5 + this.savedPlaylists.hashCode() * 3;
+    @Override
+    public final int hashCode() {
+        return Library.class.hashCode();
     }
 
     /**
-     * Implementa igualdade entre bibliotecas.
+     * Duas bibliotecas são iguais se tiverem o mesmo id.
      * @param o objeto
      * @return true / false
      */
-    public boolean equals(Object o) {
+    @Override
+    public final boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if ((o == null) || (this.getClass() != o.getClass())) {
+        if (!(o instanceof Library b)) {
             return false;
         }
-        Library b = (Library) o;
-        return (this.savedAlbums.equals(b.getAlbums())) && this.savedPlaylists.equals(b.getPlaylists());
+        return getId() != 0 && getId() == b.getId();
     }
 
     /**
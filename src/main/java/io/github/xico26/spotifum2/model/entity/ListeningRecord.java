@@ -4,12 +4,23 @@ import io.github.xico26.spotifum2.model.entity.music.Music;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name="user_listened_music")
+@NamedEntityGraph(name = ListeningRecord.HISTORY_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "music", subgraph = "music"),
+        subgraphs = {
+                @NamedSubgraph(name = "music", attributeNodes = @NamedAttributeNode(value = "album", subgraph = "album")),
+                @NamedSubgraph(name = "album", attributeNodes = @NamedAttributeNode("artist"))
+        })
 public class ListeningRecord {
+    // plano de leitura do histórico: a música ouvida, com o álbum e o artista
+    public static final String HISTORY_GRAPH = "ListeningRecord.history";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_listened_music_seq")
+    @SequenceGenerator(name = "user_listened_music_seq", sequenceName = "user_listened_music_seq", allocationSize = 50)
     private int id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -23,6 +34,9 @@ public class ListeningRecord {
     @Column(name = "listened_at", nullable = false)
     private LocalDateTime listenedAt;
 
+    @Column(name = "play_key", unique = true, updatable = false)
+    private UUID playKey;
+
     public ListeningRecord() {
 
     }
@@ -71,22 +85,28 @@ public class ListeningRecord {
         this.listenedAt = listenedAt;
     }
 
+    public UUID getPlayKey() {
+        return playKey;
+    }
+
+    public void setPlayKey(UUID playKey) {
+        this.playKey = playKey;
+    }
+
     @Override
-    public int hashCode() {
-        return id * 13 + user.hashCode() +  music.hashCode() + listenedAt.hashCode();
+    public final int hashCode() {
+        return ListeningRecord.class.hashCode();
     }
 
     @Override
-    public boolean equals(Object obj) {
+    public final boolean equals(Object obj) {
         if (this == obj) {
             return true;
         }
-        if (obj == null || getClass() != obj.getClass()) {
+        if (!(obj instanceof ListeningRecord lr)) {
             return false;
         }
-
-        ListeningRecord lr = (ListeningRecord) obj;
-        return this.id == lr.getId();
+        return getId() != 0 && getId() == lr.getId();
     }
 
     @Override
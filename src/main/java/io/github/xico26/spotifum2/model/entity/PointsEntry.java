@@ -0,0 +1,71 @@
+package io.github.xico26.spotifum2.model.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada do registo de pontos: cada alteração ao saldo de um utilizador fica registada com o motivo.
+ * O saldo em users.points é a soma de todas as entradas do utilizador.
+ */
+@Entity
+@Table(name = "points_ledger")
+public class PointsEntry {
+    public static final String PLAY = "PLAY";
+    public static final String PREMIUM_UPGRADE = "PREMIUM_UPGRADE";
+    public static final String COMPACTED = "COMPACTED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "points_ledger_seq")
+    @SequenceGenerator(name = "points_ledger_seq", sequenceName = "points_ledger_seq", allocationSize = 50)
+    private int id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(name = "delta", nullable = false)
+    private int delta;
+
+    @Column(name = "reason", nullable = false)
+    private String reason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public PointsEntry() {
+
+    }
+
+    public PointsEntry(User user, int delta, String reason, LocalDateTime createdAt) {
+        this.user = user;
+        this.delta = delta;
+        this.reason = reason;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return reason + " " + (delta >= 0 ? "+" : "") + delta + " @ " + createdAt;
+    }
+}
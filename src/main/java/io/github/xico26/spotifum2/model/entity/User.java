@@ -14,7 +14,8 @@ import java.util.*;
 @Table(name= "users")
 public class User {
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private int id;
 
     @Column(name="name")
@@ -35,7 +36,8 @@ public class User {
     @Column(name="birth_date")
     private LocalDate birthDate;
 
-    @Column(name="points")
+    // atualizado apenas pelo PointsService, com incrementos relativos, para que um merge não reponha um valor antigo
+    @Column(name="points", updatable = false)
     private int points;
 
     @Column(name="is_admin")
@@ -333,27 +335,29 @@ public class User {
     }
 
     /**
-     * Calcula o hash code de um utilizador.
+     * Hash code igual para todos os utilizadores, que não muda quando o utilizador é guardado; os pontos e os
+     * restantes dados podem mudar.
      * @return hash code
      */
-    public int hashCode() {
-        return this.username.hashCode() + this.password.hashCode() + this.name.hashCode() + this.address.hashCode() + this.email.hashCode() + this.birthDate.hashCode() * this.points;
+    @Override
+    public final int hashCode() {
+        return User.class.hashCode();
     }
 
     /**
-     * Implementa igualdade entre utilizadores
+     * Dois utilizadores são iguais se tiverem o mesmo id.
      * @param o objeto
      * @return true / false
      */
-    public boolean equals(Object o) {
+    @Override
+    public final boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if ((o == null) || (this.getClass() != o.getClass())) {
+        if (!(o instanceof User u)) {
             return false;
         }
-        User u = (User) o;
-        return (this.username.equals(u.getUsername())) && (this.password.equals(u.getPassword())) && (this.name.equals(u.getName())) && (this.address.equals(u.getAddress())) && (this.email.equals(u.getEmail())) && (this.birthDate.equals(u.getBirthDate())) && this.points == u.getPoints() && this.library.equals(u.getLibrary());
+        return getId() != 0 && getId() == u.getId();
     }
 
     /**
@@ -4,7 +4,7 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 
 @Entity
-@DiscriminatorValue("EXPLICIT")
+@DiscriminatorValue(Music.EXPLICIT)
 public class ExplicitMusic extends Music implements IExplicitMusic {
     /**
      * Construtor por omissão.
@@ -34,30 +34,6 @@ public class ExplicitMusic extends Music implements IExplicitMusic {
         return "(MÚSICA EXPLÍCITA) " + super.toString();
     }
 
-    /**
-     * Calcula o hash code de uma música explícita.
-     * @return hash code
-     */
-    public int hashCode() {
-        return super.hashCode() * 7;
-    }
-
-    /**
-     * Implementa igualdade entre músicas explícitas
-     * @param o objeto
-     * @return true / false
-     */
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if ((o == null) || (this.getClass() != o.getClass())) {
-            return false;
-        }
-        ExplicitMusic m = (ExplicitMusic) o;
-        return super.equals(m) && this.isExplicit() == m.isExplicit();
-    }
-
     /**
      * Clona uma música explícita usando o construtor de cópia.
      * @return música clonada
@@ -3,14 +3,34 @@ package io.github.xico26.spotifum2.model.entity.music;
 import io.github.xico26.spotifum2.model.entity.Artist;
 import io.github.xico26.spotifum2.model.entity.Album;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+/**
+ * Música do catálogo. A letra não faz parte da entidade: está em music_lyrics e é lida pelo LyricsService,
+ * para que ler músicas nunca leia letras.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.music")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type")
+@DiscriminatorValue(Music.NORMAL)
 @Table(name="music")
+@NamedEntityGraph(name = Music.SUMMARY_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "album", subgraph = "album"),
+        subgraphs = @NamedSubgraph(name = "album", attributeNodes = @NamedAttributeNode("artist")))
 public class Music {
+    // plano de leitura de listas de músicas: álbum e artista, usados pelo toString
+    public static final String SUMMARY_GRAPH = "Music.summary";
+
+    // valores da coluna type
+    public static final String NORMAL = "Music";
+    public static final String EXPLICIT = "EXPLICIT";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "music_seq")
+    @SequenceGenerator(name = "music_seq", sequenceName = "music_seq", allocationSize = 50)
     private int id;
 
     @Column(unique = true, name="title", nullable = false)
@@ -19,13 +39,11 @@ public class Music {
     @Column(name="genre")
     private String genre;
 
-    @Column(name="lyrics", columnDefinition = "TEXT")
-    private String lyrics;
-
     @Column(name="duration")
     private int duration;
 
-    @Column(name="num_plays")
+    // atualizado apenas pelo PlayCountService, para que um merge não reponha um valor antigo
+    @Column(name="num_plays", updatable = false)
     private int numPlays;
 
     @ManyToOne(optional = false)
@@ -39,7 +57,6 @@ public class Music {
     public Music() {
         this.title = "";
         this.genre = "";
-        this.lyrics = "";
         this.duration = 0;
         this.numPlays = 0;
     }
@@ -48,13 +65,12 @@ public class Music {
      * Construtor parametrizado. Aceita:
      * @param title Nome da música
      * @param genre Género
-     * @param lyrics Letra (Array de linhas)
      * @param duration Duração
+     * @param album Álbum
      */
-    public Music(String title, String genre, String lyrics, int duration, Album album) {
+    public Music(String title, String genre, int duration, Album album) {
         this.title = title;
         this.genre = genre;
-        this.lyrics = lyrics;
         this.duration = duration;
         this.numPlays = 0;
         this.album = album;
@@ -67,7 +83,6 @@ public class Music {
     public Music(Music m) {
         this.title = m.getTitle();
         this.genre = m.getGenre();
-        this.lyrics = m.getLyrics();
         this.duration = m.getDuration();
         this.numPlays = m.getNumPlays();
         this.album = m.getAlbum();
@@ -97,14 +112,6 @@ public class Music {
         return this.genre;
     }
 
-    /**
-     * Devolve a letra da música
-     * @return letra da música
-     */
-    public String getLyrics() {
-        return this.lyrics;
-    }
-
     /**
      * Devolve a duração da música
      * @return duração da música
@@ -138,14 +145,6 @@ public class Music {
         this.genre = genero;
     }
 
-    /**
-     * Atualiza a letra da música.
-     * @param lyrics nova letra
-     */
-    public void setLyrics(String lyrics) {
-        this.lyrics = lyrics;
-    }
-
     /**
      * Atualiza a duração da música.
      * @param duracao nova duração
@@ -190,20 +189,20 @@ public class Music {
     }
 
     /**
-     * Implementa igualdade entre músicas.
+     * Duas músicas são iguais se tiverem o mesmo id, seja qual for o tipo (normal ou explícita).
+     * Músicas ainda não guardadas só são iguais a si próprias.
      * @param o objeto
      * @return true / false
      */
     @Override
-    public boolean equals (Object o) {
+    public final boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if ((o == null) || (this.getClass() != o.getClass())) {
+        if (!(o instanceof Music m)) {
             return false;
         }
-        Music m = (Music) o;
-        return this.id == m.id && (this.title.equals(m.title)) && (this.album.equals(m.album)) && (this.genre.equals(m.genre));
+        return getId() != 0 && getId() == m.getId();
     }
 
     /**
@@ -225,11 +224,12 @@ public class Music {
     }
 
     /**
-     * Calcula o hash code de uma música.
+     * Hash code igual para todas as músicas, normais ou explícitas: não muda quando a música é guardada e recebe
+     * um id, e não obriga a carregar o álbum ou o artista. A igualdade continua a ser decidida pelo id.
      * @return hash code
      */
     @Override
-    public int hashCode () {
-        return this.id * 17 + this.title.hashCode() + this.getArtist().hashCode() + this.genre.hashCode() + this.lyrics.hashCode() + this.duration * 5 + this.numPlays * 3;
+    public final int hashCode() {
+        return Music.class.hashCode();
     }
 }
@@ -1,6 +1,5 @@
 package io.github.xico26.spotifum2.model.entity.plan;
 
-import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
 import java.io.Serializable;
@@ -44,8 +43,8 @@ public class FreePlan implements ISubscriptionPlan, Serializable {
         return false;
     }
 
-    public void addPoints(Music music, User user) {
-        user.addPoints(pontosPorMusica);
+    public int pointsFor(Music music, int balance, boolean firstListen) {
+        return pontosPorMusica;
     }
 
     public static int getPontosPorMusica() {
@@ -1,6 +1,5 @@
 package io.github.xico26.spotifum2.model.entity.plan;
 
-import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
 /**
@@ -24,5 +23,12 @@ public interface ISubscriptionPlan {
 
     boolean canListenSingleMusic();
 
-    void addPoints(Music music, User user);
+    /**
+     * Pontos ganhos ao ouvir uma música.
+     * @param music música ouvida
+     * @param balance pontos atuais do utilizador
+     * @param firstListen se é a primeira vez que o utilizador ouve a música
+     * @return pontos a somar
+     */
+    int pointsFor(Music music, int balance, boolean firstListen);
 }
\ No newline at end of file
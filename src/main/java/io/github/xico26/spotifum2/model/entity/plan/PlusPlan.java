@@ -1,6 +1,5 @@
 package io.github.xico26.spotifum2.model.entity.plan;
 
-import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
 import java.io.Serializable;
@@ -40,8 +39,8 @@ public class PlusPlan implements ISubscriptionPlan, Serializable {
         return true;
     }
 
-    public void addPoints(Music music, User user) {
-        user.addPoints(pontosPorMusica);
+    public int pointsFor(Music music, int balance, boolean firstListen) {
+        return pontosPorMusica;
     }
 
     public boolean canListenCustomPlaylist() {
@@ -1,6 +1,5 @@
 package io.github.xico26.spotifum2.model.entity.plan;
 
-import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 
 import java.io.Serializable;
@@ -43,12 +42,8 @@ public class PremiumPlan implements ISubscriptionPlan, Serializable {
         return true;
     }
 
-    public void addPoints(Music music, User user) {
-        // if (!user.ouviuMusica(music)) {
-            int pontos = user.getPoints();
-            int bonus = (int)(pontos * bonusPercentual);
-            user.addPoints(bonus);
-        // }
+    public int pointsFor(Music music, int balance, boolean firstListen) {
+        return firstListen ? (int)(balance * bonusPercentual) : 0;
     }
 
     public static double getBonusPercentual() {
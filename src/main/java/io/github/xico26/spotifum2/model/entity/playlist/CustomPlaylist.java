@@ -36,30 +36,6 @@ public class CustomPlaylist extends Playlist {
         return new CustomPlaylist(this);
     }
 
-    /**
-     * Calcula o hash code de uma playlist construída.
-     * @return hash code
-     */
-    public int hashCode() {
-        return super.hashCode() * 23;
-    }
-
-    /**
-     * Implementa igualdade entre playlists construídas.
-     * @param o objeto
-     * @return true / false
-     */
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if ((o == null) || (this.getClass() != o.getClass())) {
-            return false;
-        }
-        CustomPlaylist p = (CustomPlaylist) o;
-        return super.equals(p);
-    }
-
     /**
      * Representação em String de uma playlist construída
      * @return representação em String de uma playlist.
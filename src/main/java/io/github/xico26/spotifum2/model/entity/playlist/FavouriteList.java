@@ -29,30 +29,6 @@ public class FavouriteList extends Playlist {
         return new FavouriteList(this);
     }
 
-    /**
-     * Calcula o hash code para uma lista de favoritos.
-     * @return hash code
-     */
-    public int hashCode() {
-        return super.hashCode() * 7;
-    }
-
-    /**
-     * Implementa igualdade entre listas de favoritos.
-     * @param o objeto
-     * @return true / false
-     */
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if ((o == null) || (this.getClass() != o.getClass())) {
-            return false;
-        }
-        FavouriteList f = (FavouriteList) o;
-        return super.equals(f);
-    }
-
     /**
      * Representação em String de uma lista de favoritos.
      * @return representação em String de uma playlist.
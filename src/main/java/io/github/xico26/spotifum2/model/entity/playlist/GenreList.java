@@ -29,30 +29,6 @@ public class GenreList extends Playlist {
         return new GenreList(this);
     }
 
-    /**
-     * Calcula o hash code para uma lista deste tipo.
-     * @return hash code
-     */
-    public int hashCode() {
-        return super.hashCode() * 13;
-    }
-
-    /**
-     * Implementa igualdade entre listas deste tipo.
-     * @param o objeto
-     * @return true / false
-     */
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if ((o == null) || (this.getClass() != o.getClass())) {
-            return false;
-        }
-        GenreList l = (GenreList) o;
-        return super.equals(l);
-    }
-
     /**
      * Representação em String de uma lista deste tipo.
      * @return representação em String de uma playlist.
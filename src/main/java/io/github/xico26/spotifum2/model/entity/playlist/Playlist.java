@@ -10,18 +10,23 @@ import java.util.*;
 @Table(name="playlist")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name="type")
+@NamedEntityGraph(name = Playlist.SUMMARY_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "creator", subgraph = "creator"),
+        subgraphs = @NamedSubgraph(name = "creator", attributeNodes = @NamedAttributeNode("library")))
 public abstract class Playlist {
+    // plano de leitura de listas de playlists: o criador, usado pelo toString, e a biblioteca que o acompanha
+    public static final String SUMMARY_GRAPH = "Playlist.summary";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlist_seq")
+    @SequenceGenerator(name = "playlist_seq", sequenceName = "playlist_seq", allocationSize = 50)
     private int id;
 
     @Column(name="name")
     protected String name;
 
-    @ManyToMany
-    @JoinTable(name="playlist_music",
-            joinColumns = @JoinColumn(name="playlist_id"),
-            inverseJoinColumns = @JoinColumn(name="music_id"))
+    // músicas ainda não guardadas; as de uma playlist guardada estão em playlist_music (PlaylistTrack)
+    @Transient
     protected List<Music> musics;
 
     @Column(name="is_public")
@@ -58,6 +63,10 @@ public abstract class Playlist {
         this.creator = p.getCreator();
     }
 
+    public int getId() {
+        return this.id;
+    }
+
     /**
      * Devolve o nome da playlist.
      * @return nome
@@ -67,7 +76,8 @@ public abstract class Playlist {
     }
 
     /**
-     * Devolve as músicas da playlist.
+     * Devolve as músicas da playlist que ainda não foram guardadas, como as de uma playlist gerada.
+     * As músicas de uma playlist guardada são lidas com PlaylistService.getTracks.
      * @return músicas
      */
     public List<Music> getMusics() {
@@ -84,7 +94,7 @@ public abstract class Playlist {
     }
 
     /**
-     * Adiciona música à playlist.
+     * Adiciona música à playlist; é guardada com a playlist, se esta for nova.
      * @param music música a adicionar
      */
     public void addMusic(Music music) {
@@ -122,27 +132,28 @@ public abstract class Playlist {
     public abstract Playlist clone ();
 
     /**
-     * Calcula o hash code de uma playlist.
+     * Hash code igual para todas as playlists, que não muda quando a playlist é guardada; não percorre as músicas.
      * @return hash code
      */
-    public int hashCode() {
-        return (int) (this.name.hashCode() + this.musics.hashCode()) * 17;
+    @Override
+    public final int hashCode() {
+        return Playlist.class.hashCode();
     }
 
     /**
-     * Implementa igualdade entre playlists
+     * Duas playlists são iguais se tiverem o mesmo id.
      * @param o objeto
      * @return true / false
      */
-    public boolean equals(Object o) {
+    @Override
+    public final boolean equals(Object o) {
         if (this == o) {
             return true;
         }
-        if ((o == null) || (this.getClass() != o.getClass())) {
+        if (!(o instanceof Playlist p)) {
             return false;
         }
-        Playlist p = (Playlist) o;
-        return (this.name.equals(p.getName())) && (this.isPublic == p.isPublic) && (this.musics.equals(p.getMusics()));
+        return getId() != 0 && getId() == p.getId();
     }
 
     /**
@@ -0,0 +1,80 @@
+package io.github.xico26.spotifum2.model.entity.playlist;
+
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Música numa posição de uma playlist. As posições deixam intervalos entre si ({@link #GAP}), para que inserir
+ * ou mover uma música só altere a sua linha. Só de leitura: as linhas são escritas pelo PlaylistTrackDAO.
+ */
+@Entity
+@Immutable
+@Table(name = "playlist_music")
+@IdClass(PlaylistTrack.Key.class)
+@NamedEntityGraph(name = PlaylistTrack.PLAYBACK_GRAPH,
+        attributeNodes = @NamedAttributeNode(value = "music", subgraph = "music"),
+        subgraphs = {
+                @NamedSubgraph(name = "music", attributeNodes = @NamedAttributeNode(value = "album", subgraph = "album")),
+                @NamedSubgraph(name = "album", attributeNodes = @NamedAttributeNode("artist"))
+        })
+public class PlaylistTrack {
+    // plano de leitura para tocar a playlist: a música, com o álbum e o artista
+    public static final String PLAYBACK_GRAPH = "PlaylistTrack.playback";
+    public static final long GAP = 1024;
+
+    @Id
+    @Column(name = "playlist_id")
+    private int playlistId;
+
+    @Id
+    @Column(name = "position")
+    private long position;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "music_id")
+    private Music music;
+
+    public static class Key implements Serializable {
+        private int playlistId;
+        private long position;
+
+        public Key() {
+
+        }
+
+        public Key(int playlistId, long position) {
+            this.playlistId = playlistId;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && playlistId == k.playlistId && position == k.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(playlistId, position);
+        }
+    }
+
+    public PlaylistTrack() {
+
+    }
+
+    public int getPlaylistId() {
+        return playlistId;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public Music getMusic() {
+        return music;
+    }
+}
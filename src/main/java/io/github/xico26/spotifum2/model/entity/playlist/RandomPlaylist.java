@@ -36,30 +36,6 @@ public class RandomPlaylist extends Playlist {
         return new RandomPlaylist(this);
     }
 
-    /**
-     * Calcula o hash code de uma playlist aleatória.
-     * @return hash code
-     */
-    public int hashCode() {
-        return super.hashCode() * 17;
-    }
-
-    /**
-     * Implementa igualdade entre playlists aleatórias.
-     * @param o objeto
-     * @return true / false
-     */
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if ((o == null) || (this.getClass() != o.getClass())) {
-            return false;
-        }
-        RandomPlaylist p = (RandomPlaylist) o;
-        return super.equals(p);
-    }
-
     /**
      * Representação em String de uma playlist aleatória
      * @return representação em String de uma playlist.
@@ -0,0 +1,91 @@
+package io.github.xico26.spotifum2.persistence;
+
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Second-level cache of the catalog (Music, Album, Artist and their collections).
+ * Hibernate keeps the cached entities in sync with its own writes; this class evicts what it cannot see:
+ * inverse collections whose owner was not touched and rows changed with plain SQL.
+ */
+public class CatalogCache {
+    public static final String MUSIC_REGION = "catalog.music";
+    public static final String ALBUM_REGION = "catalog.album";
+    public static final String ARTIST_REGION = "catalog.artist";
+    public static final String ALBUM_MUSICS_REGION = "catalog.album.musics";
+    public static final String ARTIST_ALBUMS_REGION = "catalog.artist.albums";
+    private static final List<String> REGIONS = List.of(MUSIC_REGION, ALBUM_REGION, ARTIST_REGION, ALBUM_MUSICS_REGION, ARTIST_ALBUMS_REGION);
+
+    private static final String ALBUM_MUSICS = Album.class.getName() + ".musics";
+    private static final String ARTIST_ALBUMS = Artist.class.getName() + ".albums";
+
+    private final Cache cache;
+    private final Statistics statistics;
+
+    public CatalogCache(EntityManagerFactory emf) {
+        SessionFactoryImplementor sf = emf.unwrap(SessionFactoryImplementor.class);
+        this.cache = sf.getCache();
+        this.statistics = sf.getStatistics();
+    }
+
+    public void evictMusic(int musicId) {
+        cache.evictEntityData(Music.class, musicId);
+    }
+
+    public void evictMusics(Collection<Integer> musicIds) {
+        musicIds.forEach(this::evictMusic);
+    }
+
+    /**
+     * Evicts an album and its list of musics.
+     * @param albumId album id
+     */
+    public void evictAlbum(int albumId) {
+        cache.evictEntityData(Album.class, albumId);
+        cache.evictCollectionData(ALBUM_MUSICS, albumId);
+    }
+
+    /**
+     * Evicts an artist and its list of albums.
+     * @param artistId artist id
+     */
+    public void evictArtist(int artistId) {
+        cache.evictEntityData(Artist.class, artistId);
+        cache.evictCollectionData(ARTIST_ALBUMS, artistId);
+    }
+
+    public void evictAll() {
+        REGIONS.forEach(cache::evictRegion);
+    }
+
+    public CacheRegionStatistics getRegionStatistics(String region) {
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String region : REGIONS) {
+            CacheRegionStatistics s = getRegionStatistics(region);
+            long lookups = s.getHitCount() + s.getMissCount();
+            sb.append(region).append(": ")
+                    .append(s.getHitCount()).append(" hits, ")
+                    .append(s.getMissCount()).append(" misses, ")
+                    .append(s.getPutCount()).append(" puts");
+            if (lookups > 0) {
+                sb.append(String.format(" (%.1f%% hit ratio)", 100.0 * s.getHitCount() / lookups));
+            }
+            sb.append('\n');
+        }
+        return sb.toString().stripTrailing();
+    }
+}
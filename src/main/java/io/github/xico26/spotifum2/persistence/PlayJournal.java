@@ -0,0 +1,308 @@
+package io.github.xico26.spotifum2.persistence;
+
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped journal of plays.
+ * Every play is written here before it is queued for the database, so plays registered while the database is slow
+ * or down survive a crash and are replayed on the next start. The journal is a series of segment files
+ * ({@code plays-<n>.log}) of fixed-size, checksummed records, plus a checkpoint with the position of the first play
+ * not yet committed to the database. Segments entirely before the checkpoint are deleted.
+ * Each play gets a unique key, so the database can tell a replayed play it already holds.
+ * Writes go to the page cache, which survives a crash of the process; segments are forced to disk on rotation and close.
+ */
+public class PlayJournal implements AutoCloseable {
+    public static final String DIRECTORY = "spotifum.journal.dir";
+    public static final String SEGMENT_RECORDS = "spotifum.journal.segmentRecords";
+    private static final String DEFAULT_DIRECTORY = "journal";
+    private static final int DEFAULT_SEGMENT_RECORDS = 65_536;
+
+    // magic, key (2 longs), user, music, epoch second, nano, points, checksum
+    static final int RECORD_BYTES = 48;
+    private static final int CHECKSUM = 44;
+    private static final int MAGIC = 0x504c4159;
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final long instance = new SecureRandom().nextLong();
+    private long sequence;
+
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+    private long commitSegment;
+    private int commitSlot;
+    private int commitCapacity;
+
+    private FileChannel writeChannel;
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment;
+    private int writeSlot;
+    private int writeCapacity;
+
+    /**
+     * Opens the journal in the {@value #DIRECTORY} directory ("journal" by default), with
+     * {@value #SEGMENT_RECORDS} plays per segment (65536 by default).
+     */
+    public PlayJournal() {
+        this(Path.of(System.getProperty(DIRECTORY, DEFAULT_DIRECTORY)), Integer.getInteger(SEGMENT_RECORDS, DEFAULT_SEGMENT_RECORDS));
+    }
+
+    /**
+     * Opens a journal, creating it if needed, and finds where the last run stopped writing.
+     * @param dir directory of the journal
+     * @param segmentRecords plays per new segment
+     */
+    public PlayJournal(Path dir, int segmentRecords) {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        try {
+            Files.createDirectories(dir);
+            TreeSet<Long> segments = listSegments();
+
+            checkpointChannel = FileChannel.open(dir.resolve(CHECKPOINT),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+            if (checkpointValid()) {
+                commitSegment = checkpoint.getLong(0);
+                commitSlot = checkpoint.getInt(8);
+            } else {
+                // no checkpoint, or torn by a crash: replay everything still on disk
+                commitSegment = segments.isEmpty() ? 0 : segments.first();
+                commitSlot = 0;
+            }
+            for (long s : segments.headSet(commitSegment)) {
+                Files.deleteIfExists(segmentPath(s));
+            }
+
+            writeSegment = segments.isEmpty() ? commitSegment : Math.max(commitSegment, segments.last());
+            openWriteSegment();
+            writeSlot = writeSegment == commitSegment ? commitSlot : 0;
+            while (writeSlot < writeCapacity && isValid(writeBuffer, writeSlot)) {
+                writeSlot++;
+            }
+            commitCapacity = capacityOf(commitSegment);
+            advanceCommit(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open play journal in " + dir, e);
+        }
+    }
+
+    /**
+     * Appends a play, with a new key.
+     * @param userId id of the user
+     * @param musicId id of the music
+     * @param listenedAt when the play happened
+     * @param points points earned by the play
+     * @return the journaled play, with its key
+     */
+    public synchronized PlayEvent append(int userId, int musicId, LocalDateTime listenedAt, int points) {
+        return append(new UUID(instance, ++sequence), userId, musicId, listenedAt, points);
+    }
+
+    /**
+     * Appends a play.
+     * @param key key of the play
+     * @param userId id of the user
+     * @param musicId id of the music
+     * @param listenedAt when the play happened
+     * @param points points earned by the play
+     * @return the journaled play
+     */
+    public synchronized PlayEvent append(UUID key, int userId, int musicId, LocalDateTime listenedAt, int points) {
+        if (writeSlot == writeCapacity) {
+            rotate();
+        }
+        int offset = writeSlot * RECORD_BYTES;
+        writeBuffer.putInt(offset, MAGIC)
+                .putLong(offset + 4, key.getMostSignificantBits())
+                .putLong(offset + 12, key.getLeastSignificantBits())
+                .putInt(offset + 20, userId)
+                .putInt(offset + 24, musicId)
+                .putLong(offset + 28, listenedAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt(offset + 36, listenedAt.getNano())
+                .putInt(offset + 40, points)
+                .putInt(offset + CHECKSUM, checksum(writeBuffer, offset));
+        writeSlot++;
+        return new PlayEvent(key, userId, musicId, listenedAt, points, System.nanoTime());
+    }
+
+    /**
+     * Reads every play not yet committed, oldest first.
+     * @return plays to replay
+     */
+    public synchronized List<PlayEvent> uncommitted() {
+        List<PlayEvent> plays = new ArrayList<>();
+        long now = System.nanoTime();
+        try {
+            for (long s = commitSegment; s <= writeSegment; s++) {
+                ByteBuffer buffer = s == writeSegment ? writeBuffer : map(s, FileChannel.MapMode.READ_ONLY);
+                int end = s == writeSegment ? writeSlot : buffer.capacity() / RECORD_BYTES;
+                for (int slot = s == commitSegment ? commitSlot : 0; slot < end && isValid(buffer, slot); slot++) {
+                    plays.add(read(buffer, slot, now));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read play journal in " + dir, e);
+        }
+        return plays;
+    }
+
+    /**
+     * Marks the oldest uncommitted plays as written to the database.
+     * Plays must be committed in the order they were appended.
+     * @param plays number of plays
+     */
+    public synchronized void commit(int plays) {
+        try {
+            advanceCommit(plays);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not update play journal checkpoint in " + dir, e);
+        }
+    }
+
+    /**
+     * Number of plays appended but not committed.
+     * @return plays
+     */
+    public synchronized long getUncommitted() {
+        if (commitSegment == writeSegment) {
+            return writeSlot - commitSlot;
+        }
+        // segments in between are full
+        long total = (commitCapacity - commitSlot) + writeSlot;
+        for (long s = commitSegment + 1; s < writeSegment; s++) {
+            total += capacityOf(s);
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writeBuffer.force();
+            checkpoint.force();
+            writeChannel.close();
+            checkpointChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close play journal in " + dir, e);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("segment=%d uncommitted=%d", writeSegment, getUncommitted());
+    }
+
+    private void advanceCommit(int plays) throws IOException {
+        commitSlot += plays;
+        while (commitSlot >= commitCapacity && commitSegment < writeSegment) {
+            commitSlot -= commitCapacity;
+            Files.deleteIfExists(segmentPath(commitSegment));
+            commitSegment++;
+            commitCapacity = commitSegment == writeSegment ? writeCapacity : capacityOf(commitSegment);
+        }
+        // slot before segment: a crash between the two writes leaves an invalid checksum, not a wrong position
+        checkpoint.putInt(8, commitSlot).putLong(0, commitSegment).putInt(12, checkpointChecksum());
+    }
+
+    private void rotate() {
+        try {
+            writeBuffer.force();
+            writeChannel.close();
+            writeSegment++;
+            openWriteSegment();
+            writeSlot = 0;
+            advanceCommit(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate play journal in " + dir, e);
+        }
+    }
+
+    private void openWriteSegment() throws IOException {
+        Path path = segmentPath(writeSegment);
+        boolean exists = Files.exists(path);
+        writeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long bytes = exists ? writeChannel.size() : (long) segmentRecords * RECORD_BYTES;
+        writeBuffer = writeChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        writeCapacity = (int) (bytes / RECORD_BYTES);
+    }
+
+    private MappedByteBuffer map(long segment, FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            return channel.map(mode, 0, channel.size());
+        }
+    }
+
+    private int capacityOf(long segment) {
+        if (segment == writeSegment) {
+            return writeCapacity;
+        }
+        try {
+            return (int) (Files.size(segmentPath(segment)) / RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Missing play journal segment " + segmentPath(segment), e);
+        }
+    }
+
+    private TreeSet<Long> listSegments() throws IOException {
+        TreeSet<Long> segments = new TreeSet<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.matches("plays-\\d+\\.log"))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(6, name.length() - 4))));
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("plays-%016d.log", segment));
+    }
+
+    private boolean checkpointValid() {
+        return checkpoint.getInt(12) == checkpointChecksum();
+    }
+
+    private int checkpointChecksum() {
+        CRC32C crc = new CRC32C();
+        crc.update(checkpoint.slice(0, 12));
+        // never zero, so an empty checkpoint file is not mistaken for a valid one
+        return (int) crc.getValue() | 1;
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int slot) {
+        int offset = slot * RECORD_BYTES;
+        return buffer.getInt(offset) == MAGIC && buffer.getInt(offset + CHECKSUM) == checksum(buffer, offset);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CHECKSUM));
+        return (int) crc.getValue();
+    }
+
+    private static PlayEvent read(ByteBuffer buffer, int slot, long now) {
+        int offset = slot * RECORD_BYTES;
+        UUID key = new UUID(buffer.getLong(offset + 4), buffer.getLong(offset + 12));
+        LocalDateTime listenedAt = LocalDateTime.ofEpochSecond(buffer.getLong(offset + 28), buffer.getInt(offset + 36), ZoneOffset.UTC);
+        return new PlayEvent(key, buffer.getInt(offset + 20), buffer.getInt(offset + 24), listenedAt, buffer.getInt(offset + 40), now);
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.xico26.spotifum2.persistence;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.github.xico26.spotifum2.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live metrics of the connection pool: connection states, acquisition wait times and timeouts.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LatencyHistogram creationTime = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long millis) {
+                creationTime.recordMillis(millis);
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long nanos) {
+                acquireTime.recordNanos(nanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long millis) {
+                usageTime.recordMillis(millis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public int getActiveConnections() {
+        return poolStats == null ? 0 : poolStats.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    public int getTotalConnections() {
+        return poolStats == null ? 0 : poolStats.getTotalConnections();
+    }
+
+    public int getMaxConnections() {
+        return poolStats == null ? 0 : poolStats.getMaxConnections();
+    }
+
+    public int getPendingThreads() {
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public LatencyHistogram getAcquireTime() {
+        return acquireTime;
+    }
+
+    public LatencyHistogram getUsageTime() {
+        return usageTime;
+    }
+
+    public LatencyHistogram getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String toString() {
+        return "Connections: " + getActiveConnections() + " active, " + getIdleConnections() + " idle, "
+                + getTotalConnections() + "/" + getMaxConnections() + " open, " + getPendingThreads() + " waiting\n"
+                + "Acquire wait: " + acquireTime + "\n"
+                + "Usage: " + usageTime + "\n"
+                + "Creation: " + creationTime + "\n"
+                + "Timeouts: " + getTimeouts();
+    }
+}
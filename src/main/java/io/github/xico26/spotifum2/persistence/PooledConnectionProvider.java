@@ -0,0 +1,119 @@
+package io.github.xico26.spotifum2.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Hibernate connection provider backed by a bounded HikariCP pool.
+ * Every {@code hibernate.hikari.*} property of the persistence unit is handed to HikariCP without the prefix
+ * (e.g. {@code hibernate.hikari.maximumPoolSize}); any of them can be overridden with a system property of the same name.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+    public static final String PREFIX = "hibernate.hikari.";
+
+    private final PoolMetrics metrics = new PoolMetrics();
+    private HikariDataSource dataSource;
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        Properties props = new Properties();
+        settings.forEach((key, value) -> {
+            if (key.startsWith(PREFIX)) {
+                props.setProperty(key.substring(PREFIX.length()), System.getProperty(key, value.toString()));
+            }
+        });
+
+        HikariConfig config = new HikariConfig(props);
+        config.setPoolName("spotifumPU");
+        config.setJdbcUrl(setting(settings, "jakarta.persistence.jdbc.url"));
+        config.setUsername(setting(settings, "jakarta.persistence.jdbc.user"));
+        config.setPassword(setting(settings, "jakarta.persistence.jdbc.password"));
+        String driver = setting(settings, "jakarta.persistence.jdbc.driver");
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+        config.setAutoCommit(false);
+        config.setMetricsTrackerFactory(metrics);
+
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    private static String setting(Map<String, Object> settings, String key) {
+        Object value = settings.get(key);
+        return System.getProperty(key, value == null ? null : value.toString());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> type) {
+        return type.isAssignableFrom(getClass()) || type.isAssignableFrom(HikariDataSource.class) || type == PoolMetrics.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> type) {
+        if (type.isAssignableFrom(getClass())) {
+            return (T) this;
+        }
+        if (type.isAssignableFrom(HikariDataSource.class)) {
+            return (T) dataSource;
+        }
+        if (type == PoolMetrics.class) {
+            return (T) metrics;
+        }
+        throw new UnknownUnwrapTypeException(type);
+    }
+
+    @Override
+    public void stop() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the pool metrics of a persistence unit configured with this provider.
+     * @param emf EntityManagerFactory
+     * @return metrics
+     */
+    public static PoolMetrics metricsOf(EntityManagerFactory emf) {
+        return emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(ConnectionProvider.class)
+                .unwrap(PoolMetrics.class);
+    }
+}
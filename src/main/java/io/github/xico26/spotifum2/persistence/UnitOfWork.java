@@ -0,0 +1,196 @@
+package io.github.xico26.spotifum2.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Unit of work shared by all DAOs.
+ * Keeps one EntityManager per thread with a single transaction spanning a whole service operation:
+ * the outermost call opens the context and commits at the end, nested calls reuse it.
+ */
+public class UnitOfWork {
+    public static final String BATCH_SIZE = "hibernate.jdbc.batch_size";
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final EntityManagerFactory emf;
+    private final ThreadLocal<EntityManager> current = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> afterCommit = ThreadLocal.withInitial(ArrayList::new);
+    private final int batchSize;
+
+    public UnitOfWork(EntityManagerFactory emf) {
+        this.emf = emf;
+        Object configured = emf.getProperties().get(BATCH_SIZE);
+        this.batchSize = configured == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(configured.toString());
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return this.emf;
+    }
+
+    /**
+     * Tells whether the current thread is inside a unit of work.
+     * @return true / false
+     */
+    public boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs a service operation in a single transaction.
+     * @param work operation
+     * @return operation result
+     */
+    public <T> T transaction(Supplier<T> work) {
+        return call(em -> work.get());
+    }
+
+    /**
+     * Runs a service operation in a single transaction.
+     * @param work operation
+     */
+    public void transaction(Runnable work) {
+        call(em -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs write work. Joins the current unit of work or opens a new one.
+     * @param work work to run
+     * @return result
+     */
+    public <T> T call(Function<EntityManager, T> work) {
+        EntityManager em = current.get();
+        if (em != null) {
+            return work.apply(em);
+        }
+
+        em = emf.createEntityManager();
+        current.set(em);
+        EntityTransaction tx = em.getTransaction();
+        T result;
+        List<Runnable> hooks = List.of();
+        try {
+            tx.begin();
+            result = work.apply(em);
+            if (tx.getRollbackOnly()) {
+                tx.rollback();
+            } else {
+                tx.commit();
+                hooks = new ArrayList<>(afterCommit.get());
+            }
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        } finally {
+            afterCommit.remove();
+            current.remove();
+            em.close();
+        }
+        // outside of the unit of work, which is over: a hook that writes opens its own, and one that fails
+        // cannot make the committed work look failed
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                System.err.println("After-commit action failed: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs an action once the current unit of work commits, or right away outside of one.
+     * Nothing runs if the unit of work rolls back. Actions run after the unit of work has closed, in the order
+     * they were added; a failing action is logged and does not stop the others.
+     * @param action action
+     */
+    public void afterCommit(Runnable action) {
+        if (isActive()) {
+            afterCommit.get().add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Runs write work without a result.
+     * @param work work to run
+     */
+    public void run(Consumer<EntityManager> work) {
+        call(em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    /**
+     * Applies an operation to every item in one transaction, flushing every {@link #getBatchSize()} items
+     * so the statements reach the database as JDBC batches. When the batch owns the unit of work the
+     * persistence context is also cleared after each flush to keep memory flat.
+     * @param items items
+     * @param op operation applied to each item
+     */
+    public <T> void batch(Collection<? extends T> items, BiConsumer<EntityManager, T> op) {
+        if (items.isEmpty()) {
+            return;
+        }
+        boolean owner = !isActive();
+        run(em -> {
+            int n = 0;
+            for (T item : items) {
+                op.accept(em, item);
+                if (++n % batchSize == 0) {
+                    em.flush();
+                    if (owner) {
+                        em.clear();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a read. Inside a unit of work it uses its EntityManager;
+     * outside of one it opens a short-lived EntityManager without a transaction.
+     * @param work read
+     * @return result
+     */
+    public <T> T read(Function<EntityManager, T> work) {
+        EntityManager em = current.get();
+        if (em != null) {
+            return work.apply(em);
+        }
+
+        em = emf.createEntityManager();
+        try {
+            return work.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Returns the managed instance of an entity, merging a detached one into the context if needed.
+     * @param em EntityManager
+     * @param entity entity
+     * @return managed entity
+     */
+    public static <T> T attach(EntityManager em, T entity) {
+        return em.contains(entity) ? entity : em.merge(entity);
+    }
+}
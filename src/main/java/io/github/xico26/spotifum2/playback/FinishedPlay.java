@@ -0,0 +1,16 @@
+package io.github.xico26.spotifum2.playback;
+
+import io.github.xico26.spotifum2.model.entity.music.Music;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A track played to the end, as handed to the play sink. Handing the same play again, after the sink failed to
+ * take it, registers it at most once: the key identifies it in the listening history.
+ * @param key key of the play, assigned when the track finished
+ * @param music music played
+ * @param listenedAt when the track finished
+ */
+public record FinishedPlay(UUID key, Music music, LocalDateTime listenedAt) {
+}
@@ -0,0 +1,268 @@
+package io.github.xico26.spotifum2.playback;
+
+import io.github.xico26.spotifum2.lyrics.Lyrics;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+
+import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Plays a queue of musics: the current track, moving next, previous or to a random track, and repeating.
+ * Explicit musics are skipped for listeners who do not want them, and going back is only allowed when the
+ * listener's plan allows it.
+ * The music and lyrics of the current track and the next few are read ahead on virtual threads, and finished
+ * tracks are handed to the play sink on a virtual thread of their own, in the order they finished, so moving
+ * between tracks does not wait for the database. Plays the sink fails to take are handed to it again with the next
+ * finished track and when the session closes; those still failing then are left in {@link #getUnregistered()}.
+ * Tracks skipped for being explicit are only looked at, never read ahead. Not thread-safe: a session belongs to
+ * one listener.
+ */
+public class PlaybackSession implements AutoCloseable {
+    private final List<Music> queue;
+    private final boolean wantsExplicit;
+    private final boolean canGoBack;
+    private final Function<Music, Lyrics> lyrics;
+    private final Consumer<FinishedPlay> sink;
+    private final int prefetch;
+    private final Random random = new Random();
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService plays = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("playback-sink").factory());
+    private final Map<Integer, CompletableFuture<PlaybackTrack>> ahead = new HashMap<>();
+    private final ConcurrentLinkedQueue<FinishedPlay> failed = new ConcurrentLinkedQueue<>();
+    private final List<FinishedPlay> unregistered = new ArrayList<>();
+    private RepeatMode repeat = RepeatMode.OFF;
+    private int position;
+
+    /**
+     * @param queue musics, in playing order; may read them lazily
+     * @param wantsExplicit whether explicit musics are played
+     * @param canGoBack whether the listener's plan allows going back
+     * @param lyrics reads the lyrics of a music
+     * @param sink called with every track played to the end; may be called again with the same play if it fails
+     * @param prefetch tracks read ahead of the current one
+     */
+    public PlaybackSession(List<Music> queue, boolean wantsExplicit, boolean canGoBack, Function<Music, Lyrics> lyrics, Consumer<FinishedPlay> sink, int prefetch) {
+        this.queue = queue;
+        this.wantsExplicit = wantsExplicit;
+        this.canGoBack = canGoBack;
+        this.lyrics = lyrics;
+        this.sink = sink;
+        this.prefetch = prefetch;
+        moveTo(find(0, 1, false));
+    }
+
+    /**
+     * Whether there is a track to play; false once the queue ends or the session is stopped.
+     * @return true / false
+     */
+    public boolean hasCurrent() {
+        return position >= 0;
+    }
+
+    /**
+     * Track being played.
+     * @return track
+     */
+    public PlaybackTrack current() {
+        return track(position);
+    }
+
+    /**
+     * Track that plays after the current one finishes, if it is not repeated.
+     * @return music, or null if the current track is the last
+     */
+    public Music upcoming() {
+        int next = find(position + 1, 1, repeat == RepeatMode.ALL);
+        return next >= 0 ? music(next) : null;
+    }
+
+    public boolean canGoBack() {
+        return canGoBack;
+    }
+
+    public RepeatMode getRepeat() {
+        return repeat;
+    }
+
+    public void setRepeat(RepeatMode repeat) {
+        this.repeat = repeat;
+    }
+
+    /**
+     * Marks the current track as played and moves to the one that follows it, or stays on it when repeating one.
+     */
+    public void finish() {
+        FinishedPlay retried;
+        while ((retried = failed.poll()) != null) {
+            register(retried);
+        }
+        register(new FinishedPlay(UUID.randomUUID(), current().music(), LocalDateTime.now()));
+        if (repeat != RepeatMode.ONE) {
+            next();
+        }
+    }
+
+    /**
+     * Skips to the next track without playing the current one. Wraps around when repeating all.
+     */
+    public void next() {
+        moveTo(find(position + 1, 1, repeat == RepeatMode.ALL));
+    }
+
+    /**
+     * Goes back to the previous track, if the plan allows it and there is one.
+     * @return true if it went back
+     */
+    public boolean previous() {
+        if (!canGoBack) {
+            return false;
+        }
+        int previous = find(position - 1, -1, false);
+        if (previous < 0) {
+            return false;
+        }
+        moveTo(previous);
+        return true;
+    }
+
+    /**
+     * Jumps to a random track other than the current one. Stays on the current track if it is the only playable one.
+     */
+    public void random() {
+        int size = queue.size();
+        if (size < 2) {
+            return;
+        }
+        int target = random.nextInt(size - 1);
+        if (target >= position) {
+            target++;
+        }
+        int found = find(target, 1, true);
+        if (found == position) {
+            found = find(position + 1, 1, true);
+        }
+        if (found >= 0 && found != position) {
+            moveTo(found);
+        }
+    }
+
+    /**
+     * Ends the session; nothing more is played.
+     */
+    public void stop() {
+        moveTo(-1);
+    }
+
+    /**
+     * Plays the sink could not take, even when handed to it again on close.
+     * @return plays, in the order they finished
+     */
+    public List<FinishedPlay> getUnregistered() {
+        return unregistered;
+    }
+
+    /**
+     * Stops reading ahead and waits for the finished tracks to reach the sink, handing it once more those it failed
+     * to take.
+     */
+    @Override
+    public void close() {
+        loader.shutdownNow();
+        plays.close();
+        for (FinishedPlay play : failed) {
+            try {
+                sink.accept(play);
+            } catch (RuntimeException e) {
+                unregistered.add(play);
+            }
+        }
+        failed.clear();
+    }
+
+    private void register(FinishedPlay play) {
+        plays.execute(() -> {
+            try {
+                sink.accept(play);
+            } catch (RuntimeException e) {
+                failed.add(play);
+            }
+        });
+    }
+
+    // first playable track from an index, stepping forward or back, or -1
+    private int find(int from, int step, boolean wrap) {
+        int size = queue.size();
+        for (int n = 0, i = from; n < size; n++, i += step) {
+            if (i < 0 || i >= size) {
+                if (!wrap) {
+                    return -1;
+                }
+                i = Math.floorMod(i, size);
+            }
+            if (isPlayable(music(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void moveTo(int index) {
+        position = index;
+        if (index < 0) {
+            ahead.values().forEach(f -> f.cancel(true));
+            ahead.clear();
+            return;
+        }
+        // keep the previous track, for going back, and read the next ones
+        ahead.entrySet().removeIf(e -> {
+            boolean kept = e.getKey() >= index - 1 && e.getKey() <= index + prefetch;
+            if (!kept) {
+                e.getValue().cancel(true);
+            }
+            return !kept;
+        });
+        for (int i = index; i <= index + prefetch && i < queue.size(); i++) {
+            load(i);
+        }
+    }
+
+    private boolean isPlayable(Music m) {
+        return wantsExplicit || !m.isExplicit();
+    }
+
+    // music at an index, from the tracks read ahead when it is one of them; reading it otherwise keeps nothing
+    private Music music(int index) {
+        return ahead.containsKey(index) ? track(index).music() : queue.get(index);
+    }
+
+    private PlaybackTrack track(int index) {
+        try {
+            return load(index).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<PlaybackTrack> load(int index) {
+        return ahead.computeIfAbsent(index, i -> CompletableFuture.supplyAsync(() -> {
+            Music m = queue.get(i);
+            boolean playable = isPlayable(m);
+            return new PlaybackTrack(m, playable ? lyrics.apply(m) : Lyrics.EMPTY, playable);
+        }, loader));
+    }
+}
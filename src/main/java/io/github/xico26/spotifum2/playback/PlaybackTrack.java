@@ -0,0 +1,13 @@
+package io.github.xico26.spotifum2.playback;
+
+import io.github.xico26.spotifum2.lyrics.Lyrics;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+
+/**
+ * A track of a playback queue, read ahead of being played.
+ * @param music music, with its album and artist
+ * @param lyrics lyrics; empty for tracks the listener does not get to hear
+ * @param playable false for explicit musics the listener does not want
+ */
+public record PlaybackTrack(Music music, Lyrics lyrics, boolean playable) {
+}
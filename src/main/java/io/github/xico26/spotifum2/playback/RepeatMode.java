@@ -0,0 +1,28 @@
+package io.github.xico26.spotifum2.playback;
+
+/**
+ * What a playback session does when a track finishes.
+ */
+public enum RepeatMode {
+    OFF("off"),
+    ALL("all"),
+    ONE("one");
+
+    private final String label;
+
+    RepeatMode(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Mode after this one, in the order off, all, one.
+     * @return next mode
+     */
+    public RepeatMode next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.xico26.spotifum2.playlist;
+
+import io.github.xico26.spotifum2.dao.PlaylistTrackDAO;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.PlaylistTrack;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Musics of a saved playlist, read in windows of consecutive tracks as they are used.
+ * Only the most recently used windows are kept, so playing or paging through a very large playlist never holds
+ * all of it in memory. A window that follows one still kept is read from the last position of that window;
+ * any other window is read by index.
+ * The size is read once: changes made to the playlist afterwards are not seen.
+ */
+public class LazyTrackList extends AbstractList<Music> implements RandomAccess {
+    private final PlaylistTrackDAO trackDAO;
+    private final int playlistId;
+    private final int size;
+    private final int windowSize;
+    private final LinkedHashMap<Integer, List<PlaylistTrack>> windows;
+
+    /**
+     * @param trackDAO tracks of the playlist
+     * @param playlistId id of the playlist
+     * @param windowSize tracks read at a time
+     * @param maxWindows windows kept
+     */
+    public LazyTrackList(PlaylistTrackDAO trackDAO, int playlistId, int windowSize, int maxWindows) {
+        this.trackDAO = trackDAO;
+        this.playlistId = playlistId;
+        this.size = trackDAO.count(playlistId);
+        this.windowSize = windowSize;
+        this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<PlaylistTrack>> eldest) {
+                return size() > maxWindows;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Music get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        List<PlaylistTrack> window = window(index / windowSize);
+        int offset = index % windowSize;
+        if (offset >= window.size()) {
+            // tracks removed since the size was read
+            throw new IndexOutOfBoundsException("Index: " + index + ", tracks left: " + (index - offset + window.size()));
+        }
+        return window.get(offset).getMusic();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private List<PlaylistTrack> window(int n) {
+        List<PlaylistTrack> window = windows.get(n);
+        if (window != null) {
+            return window;
+        }
+        List<PlaylistTrack> previous = windows.get(n - 1);
+        if (previous != null && previous.size() == windowSize) {
+            window = trackDAO.findAfter(playlistId, previous.getLast().getPosition(), windowSize);
+        } else {
+            window = trackDAO.findAt(playlistId, n * windowSize, windowSize);
+        }
+        windows.put(n, window);
+        return window;
+    }
+}
@@ -0,0 +1,305 @@
+package io.github.xico26.spotifum2.ranking;
+
+import io.github.xico26.spotifum2.model.dto.LeaderboardEntry;
+import io.github.xico26.spotifum2.model.dto.UserPoints;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Users ordered by points (most first, ties by id), in a treap whose nodes know the size of their subtree.
+ * Updating a user, the rank of a user and the user at a given rank all take O(log n); the top n and the
+ * neighbourhood of a user take O(log n + n). Safe for concurrent use: reads share a lock, updates take it exclusively.
+ */
+public class Leaderboard {
+    private final Map<Integer, Node> byUser = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    private static final class Node {
+        final int userId;
+        final String username;
+        final int points;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(int userId, String username, int points, int priority) {
+            this.userId = userId;
+            this.username = username;
+            this.points = points;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Adds a user or replaces their points.
+     * @param userId id of the user
+     * @param username username
+     * @param points points
+     */
+    public void put(int userId, String username, int points) {
+        lock.writeLock().lock();
+        try {
+            Node old = byUser.get(userId);
+            if (old != null) {
+                root = remove(root, old);
+            }
+            Node node = new Node(userId, username, points, random.nextInt());
+            byUser.put(userId, node);
+            root = insert(root, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds points to a user.
+     * @param userId id of the user
+     * @param delta points to add
+     * @return false if the user is not in the leaderboard
+     */
+    public boolean adjust(int userId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Node old = byUser.get(userId);
+            if (old == null) {
+                return false;
+            }
+            root = remove(root, old);
+            Node node = new Node(userId, old.username, old.points + delta, old.priority);
+            byUser.put(userId, node);
+            root = insert(root, node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a user.
+     * @param userId id of the user
+     */
+    public void remove(int userId) {
+        lock.writeLock().lock();
+        try {
+            Node old = byUser.remove(userId);
+            if (old != null) {
+                root = remove(root, old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank of a user.
+     * @param userId id of the user
+     * @return rank starting at 1, or 0 if the user is not in the leaderboard
+     */
+    public int rankOf(int userId) {
+        lock.readLock().lock();
+        try {
+            Node node = byUser.get(userId);
+            return node == null ? 0 : countBefore(node) + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Users with the most points.
+     * @param n number of users
+     * @return up to n users, best first
+     */
+    public List<LeaderboardEntry> top(int n) {
+        lock.readLock().lock();
+        try {
+            return range(0, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A user and the users ranked right above and below them.
+     * @param userId id of the user
+     * @param radius number of users on each side
+     * @return users around the user, best first; empty if the user is not in the leaderboard
+     */
+    public List<LeaderboardEntry> around(int userId, int radius) {
+        lock.readLock().lock();
+        try {
+            Node node = byUser.get(userId);
+            if (node == null) {
+                return List.of();
+            }
+            int index = countBefore(node);
+            int from = Math.max(0, index - radius);
+            return range(from, index + radius + 1 - from);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes every user, best first.
+     * @param out output
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(byUser.size());
+            for (LeaderboardEntry e : range(0, byUser.size())) {
+                out.writeInt(e.userId());
+                out.writeUTF(e.username());
+                out.writeInt(e.points());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads users written by {@link #writeTo(DataOutput)}.
+     * @param in input
+     * @return users
+     */
+    public static List<UserPoints> readFrom(DataInput in) throws IOException {
+        int n = in.readInt();
+        List<UserPoints> users = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            users.add(new UserPoints(in.readInt(), in.readUTF(), in.readInt()));
+        }
+        return users;
+    }
+
+    // collects up to n users starting at index from (0-based), in order
+    private List<LeaderboardEntry> range(int from, int n) {
+        List<LeaderboardEntry> entries = new ArrayList<>(Math.max(0, Math.min(n, byUser.size() - from)));
+        collect(root, from, from + n, 0, entries);
+        return entries;
+    }
+
+    private static void collect(Node node, int from, int to, int offset, List<LeaderboardEntry> out) {
+        if (node == null || from >= offset + node.size || to <= offset) {
+            return;
+        }
+        int index = offset + size(node.left);
+        collect(node.left, from, to, offset, out);
+        if (index >= from && index < to) {
+            out.add(new LeaderboardEntry(index + 1, node.userId, node.username, node.points));
+        }
+        collect(node.right, from, to, index + 1, out);
+    }
+
+    private int countBefore(Node target) {
+        int count = 0;
+        Node node = root;
+        while (node != target) {
+            if (compare(target, node) < 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count + size(target.left);
+    }
+
+    // most points first, then lowest id
+    private static int compare(Node a, Node b) {
+        int c = Integer.compare(b.points, a.points);
+        return c != 0 ? c : Integer.compare(a.userId, b.userId);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            Node[] parts = split(node, inserted);
+            inserted.left = parts[0];
+            inserted.right = parts[1];
+            return update(inserted);
+        }
+        if (compare(inserted, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return update(node);
+    }
+
+    private static Node remove(Node node, Node removed) {
+        if (node == removed) {
+            return merge(node.left, node.right);
+        }
+        if (compare(removed, node) < 0) {
+            node.left = remove(node.left, removed);
+        } else {
+            node.right = remove(node.right, removed);
+        }
+        return update(node);
+    }
+
+    // nodes before key, nodes after key
+    private static Node[] split(Node node, Node key) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(node, key) < 0) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            parts[0] = update(node);
+            return parts;
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        parts[1] = update(node);
+        return parts;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            return update(a);
+        }
+        b.left = merge(a, b.left);
+        return update(b);
+    }
+}
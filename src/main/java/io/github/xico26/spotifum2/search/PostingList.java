@@ -0,0 +1,106 @@
+package io.github.xico26.spotifum2.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of ids stored as delta-encoded varints.
+ * Appending an id greater than the last one is O(1); any other change re-encodes the list.
+ */
+final class PostingList {
+    private byte[] data = new byte[4];
+    private int length;
+    private int size;
+    private int last = -1;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an id (ids are never negative).
+     * @param id id
+     */
+    void add(int id) {
+        if (id > last) {
+            append(last < 0 ? id : id - last);
+            last = id;
+            size++;
+            return;
+        }
+        int[] ids = toArray();
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) {
+            return;
+        }
+        int[] grown = new int[ids.length + 1];
+        int at = -pos - 1;
+        System.arraycopy(ids, 0, grown, 0, at);
+        grown[at] = id;
+        System.arraycopy(ids, at, grown, at + 1, ids.length - at);
+        encode(grown);
+    }
+
+    boolean remove(int id) {
+        if (id > last) {
+            return false;
+        }
+        int[] ids = toArray();
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return false;
+        }
+        int[] shrunk = new int[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, pos);
+        System.arraycopy(ids, pos + 1, shrunk, pos, ids.length - pos - 1);
+        encode(shrunk);
+        return true;
+    }
+
+    int[] toArray() {
+        int[] ids = new int[size];
+        int pos = 0;
+        int prev = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            prev += delta;
+            ids[i] = prev;
+        }
+        return ids;
+    }
+
+    /**
+     * Size of the encoded list in bytes.
+     * @return bytes used
+     */
+    int encodedLength() {
+        return length;
+    }
+
+    private void encode(int[] ids) {
+        data = new byte[Math.max(4, ids.length * 2)];
+        length = 0;
+        size = 0;
+        last = -1;
+        for (int id : ids) {
+            add(id);
+        }
+    }
+
+    private void append(int delta) {
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+    }
+}
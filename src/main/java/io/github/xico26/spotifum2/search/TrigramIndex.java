@@ -0,0 +1,210 @@
+package io.github.xico26.spotifum2.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Substring index over the names of one kind of entity.
+ * Every name is split into trigrams; each trigram keeps the sorted ids of the names containing it in a
+ * compressed {@link PostingList}. A query intersects the lists of its trigrams and then checks the surviving
+ * names, so only real substring matches are returned. Case and accents are ignored.
+ */
+public class TrigramIndex {
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Lower-cases a name and strips its accents.
+     * @param s name
+     * @return normalized name
+     */
+    public static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String normalized) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            result.add(((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16) | normalized.charAt(i + 2));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a name to the index, replacing the previous name of the same id.
+     * @param id entity id
+     * @param name name
+     */
+    public void put(int id, String name) {
+        String normalized = normalize(name);
+        lock.writeLock().lock();
+        try {
+            String previous = names.put(id, normalized);
+            if (normalized.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            for (long t : trigrams(normalized)) {
+                postings.computeIfAbsent(t, k -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an id from the index.
+     * @param id entity id
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            String previous = names.remove(id);
+            if (previous != null) {
+                unlink(id, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlink(int id, String normalized) {
+        for (long t : trigrams(normalized)) {
+            PostingList list = postings.get(t);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(t);
+            }
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            names.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Size of all the posting lists, in bytes.
+     * @return bytes used by the posting lists
+     */
+    public long getPostingBytes() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (PostingList list : postings.values()) {
+                total += list.encodedLength();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the names containing a term. Results are ranked by where the term appears
+     * (prefix matches first), then by name length, then by id.
+     * @param term search term
+     * @param limit maximum number of results
+     * @return ids of the best matches, best first
+     */
+    public List<Integer> search(String term, int limit) {
+        String t = normalize(term);
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.reverseOrder());
+            if (t.length() < 3) {
+                // too short for a trigram: check every name, still without touching the database
+                names.forEach((id, name) -> offer(best, id, name, t, limit));
+            } else {
+                for (int id : candidates(t)) {
+                    offer(best, id, names.get(id), t, limit);
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            Collections.sort(hits);
+            return hits.stream().map(Hit::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidates(String t) {
+        List<PostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams(t)) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        int[] result = lists.getFirst().toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i).toArray());
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static void offer(PriorityQueue<Hit> best, int id, String name, String term, int limit) {
+        int pos = name.indexOf(term);
+        if (pos < 0 || limit <= 0) {
+            return;
+        }
+        Hit hit = new Hit(id, pos, name.length());
+        if (best.size() < limit) {
+            best.add(hit);
+        } else if (hit.compareTo(best.peek()) < 0) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    private record Hit(int id, int position, int length) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit o) {
+            int c = Integer.compare(position, o.position);
+            if (c == 0) c = Integer.compare(length, o.length);
+            if (c == 0) c = Integer.compare(id, o.id);
+            return c;
+        }
+    }
+}
@@ -3,87 +3,124 @@ package io.github.xico26.spotifum2.service;
 import io.github.xico26.spotifum2.dao.AlbumDAO;
 import io.github.xico26.spotifum2.exceptions.AlbumNotFoundException;
 import io.github.xico26.spotifum2.exceptions.MusicAlreadySavedException;
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
 import io.github.xico26.spotifum2.model.entity.Artist;
 import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 
 import java.util.List;
 
 public class AlbumService {
     private final AlbumDAO albumDAO;
     private final ArtistService artistService;
+    private final CatalogCache catalogCache;
+    private final SearchService searchService;
+    private final DeletionService deletionService;
+    private final UnitOfWork uow;
 
-    public AlbumService(AlbumDAO albumDAO, ArtistService artistService) {
+    public AlbumService(AlbumDAO albumDAO, ArtistService artistService, CatalogCache catalogCache, SearchService searchService, DeletionService deletionService, UnitOfWork uow) {
         this.albumDAO = albumDAO;
         this.artistService = artistService;
+        this.catalogCache = catalogCache;
+        this.searchService = searchService;
+        this.deletionService = deletionService;
+        this.uow = uow;
     }
 
     public Album findById(int id) {
         return albumDAO.findById(id);
     }
 
+    /**
+     * Album with its artist and musics loaded, for the album page.
+     * @param id id of the album
+     * @return album, or null if there is none
+     */
+    public Album findDetail(int id) {
+        return albumDAO.findDetail(id);
+    }
+
     public List<Album> findAll() {
         return albumDAO.findAll();
     }
 
-    public List<Album> searchByTitle(String title) {
-        return albumDAO.findByTitle(title);
+    public Page<Album> findAll(int afterId, int size) {
+        return albumDAO.findAll(afterId, size);
     }
 
-    public List<Album> searchByArtist(String artist) {
-        return albumDAO.findByArtist(artist);
+    public Page<AlbumSummary> searchByTitle(String title, int cursor, int size) {
+        return searchService.searchAlbums(title, cursor, size);
+    }
+
+    public Page<AlbumSummary> searchByArtist(String artist, int afterId, int size) {
+        return searchService.searchAlbumsByArtist(artist, afterId, size);
     }
 
     public void save (Album album) {
         albumDAO.save(album);
+        uow.afterCommit(() -> searchService.indexAlbum(album));
     }
 
     public void delete (Album album) {
-        albumDAO.delete(album);
+        deletionService.deleteAlbum(album);
     }
 
     public boolean hasMusic(int albumId, int musicId) throws AlbumNotFoundException {
-        Album album = albumDAO.findById(albumId);
-        if (album == null) {
-            throw new AlbumNotFoundException("Album with id " + albumId + " not found!");
-        }
-
-        if (album.getMusics() == null) {
-            return false;
-        }
-
-        return album.getMusics().stream().anyMatch(m -> m.getId() == musicId);
+        return uow.transaction(() -> {
+            Album album = albumDAO.findById(albumId);
+            if (album == null) {
+                throw new AlbumNotFoundException("Album with id " + albumId + " not found!");
+            }
+
+            if (album.getMusics() == null) {
+                return false;
+            }
+
+            return album.getMusics().stream().anyMatch(m -> m.getId() == musicId);
+        });
     }
 
     public void addMusic (int albumId, Music m) {
-        Album album = albumDAO.findById(albumId);
-        if (album == null) {
-            throw new AlbumNotFoundException("Album with id " + albumId + " not found!");
-        }
-
-        if (album.getMusics().contains(m)) {
-            throw new MusicAlreadySavedException("Music with id " + m.getId() + " already exists in the album!");
-        }
-
-        album.getMusics().add(m);
-        albumDAO.update(album);
+        uow.transaction(() -> {
+            Album album = albumDAO.findById(albumId);
+            if (album == null) {
+                throw new AlbumNotFoundException("Album with id " + albumId + " not found!");
+            }
+
+            if (album.getMusics().contains(m)) {
+                throw new MusicAlreadySavedException("Music with id " + m.getId() + " already exists in the album!");
+            }
+
+            album.getMusics().add(m);
+            albumDAO.update(album);
+            uow.afterCommit(() -> catalogCache.evictAlbum(albumId));
+        });
     }
 
     public void removeMusic (int albumId, int musicId) {
-        if (!hasMusic(albumId, musicId)) {
-            return;
-        }
-
-        Album album = albumDAO.findById(albumId);
-        album.getMusics().removeIf(m -> m.getId() == musicId);
-        albumDAO.update(album);
+        uow.transaction(() -> {
+            if (!hasMusic(albumId, musicId)) {
+                return;
+            }
+
+            Album album = albumDAO.findById(albumId);
+            album.getMusics().removeIf(m -> m.getId() == musicId);
+            albumDAO.update(album);
+            uow.afterCommit(() -> catalogCache.evictAlbum(albumId));
+        });
     }
 
     public void createAlbum(String title, String artistName, String label, int year) {
-        Artist artist = artistService.findByName(artistName);
-        Album album = new Album(title, label, year, artist);
-
-        save(album);
-        artistService.addAlbum(artist, album);
+        uow.transaction(() -> {
+            Artist artist = artistService.findByName(artistName);
+            Album album = new Album(title, label, year, artist);
+
+            save(album);
+            artistService.addAlbum(artist, album);
+            uow.afterCommit(() -> catalogCache.evictArtist(artist.getId()));
+        });
     }
 }
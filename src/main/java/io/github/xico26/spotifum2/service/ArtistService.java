@@ -9,9 +9,11 @@ import java.util.List;
 
 public class ArtistService {
     private final ArtistDAO artistDAO;
+    private final DeletionService deletionService;
 
-    public ArtistService(ArtistDAO artistDAO) {
+    public ArtistService(ArtistDAO artistDAO, DeletionService deletionService) {
         this.artistDAO = artistDAO;
+        this.deletionService = deletionService;
     }
 
     public Artist findById (int id) {
@@ -31,7 +33,7 @@ public class ArtistService {
     }
 
     public void delete(Artist artist) {
-        artistDAO.delete(artist);
+        deletionService.deleteArtist(artist);
     }
 
     public void update(Artist artist) {
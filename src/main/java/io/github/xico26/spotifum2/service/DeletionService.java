@@ -0,0 +1,81 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.DeletionDAO;
+import io.github.xico26.spotifum2.exceptions.AlbumNotFoundException;
+import io.github.xico26.spotifum2.model.dto.DeletedCatalog;
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+
+import java.util.List;
+
+/**
+ * Deletes musics, albums, artists and playlists together with every reference to them, in one transaction
+ * of bulk DELETEs (see {@link io.github.xico26.spotifum2.dao.DeletionDAOImpl}). Once it commits, the deleted
+ * entries and the albums and artists that changed are evicted from the catalog cache, the search index and the
+ * library index.
+ */
+public class DeletionService {
+    private final DeletionDAO deletionDAO;
+    private final LibraryService libraryService;
+    private final SearchService searchService;
+    private final CatalogCache catalogCache;
+    private final UnitOfWork uow;
+
+    public DeletionService(DeletionDAO deletionDAO, LibraryService libraryService, SearchService searchService, CatalogCache catalogCache, UnitOfWork uow) {
+        this.deletionDAO = deletionDAO;
+        this.libraryService = libraryService;
+        this.searchService = searchService;
+        this.catalogCache = catalogCache;
+        this.uow = uow;
+    }
+
+    public void deleteMusic(Music music) {
+        uow.transaction(() -> forget(deletionDAO.deleteMusics(List.of(music.getId()))));
+    }
+
+    public void deleteAlbum(Album album) {
+        uow.transaction(() -> {
+            DeletedCatalog deleted = deletionDAO.deleteAlbum(album.getId());
+            // every album has an artist, so no artist means there was no album
+            if (deleted.updatedArtistIds().isEmpty()) {
+                throw new AlbumNotFoundException("Album with id " + album.getId() + " not found!");
+            }
+            forget(deleted);
+        });
+    }
+
+    public void deleteArtist(Artist artist) {
+        uow.transaction(() -> forget(deletionDAO.deleteArtist(artist.getId())));
+    }
+
+    public void deletePlaylist(Playlist playlist) {
+        uow.transaction(() -> {
+            deletionDAO.deletePlaylist(playlist.getId());
+            uow.afterCommit(() -> {
+                searchService.removePlaylist(playlist.getId());
+                libraryService.forgetPlaylist(playlist.getId());
+            });
+        });
+    }
+
+    private void forget(DeletedCatalog deleted) {
+        uow.afterCommit(() -> {
+            deleted.musicIds().forEach(searchService::removeMusic);
+            deleted.albumIds().forEach(searchService::removeAlbum);
+            deleted.artistIds().forEach(searchService::removeArtist);
+
+            catalogCache.evictMusics(deleted.musicIds());
+            deleted.albumIds().forEach(catalogCache::evictAlbum);
+            deleted.updatedAlbumIds().forEach(catalogCache::evictAlbum);
+            deleted.artistIds().forEach(catalogCache::evictArtist);
+            deleted.updatedArtistIds().forEach(catalogCache::evictArtist);
+
+            libraryService.forgetMusics(deleted.musicIds());
+            libraryService.forgetAlbums(deleted.albumIds());
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.PointsLedgerDAO;
+import io.github.xico26.spotifum2.dao.UserDAO;
+import io.github.xico26.spotifum2.model.dto.LeaderboardEntry;
+import io.github.xico26.spotifum2.model.dto.UserPoints;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.ranking.Leaderboard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Points leaderboard, kept in memory and updated as points are credited.
+ * On close it is written to a snapshot file together with the last points ledger entry it includes, so the next
+ * start only reads the ledger entries written after it instead of every user. The snapshot is ignored, and the
+ * leaderboard rebuilt from the users table, when the number of users changed or the ledger may have been
+ * compacted past it.
+ */
+public class LeaderboardService implements AutoCloseable {
+    public static final String SNAPSHOT = "spotifum.leaderboard.snapshot";
+    private static final String DEFAULT_SNAPSHOT = "leaderboard.snapshot";
+    private static final int MAGIC = 0x4c424431;
+
+    private final UserDAO userDAO;
+    private final PointsLedgerDAO ledgerDAO;
+    private final Path snapshot;
+    private volatile Leaderboard board = new Leaderboard();
+
+    public LeaderboardService(UserDAO userDAO, PointsLedgerDAO ledgerDAO) {
+        this.userDAO = userDAO;
+        this.ledgerDAO = ledgerDAO;
+        this.snapshot = Path.of(System.getProperty(SNAPSHOT, DEFAULT_SNAPSHOT));
+    }
+
+    /**
+     * Loads the leaderboard from the snapshot, or from the users table if the snapshot cannot be used.
+     * The snapshot file comes from the {@value #SNAPSHOT} system property ("leaderboard.snapshot" by default).
+     */
+    public void load() {
+        try {
+            if (loadSnapshot()) {
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read leaderboard snapshot: " + e.getMessage());
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the leaderboard from the points of every user.
+     */
+    public void rebuild() {
+        Leaderboard b = new Leaderboard();
+        userDAO.forEachPoints(u -> b.put(u.userId(), u.username(), u.points()));
+        this.board = b;
+    }
+
+    private boolean loadSnapshot() throws IOException {
+        if (!Files.exists(snapshot)) {
+            return false;
+        }
+        int watermark;
+        List<UserPoints> users;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != MAGIC) {
+                return false;
+            }
+            watermark = in.readInt();
+            Instant writtenAt = Instant.ofEpochMilli(in.readLong());
+            // compaction may have folded entries newer than the watermark into entries it skips
+            if (writtenAt.isBefore(Instant.now().minus(PointsService.getRetention()))) {
+                return false;
+            }
+            users = Leaderboard.readFrom(in);
+        }
+        if (users.size() != userDAO.count()) {
+            return false;
+        }
+
+        Leaderboard b = new Leaderboard();
+        users.forEach(u -> b.put(u.userId(), u.username(), u.points()));
+        for (Map.Entry<Integer, Long> e : ledgerDAO.sumAfter(watermark).entrySet()) {
+            if (!b.adjust(e.getKey(), Math.toIntExact(e.getValue()))) {
+                return false;
+            }
+        }
+        this.board = b;
+        return true;
+    }
+
+    /**
+     * Writes the snapshot. Must run when no points are being credited.
+     */
+    public void save() throws IOException {
+        int watermark = ledgerDAO.findMaxId();
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(watermark);
+            out.writeLong(System.currentTimeMillis());
+            board.writeTo(out);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds committed points to a user. A user not yet in the leaderboard is read from the database.
+     * @param userId id of the user
+     * @param delta points
+     */
+    public void addPoints(int userId, int delta) {
+        if (!board.adjust(userId, delta)) {
+            User u = userDAO.findById(userId);
+            if (u != null) {
+                board.put(userId, u.getUsername(), userDAO.findPoints(userId));
+            }
+        }
+    }
+
+    public void addUser(User u) {
+        board.put(u.getId(), u.getUsername(), 0);
+    }
+
+    public void removeUser(User u) {
+        board.remove(u.getId());
+    }
+
+    public List<LeaderboardEntry> getTop(int n) {
+        return board.top(n);
+    }
+
+    public LeaderboardEntry getLeader() {
+        List<LeaderboardEntry> top = board.top(1);
+        return top.isEmpty() ? null : top.getFirst();
+    }
+
+    public int getRank(User u) {
+        return board.rankOf(u.getId());
+    }
+
+    public List<LeaderboardEntry> getAround(User u, int radius) {
+        return board.around(u.getId(), radius);
+    }
+
+    /**
+     * Writes the snapshot for the next start.
+     */
+    @Override
+    public void close() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not write leaderboard snapshot: " + e.getMessage());
+        }
+    }
+}
@@ -4,116 +4,181 @@ import io.github.xico26.spotifum2.dao.LibraryDAO;
 import io.github.xico26.spotifum2.exceptions.AlbumAlreadySavedException;
 import io.github.xico26.spotifum2.exceptions.MusicAlreadySavedException;
 import io.github.xico26.spotifum2.exceptions.PlaylistAlreadySavedException;
+import io.github.xico26.spotifum2.library.LibraryIndex;
+import io.github.xico26.spotifum2.library.LibraryMembership;
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.LibraryContents;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
 import io.github.xico26.spotifum2.model.entity.Library;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 
-import java.util.List;
+import java.util.Collection;
 
+/**
+ * Users' libraries.
+ * Whether a user saved something is answered from a {@link LibraryIndex} of ids, and saving or removing writes
+ * only the affected library_saved_* row; the library itself is never loaded or merged for it.
+ * The index keeps the {@value #CACHE_SIZE} most recently used users (1000 by default).
+ */
 public class LibraryService {
+    public static final String CACHE_SIZE = "spotifum.library.cacheSize";
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
     private final LibraryDAO libraryDAO;
+    private final UnitOfWork uow;
+    private final LibraryIndex index;
 
-    public LibraryService(LibraryDAO libraryDAO) {
+    public LibraryService(LibraryDAO libraryDAO, UnitOfWork uow) {
         this.libraryDAO = libraryDAO;
+        this.uow = uow;
+        this.index = new LibraryIndex(userId -> {
+            LibraryContents contents = libraryDAO.findContents(userId);
+            return contents == null ? null : new LibraryMembership(contents);
+        }, Integer.getInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE));
     }
 
     public Library getUserLibrary (User u) {
         return libraryDAO.findByUser(u);
     }
 
+    public Page<MusicSummary> getSavedMusics (User u, int afterId, int size) {
+        return libraryDAO.findSavedMusics(u, afterId, size);
+    }
+
+    public Page<AlbumSummary> getSavedAlbums (User u, int afterId, int size) {
+        return libraryDAO.findSavedAlbums(u, afterId, size);
+    }
+
+    public Page<Playlist> getSavedPlaylists (User u, int afterId, int size) {
+        return libraryDAO.findSavedPlaylists(u, afterId, size);
+    }
+
+    private LibraryMembership membership (User u) {
+        LibraryMembership membership = index.get(u.getId());
+        if (membership == null) {
+            throw new IllegalStateException("User " + u.getUsername() + " has no library");
+        }
+        return membership;
+    }
+
     public boolean hasMusic (User u, Music m) {
-        Library library = getUserLibrary(u);
-        return library.getMusics().contains(m);
+        return membership(u).hasMusic(m.getId());
     }
 
     public void addMusic (User u, Music m) {
-        Library library = getUserLibrary(u);
-        if (!library.getMusics().contains(m)) {
-            library.addMusic(m);
-            libraryDAO.update(library);
-        } else {
-            throw new MusicAlreadySavedException("Music already saved!");
-        }
+        uow.transaction(() -> {
+            LibraryMembership library = membership(u);
+            if (library.hasMusic(m.getId())) {
+                throw new MusicAlreadySavedException("Music already saved!");
+            }
+            libraryDAO.addMusic(library.getLibraryId(), m.getId());
+            uow.afterCommit(() -> library.addMusic(m.getId()));
+        });
     }
 
     public void removeMusic (User u, Music m) {
-        Library library = getUserLibrary(u);
-        if (library.getMusics().contains(m)) {
-            library.removeMusic(m);
-            libraryDAO.update(library);
+        uow.transaction(() -> {
+            LibraryMembership library = membership(u);
+            if (library.hasMusic(m.getId())) {
+                libraryDAO.removeMusic(library.getLibraryId(), m.getId());
+                uow.afterCommit(() -> library.removeMusic(m.getId()));
+            }
+        });
+    }
+
+    /**
+     * Forgets deleted musics in every cached library; their rows are removed by the {@link DeletionService}.
+     * @param musicIds ids of the musics
+     */
+    public void forgetMusics (Collection<Integer> musicIds) {
+        if (!musicIds.isEmpty()) {
+            index.forEach(library -> musicIds.forEach(library::removeMusic));
         }
     }
 
-    public void addAlbum(User user, Album album) {
-        Library library = libraryDAO.findByUser(user);
-        if (!library.getAlbums().contains(album)) {
-            library.addAlbum(album);
-            libraryDAO.update(library);
-        } else {
-            throw new AlbumAlreadySavedException("Album already saved!");
+    public void forgetAlbums (Collection<Integer> albumIds) {
+        if (!albumIds.isEmpty()) {
+            index.forEach(library -> albumIds.forEach(library::removeAlbum));
         }
     }
 
+    public void addAlbum(User user, Album album) {
+        uow.transaction(() -> {
+            LibraryMembership library = membership(user);
+            if (library.hasAlbum(album.getId())) {
+                throw new AlbumAlreadySavedException("Album already saved!");
+            }
+            libraryDAO.addAlbum(library.getLibraryId(), album.getId());
+            uow.afterCommit(() -> library.addAlbum(album.getId()));
+        });
+    }
+
     public void removeAlbum(User user, Album album) {
-        Library library = libraryDAO.findByUser(user);
-        if (library.getAlbums().contains(album)) {
-            library.removeAlbum(album);
-            libraryDAO.update(library);
-        }
+        uow.transaction(() -> {
+            LibraryMembership library = membership(user);
+            if (library.hasAlbum(album.getId())) {
+                libraryDAO.removeAlbum(library.getLibraryId(), album.getId());
+                uow.afterCommit(() -> library.removeAlbum(album.getId()));
+            }
+        });
     }
 
     public boolean hasAlbum(User u, Album album) {
-        Library library = getUserLibrary(u);
-        return library.getAlbums().contains(album);
+        return membership(u).hasAlbum(album.getId());
     }
 
     public void addPlaylist(User user, Playlist playlist) {
-        Library library = libraryDAO.findByUser(user);
-        if (!library.getPlaylists().contains(playlist)) {
-            library.addPlaylist(playlist);
-            libraryDAO.update(library);
-        } else {
-            throw new PlaylistAlreadySavedException("Playlist already saved!");
-        }
+        uow.transaction(() -> {
+            LibraryMembership library = membership(user);
+            if (library.hasPlaylist(playlist.getId())) {
+                throw new PlaylistAlreadySavedException("Playlist already saved!");
+            }
+            libraryDAO.addPlaylist(library.getLibraryId(), playlist.getId());
+            uow.afterCommit(() -> library.addPlaylist(playlist.getId(), playlist.getName()));
+        });
     }
 
     public void removePlaylist(User user, Playlist playlist) {
-        Library library = libraryDAO.findByUser(user);
-        if (library.getPlaylists().contains(playlist)) {
-            library.removePlaylist(playlist);
-            libraryDAO.update(library);
-        }
+        uow.transaction(() -> {
+            LibraryMembership library = membership(user);
+            if (library.hasPlaylist(playlist.getId())) {
+                libraryDAO.removePlaylist(library.getLibraryId(), playlist.getId());
+                uow.afterCommit(() -> library.removePlaylist(playlist.getId()));
+            }
+        });
+    }
+
+    public void forgetPlaylist (int playlistId) {
+        index.forEach(library -> library.removePlaylist(playlistId));
     }
 
     public boolean hasPlaylist(User u, Playlist playlist) {
-        Library library = getUserLibrary(u);
-        return library.getPlaylists().contains(playlist);
+        return membership(u).hasPlaylist(playlist.getId());
     }
 
     public boolean hasPlaylistByName (User u, String name) {
-        Library library = getUserLibrary(u);
-        return library.getPlaylists().stream().anyMatch(p -> p.getName().equals(name));
+        return membership(u).findPlaylist(name).isPresent();
     }
 
     public void removePlaylistByName (User u, String name) {
-        Library library = getUserLibrary(u);
-        if (hasPlaylistByName(u, name)) {
-            library.removePlaylist(library.getPlaylists().stream().filter(p -> p.getName().equals(name)).findFirst().get());
-            libraryDAO.update(library);
-        }
-    }
-
-    public List<Library> findAllWithMusic (Music music) {
-        return libraryDAO.findAllWithMusic(music);
-    }
-
-    public List<Library> findAllWithPlaylist (Playlist playlist) {
-        return libraryDAO.findAllWithPlaylist(playlist);
+        uow.transaction(() -> {
+            LibraryMembership library = membership(u);
+            library.findPlaylist(name).ifPresent(playlistId -> {
+                libraryDAO.removePlaylist(library.getLibraryId(), playlistId);
+                uow.afterCommit(() -> library.removePlaylist(playlistId));
+            });
+        });
     }
 
     public void save (Library library) {
         libraryDAO.save(library);
+        if (library.getUser() != null) {
+            uow.afterCommit(() -> index.evict(library.getUser().getId()));
+        }
     }
 }
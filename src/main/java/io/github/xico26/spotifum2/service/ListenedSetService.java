@@ -0,0 +1,172 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.ListenedSetDAO;
+import io.github.xico26.spotifum2.dao.ListeningRecordDAO;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Musics each user has listened to, as a compressed bitmap of music ids.
+ * Bitmaps are loaded on first use, from user_listened_set or else from the listening history, and the least
+ * recently used are dropped once more than {@value #CACHE_SIZE} users are cached. Plays mark their music as soon
+ * as they are registered; the bitmaps they changed are written with the plays, and are never dropped before that.
+ */
+public class ListenedSetService {
+    public static final String CACHE_SIZE = "spotifum.listened.cacheSize";
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private final ListenedSetDAO listenedSetDAO;
+    private final ListeningRecordDAO lrDAO;
+    private final UnitOfWork uow;
+    // users whose bitmap changed since it was last written, with the number of changes
+    private final Map<Integer, Integer> dirty = new HashMap<>();
+    private final LinkedHashMap<Integer, RoaringBitmap> cache;
+
+    public ListenedSetService(ListenedSetDAO listenedSetDAO, ListeningRecordDAO lrDAO, UnitOfWork uow) {
+        this.listenedSetDAO = listenedSetDAO;
+        this.lrDAO = lrDAO;
+        this.uow = uow;
+        int cacheSize = Integer.getInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, RoaringBitmap> eldest) {
+                return size() > cacheSize && !dirty.containsKey(eldest.getKey());
+            }
+        };
+    }
+
+    /**
+     * Marks a music as listened by a user.
+     * @param userId id of the user
+     * @param musicId id of the music
+     * @return true if the user had never listened to it
+     */
+    public boolean markListened(int userId, int musicId) {
+        RoaringBitmap bitmap = get(userId);
+        boolean added;
+        synchronized (bitmap) {
+            added = bitmap.checkedAdd(musicId);
+        }
+        if (added) {
+            synchronized (cache) {
+                dirty.merge(userId, 1, Integer::sum);
+            }
+        }
+        return added;
+    }
+
+    public boolean hasListened(int userId, int musicId) {
+        RoaringBitmap bitmap = get(userId);
+        synchronized (bitmap) {
+            return bitmap.contains(musicId);
+        }
+    }
+
+    /**
+     * Number of different musics a user has listened to.
+     * @param userId id of the user
+     * @return musics
+     */
+    public int countUnique(int userId) {
+        RoaringBitmap bitmap = get(userId);
+        synchronized (bitmap) {
+            return bitmap.getCardinality();
+        }
+    }
+
+    /**
+     * Writes the changed bitmaps of some users. Runs in the caller's unit of work; a bitmap changed again
+     * before it commits stays marked as changed.
+     * @param userIds ids of the users
+     */
+    public void persist(Collection<Integer> userIds) {
+        Map<Integer, Integer> versions = new HashMap<>();
+        Map<Integer, RoaringBitmap> changed = new HashMap<>();
+        synchronized (cache) {
+            for (Integer userId : userIds) {
+                Integer version = dirty.get(userId);
+                if (version != null) {
+                    versions.put(userId, version);
+                    changed.put(userId, cache.get(userId));
+                }
+            }
+        }
+        Map<Integer, byte[]> blobs = new HashMap<>();
+        changed.forEach((userId, bitmap) -> {
+            synchronized (bitmap) {
+                blobs.put(userId, serialize(bitmap));
+            }
+        });
+        listenedSetDAO.saveAll(blobs);
+        uow.afterCommit(() -> {
+            synchronized (cache) {
+                versions.forEach(dirty::remove);
+            }
+        });
+    }
+
+    /**
+     * Forgets every music a user listened to, after their history is cleared.
+     * @param u user
+     */
+    public void clear(User u) {
+        synchronized (cache) {
+            cache.remove(u.getId());
+            dirty.remove(u.getId());
+        }
+        listenedSetDAO.delete(u.getId());
+    }
+
+    private RoaringBitmap get(int userId) {
+        synchronized (cache) {
+            RoaringBitmap bitmap = cache.get(userId);
+            if (bitmap != null) {
+                return bitmap;
+            }
+        }
+        RoaringBitmap loaded = load(userId);
+        synchronized (cache) {
+            RoaringBitmap bitmap = cache.putIfAbsent(userId, loaded);
+            return bitmap != null ? bitmap : loaded;
+        }
+    }
+
+    private RoaringBitmap load(int userId) {
+        byte[] blob = listenedSetDAO.find(userId);
+        if (blob != null) {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            try {
+                bitmap.deserialize(new DataInputStream(new ByteArrayInputStream(blob)));
+                return bitmap;
+            } catch (IOException e) {
+                System.err.println("Could not read listened musics of user " + userId + ": " + e.getMessage());
+            }
+        }
+        RoaringBitmap bitmap = new RoaringBitmap();
+        lrDAO.findListenedMusicIds(userId).forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        bitmap.runOptimize();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bitmap.serializedSizeInBytes());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.serialize(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
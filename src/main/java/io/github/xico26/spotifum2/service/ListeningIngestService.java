@@ -0,0 +1,305 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.ListeningRecordDAO;
+import io.github.xico26.spotifum2.metrics.LatencyHistogram;
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.PlayJournal;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listening history ingestion.
+ * Registering a play appends it to the local {@link PlayJournal} and enqueues it; a writer thread drains the queue into user_listened_music in batches,
+ * whenever a batch fills up or the flush window elapses, and credits their points through the {@link PointsService}.
+ * The queue is bounded: a play stays counted against the capacity until it is committed, so when the database
+ * falls behind the callers block instead of piling up plays in memory.
+ * Reads of the listening history may not see plays from the last flush window.
+ * Plays still in the journal when the application stops or crashes are replayed on the next {@link #start()};
+ * the ones the database already holds are recognised by their key and skipped.
+ */
+public class ListeningIngestService implements AutoCloseable {
+    public static final String QUEUE_CAPACITY = "spotifum.plays.queueCapacity";
+    public static final String BATCH_SIZE = "spotifum.plays.batchSize";
+    public static final String FLUSH_WINDOW = "spotifum.plays.flushWindowMillis";
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final long DEFAULT_FLUSH_WINDOW = 200;
+
+    private final ListeningRecordDAO lrDAO;
+    private final PointsService pointsService;
+    private final PlayCountService playCountService;
+    private final TrendingService trendingService;
+    private final ListenedSetService listenedSetService;
+    private final PlayJournal journal;
+    private final UnitOfWork uow;
+    private final int capacity;
+    private final int batchSize;
+    private final ConcurrentLinkedQueue<PlayEvent> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private final List<PlayEvent> retry = new ArrayList<>();
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public ListeningIngestService(ListeningRecordDAO lrDAO, PointsService pointsService, PlayCountService playCountService, TrendingService trendingService, ListenedSetService listenedSetService, PlayJournal journal, UnitOfWork uow) {
+        this.lrDAO = lrDAO;
+        this.pointsService = pointsService;
+        this.playCountService = playCountService;
+        this.trendingService = trendingService;
+        this.listenedSetService = listenedSetService;
+        this.journal = journal;
+        this.uow = uow;
+        this.capacity = Integer.getInteger(QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY);
+        this.batchSize = Integer.getInteger(BATCH_SIZE, uow.getBatchSize());
+        this.permits = new Semaphore(capacity);
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "listening-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the writer and queues the plays left in the journal by the last run. The flush window, in milliseconds, comes from the {@value #FLUSH_WINDOW}
+     * system property (200 by default); {@value #QUEUE_CAPACITY} and {@value #BATCH_SIZE} set the queue bound
+     * and the plays written per transaction.
+     */
+    public void start() {
+        long window = Long.getLong(FLUSH_WINDOW, DEFAULT_FLUSH_WINDOW);
+        writer.scheduleWithFixedDelay(this::drain, window, window, TimeUnit.MILLISECONDS);
+
+        List<PlayEvent> replay = journal.uncommitted();
+        if (!replay.isEmpty()) {
+            System.out.println("Replaying " + replay.size() + " plays from the journal.");
+        }
+        for (PlayEvent event : replay) {
+            // the bitmaps persisted before the crash may not have these plays yet
+            listenedSetService.markListened(event.userId(), event.musicId());
+            enqueue(event);
+        }
+    }
+
+    /**
+     * Registers a play. Only blocks when the queue is full. A play submitted twice with the same key is written once.
+     * @param key key of the play
+     * @param u user
+     * @param m music
+     * @param listenedAt when the play happened
+     * @param points points earned by the play
+     */
+    public void submit(UUID key, User u, Music m, LocalDateTime listenedAt, int points) {
+        acquire();
+        // the journal is committed by count, so plays must reach the queue in journal order
+        synchronized (journal) {
+            PlayEvent event = journal.append(key, u.getId(), m.getId(), listenedAt, points);
+            pointsService.addPending(event);
+            queue.offer(event);
+        }
+        afterEnqueue();
+    }
+
+    private void enqueue(PlayEvent event) {
+        acquire();
+        pointsService.addPending(event);
+        queue.offer(event);
+        afterEnqueue();
+    }
+
+    private void acquire() {
+        if (!permits.tryAcquire()) {
+            stalls.increment();
+            requestDrain();
+            permits.acquireUninterruptibly();
+        }
+    }
+
+    private void afterEnqueue() {
+        if (getPending() >= batchSize) {
+            requestDrain();
+        }
+    }
+
+    private void requestDrain() {
+        if (drainRequested.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Could not write listening history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every queued play now. A batch that fails is kept and retried on the next flush;
+     * plays the database refuses (e.g. of a user or music deleted meanwhile) are dropped.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            List<PlayEvent> batch;
+            while (!(batch = nextBatch()).isEmpty()) {
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    if (!isConstraintViolation(e)) {
+                        retry.addAll(batch);
+                        throw e;
+                    }
+                    writeEach(batch);
+                }
+            }
+        }
+    }
+
+    private List<PlayEvent> nextBatch() {
+        List<PlayEvent> batch = new ArrayList<>(retry);
+        retry.clear();
+        PlayEvent event;
+        while (batch.size() < batchSize && (event = queue.poll()) != null) {
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    private void write(List<PlayEvent> batch) {
+        List<PlayEvent> repeated = new ArrayList<>();
+        List<PlayEvent> fresh = uow.transaction(() -> {
+            // plays replayed after a crash, or submitted again after a failed registration, can already be there
+            // or twice in the batch, with their points
+            Set<UUID> seen = new HashSet<>(lrDAO.findExistingKeys(batch.stream().map(PlayEvent::key).toList()));
+            List<PlayEvent> unwritten = new ArrayList<>();
+            for (PlayEvent e : batch) {
+                (seen.add(e.key()) ? unwritten : repeated).add(e);
+            }
+            lrDAO.insertAll(unwritten);
+            pointsService.credit(unwritten);
+            listenedSetService.persist(unwritten.stream().map(PlayEvent::userId).distinct().toList());
+            return unwritten;
+        });
+        journal.commit(batch.size());
+
+        long now = System.nanoTime();
+        for (PlayEvent e : batch) {
+            lag.recordNanos(now - e.enqueuedAt());
+        }
+        repeated.forEach(pointsService::discard);
+        for (PlayEvent e : fresh) {
+            playCountService.recordPlay(e.musicId());
+        }
+        try {
+            trendingService.record(fresh);
+        } catch (RuntimeException e) {
+            // the plays are committed: a chart that misses them must not send them back to the queue
+            System.err.println("Could not update trending charts: " + e.getMessage());
+        }
+        written.add(fresh.size());
+        duplicates.add(batch.size() - fresh.size());
+        batches.increment();
+        permits.release(batch.size());
+    }
+
+    /**
+     * Writes a refused batch one play at a time to find the plays the database rejects.
+     */
+    private void writeEach(List<PlayEvent> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            PlayEvent event = batch.get(i);
+            try {
+                write(List.of(event));
+            } catch (RuntimeException e) {
+                if (!isConstraintViolation(e)) {
+                    retry.addAll(batch.subList(i, batch.size()));
+                    throw e;
+                }
+                rejected.increment();
+                pointsService.discard(event);
+                journal.commit(1);
+                permits.release();
+                System.err.println("Dropped play of music " + event.musicId() + " by user " + event.userId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of plays registered but not yet committed.
+     * @return plays pending
+     */
+    public int getPending() {
+        return capacity - permits.availablePermits();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Time from registering a play to its commit.
+     * @return lag histogram
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    /**
+     * Stops the writer and writes what is left. Plays that cannot be written stay in the journal.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println(getPending() + " plays left in the journal for the next start: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pending=%d/%d written=%d duplicates=%d batches=%d stalls=%d rejected=%d%njournal: %s%nlag: %s",
+                getPending(), capacity, getWritten(), duplicates.sum(), batches.sum(), stalls.sum(), getRejected(), journal, lag);
+    }
+}
@@ -1,42 +1,72 @@
 package io.github.xico26.spotifum2.service;
 
 import io.github.xico26.spotifum2.dao.ListeningRecordDAO;
-import io.github.xico26.spotifum2.dao.UserDAO;
-import io.github.xico26.spotifum2.dao.UserDAOImpl;
-import io.github.xico26.spotifum2.model.entity.ListeningRecord;
+import io.github.xico26.spotifum2.model.dto.MusicPlayCount;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
-import io.github.xico26.spotifum2.model.entity.plan.ISubscriptionPlan;
-import io.github.xico26.spotifum2.model.entity.plan.SubscriptionPlanFactory;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 public class ListeningRecordService {
     private final ListeningRecordDAO lrDAO;
     private final UserService userService;
+    private final PointsService pointsService;
+    private final ListeningIngestService ingestService;
+    private final ListenedSetService listenedSetService;
 
-    public ListeningRecordService(ListeningRecordDAO lrDAO, UserService userService) {
+    public ListeningRecordService(ListeningRecordDAO lrDAO, UserService userService, PointsService pointsService, ListeningIngestService ingestService, ListenedSetService listenedSetService) {
         this.lrDAO = lrDAO;
         this.userService = userService;
+        this.pointsService = pointsService;
+        this.ingestService = ingestService;
+        this.listenedSetService = listenedSetService;
     }
 
     public void clearHistory(User user) {
+        // plays still queued would otherwise be written after the delete
+        ingestService.flush();
         lrDAO.deleteByUser(user);
+        listenedSetService.clear(user);
     }
 
+    /**
+     * Queues a play that happened now for the listening history, with the points the user's plan gives for it.
+     * @param u user
+     * @param m music
+     */
     public void registerMusicPlay(User u, Music m) {
-        ISubscriptionPlan plan = SubscriptionPlanFactory.createPlan(u.getSubscriptionPlan());
-        plan.addPoints(m, u);
-
-        ListeningRecord lr = new ListeningRecord(u, m, LocalDateTime.now());
-        lrDAO.save(lr);
+        registerMusicPlay(u, m, UUID.randomUUID(), LocalDateTime.now());
+    }
 
-        userService.save(u);
+    /**
+     * Queues a play for the listening history, with the points the user's plan gives for it.
+     * Registering the same key again, after a failure, writes the play once and with the same points: the music is
+     * only marked as listened once the play is queued.
+     * @param u user
+     * @param m music
+     * @param key key of the play
+     * @param listenedAt when the play happened
+     */
+    public void registerMusicPlay(User u, Music m, UUID key, LocalDateTime listenedAt) {
+        int balance = pointsService.getBalance(u);
+        boolean firstListen = !listenedSetService.hasListened(u.getId(), m.getId());
+        int points = userService.getSubscriptionPlan(u).pointsFor(m, balance, firstListen);
+        ingestService.submit(key, u, m, listenedAt, points);
+        listenedSetService.markListened(u.getId(), m.getId());
     }
 
     public boolean hasListenedMusic (User u, Music m) {
-        return lrDAO.hasListened(u, m.getId());
+        return hasListenedMusic(u, m.getId());
+    }
+
+    public boolean hasListenedMusic (User u, int musicId) {
+        return listenedSetService.hasListened(u.getId(), musicId);
+    }
+
+    public int getNumUniqueListened (User u) {
+        return listenedSetService.countUnique(u.getId());
     }
 
     public int getNumListened (User u) {
@@ -51,18 +81,14 @@ public class ListeningRecordService {
         return lrDAO.getNumListensToMusic(u, m);
     }
 
-    public String playMusic (User u, Music m) {
-        // create record
-        ListeningRecord lr = new ListeningRecord(u, m, LocalDateTime.now());
-        lrDAO.save(lr);
-
-        // add points
-        userService.getSubscriptionPlan(u).addPoints(m, u);
+    public List<MusicPlayCount> getTopListened (User u, int limit) {
+        return lrDAO.findTopListened(u, limit);
+    }
 
-        // save user
-        userService.save(u);
+    public String playMusic (User u, Music m) {
+        registerMusicPlay(u, m);
 
-        return m.toString() + "\n\n" + m.getLyrics();
+        return m.toString();
     }
 
 }
@@ -0,0 +1,77 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.LyricsDAO;
+import io.github.xico26.spotifum2.lyrics.CompressedLyrics;
+import io.github.xico26.spotifum2.lyrics.Lyrics;
+import io.github.xico26.spotifum2.lyrics.LyricsCodec;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lyrics of musics, stored compressed in music_lyrics and read only when a music is played or opened.
+ * A music without lyrics has {@link Lyrics#EMPTY}.
+ */
+public class LyricsService {
+    private final LyricsDAO lyricsDAO;
+    private final UnitOfWork uow;
+
+    public LyricsService(LyricsDAO lyricsDAO, UnitOfWork uow) {
+        this.lyricsDAO = lyricsDAO;
+        this.uow = uow;
+    }
+
+    /**
+     * Lyrics of a music. Lines are decoded as they are iterated.
+     * @param m music
+     * @return lyrics
+     */
+    public Lyrics getLyrics(Music m) {
+        CompressedLyrics compressed = lyricsDAO.find(m.getId());
+        return compressed != null ? LyricsCodec.open(compressed) : Lyrics.EMPTY;
+    }
+
+    /**
+     * Sets the lyrics of a music. Joins the caller's unit of work, so a music and its lyrics can be saved together.
+     * @param m music, saved in this or an earlier unit of work
+     * @param lines lines of the lyrics
+     */
+    public void save(Music m, List<String> lines) {
+        uow.run(em -> lyricsDAO.saveAll(Map.of(m.getId(), LyricsCodec.compress(lines))));
+    }
+
+    /**
+     * Moves lyrics still kept as text in music.lyrics to music_lyrics, {@link UnitOfWork#getBatchSize()} musics
+     * per transaction. Run once, by an administrator, after db/024_music_lyrics.sql; does nothing once the
+     * column has been dropped.
+     * @return number of musics moved
+     */
+    public int migrate() {
+        if (!lyricsDAO.hasLegacy()) {
+            return 0;
+        }
+        int moved = 0;
+        int afterId = 0;
+        while (true) {
+            Map<Integer, String> legacy = lyricsDAO.findLegacy(afterId, uow.getBatchSize());
+            if (legacy.isEmpty()) {
+                return moved;
+            }
+            Map<Integer, CompressedLyrics> compressed = new HashMap<>();
+            legacy.forEach((id, text) -> {
+                if (!text.isEmpty()) {
+                    compressed.put(id, LyricsCodec.compress(text));
+                }
+            });
+            uow.transaction(() -> {
+                lyricsDAO.saveAll(compressed);
+                lyricsDAO.clearLegacy(legacy.keySet());
+            });
+            moved += compressed.size();
+            afterId = legacy.keySet().stream().mapToInt(Integer::intValue).max().getAsInt();
+        }
+    }
+}
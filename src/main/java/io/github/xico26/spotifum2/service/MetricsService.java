@@ -0,0 +1,32 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+import io.github.xico26.spotifum2.persistence.PoolMetrics;
+
+public class MetricsService {
+    private final PoolMetrics poolMetrics;
+    private final CatalogCache catalogCache;
+    private final ListeningIngestService ingestService;
+
+    public MetricsService(PoolMetrics poolMetrics, CatalogCache catalogCache, ListeningIngestService ingestService) {
+        this.poolMetrics = poolMetrics;
+        this.catalogCache = catalogCache;
+        this.ingestService = ingestService;
+    }
+
+    public PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    public String getConnectionPoolReport() {
+        return poolMetrics.toString();
+    }
+
+    public String getCatalogCacheReport() {
+        return catalogCache.toString();
+    }
+
+    public String getListeningIngestReport() {
+        return ingestService.toString();
+    }
+}
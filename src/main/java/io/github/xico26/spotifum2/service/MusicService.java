@@ -4,149 +4,145 @@ import io.github.xico26.spotifum2.dao.MusicDAO;
 import io.github.xico26.spotifum2.exceptions.AlbumNotFoundException;
 import io.github.xico26.spotifum2.exceptions.MusicNotFoundException;
 import io.github.xico26.spotifum2.exceptions.NameAlreadyUsedException;
+import io.github.xico26.spotifum2.lyrics.Lyrics;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
-import io.github.xico26.spotifum2.model.entity.Library;
 import io.github.xico26.spotifum2.model.entity.music.ExplicitMusic;
 import io.github.xico26.spotifum2.model.entity.music.Music;
-import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class MusicService {
     private final MusicDAO musicDAO;
     private AlbumService albumService;
-    private LibraryService libraryService;
-    private PlaylistService playlistService;
+    private final CatalogCache catalogCache;
+    private final SearchService searchService;
+    private final DeletionService deletionService;
+    private final LyricsService lyricsService;
+    private final UnitOfWork uow;
 
-    public MusicService(MusicDAO musicDAO, AlbumService albumService) {
+    public MusicService(MusicDAO musicDAO, AlbumService albumService, CatalogCache catalogCache, SearchService searchService, DeletionService deletionService, LyricsService lyricsService, UnitOfWork uow) {
         this.musicDAO = musicDAO;
         this.albumService = albumService;
+        this.catalogCache = catalogCache;
+        this.searchService = searchService;
+        this.deletionService = deletionService;
+        this.lyricsService = lyricsService;
+        this.uow = uow;
     }
 
     public void setAlbumService (AlbumService albumService) {
         this.albumService = albumService;
     }
 
-    public void setLibraryService(LibraryService libraryService) {
-        this.libraryService = libraryService;
+    public Music findById(int id) {
+        return musicDAO.findById(id);
     }
 
-    public void setPlaylistService(PlaylistService playlistService) {
-        this.playlistService = playlistService;
+    public Lyrics getLyrics(Music music) {
+        return lyricsService.getLyrics(music);
     }
 
-    public Music findById(int id) {
-        return musicDAO.findById(id);
+    /**
+     * Moves the lyrics of the music.lyrics column to music_lyrics.
+     * @return number of musics moved
+     */
+    public int migrateLyrics() {
+        return lyricsService.migrate();
     }
 
     public List<Music> findAll() {
         return musicDAO.findAll();
     }
 
+    public List<Music> findAllById(Collection<Integer> ids) {
+        return musicDAO.findAllById(ids);
+    }
+
     public void save(Music music) {
         musicDAO.save(music);
+        uow.afterCommit(() -> searchService.indexMusic(music));
+    }
+
+    public void saveAll(Collection<Music> musics) {
+        musicDAO.saveAll(musics);
+        uow.afterCommit(() -> musics.forEach(searchService::indexMusic));
     }
 
     public void delete(Music music) {
-        // Remove from all playlists
-        List<Playlist> playlists = playlistService.findAllWithMusic(music);
-        for (Playlist p : playlists) {
-            p.getMusics().remove(music);
-            playlistService.save(p);
-        }
-
-        // Remove from all libraries
-        List<Library> libraries = libraryService.findAllWithMusic(music);
-        for (Library l : libraries) {
-            l.getMusics().remove(music);
-            libraryService.save(l);
-        }
-
-        // Remove from album
-        if (music.getAlbum() != null) {
-            Album album = music.getAlbum();
-            album.getMusics().remove(music);
-            albumService.save(album);
-        }
-
-        // Delete music
-        musicDAO.delete(music);
+        deletionService.deleteMusic(music);
     }
 
     public int getTotalNumberOfMusics() {
         return musicDAO.getMusicCount();
     }
 
-    public List<Music> searchByTitle(String title) {
-        return musicDAO.findByTitle(title);
+    public Page<MusicSummary> searchByTitle(String title, int cursor, int size) {
+        return searchService.searchMusics(title, cursor, size);
     }
 
     public List<Music> searchByGenre(String genre) {
         return musicDAO.getMusicsByGenre(genre);
     }
 
-    public List<Music> searchByArtist(String artist) {
-        List<Music> musics = new ArrayList<Music>();
-        albumService.searchByArtist(artist).forEach(a -> musics.addAll(a.getMusics()));
-
-        return musics;
+    public Page<MusicSummary> searchByArtist(String artist, int afterId, int size) {
+        return searchService.searchMusicsByArtist(artist, afterId, size);
     }
 
     public void makeExplicit (Music music) {
-        ExplicitMusic newMusic = new ExplicitMusic(music);
-
-        // delete old
-        delete(music);
-
-        // save new
-        save(newMusic);
-
-        // add to album
-        Album album = music.getAlbum();
-        album.getMusics().add(newMusic);
-        albumService.save(album);
+        reclassify(List.of(music.getId()), true);
     }
 
     public void makeNormal (ExplicitMusic music) {
-        Music newMusic = new Music(music);
-
-        // delete old
-        delete(music);
+        reclassify(List.of(music.getId()), false);
+    }
 
-        // save new
-        save(newMusic);
+    /**
+     * Makes musics explicit or normal in place, keeping their ids, plays and playlists.
+     * @param musicIds ids of the musics
+     * @param explicit true to make them explicit
+     * @return number of musics changed
+     */
+    public int reclassify (Collection<Integer> musicIds, boolean explicit) {
+        return uow.transaction(() -> retyped(musicDAO.reclassify(musicIds, explicit)));
+    }
 
-        // add to album
-        Album album = music.getAlbum();
-        album.getMusics().add(newMusic);
-        albumService.save(album);
+    public int reclassifyAlbum (int albumId, boolean explicit) {
+        return uow.transaction(() -> retyped(musicDAO.reclassifyAlbum(albumId, explicit)));
     }
 
-    public void createMusic(int albumId, String name, String genre, int duration, List<String> lyrics) {
-        Album album = albumService.findById(albumId);
+    public int reclassifyLabel (String label, boolean explicit) {
+        return uow.transaction(() -> retyped(musicDAO.reclassifyLabel(label, explicit)));
+    }
 
-        if (album == null) {
-            throw new AlbumNotFoundException("Album not found!");
-        }
+    // cached musics would still be loaded with their old class
+    private int retyped (List<Integer> musicIds) {
+        uow.afterCommit(() -> catalogCache.evictMusics(musicIds));
+        return musicIds.size();
+    }
 
-        if (album.getMusics().stream().anyMatch(m -> m.getTitle().equals(name))) {
-            throw new NameAlreadyUsedException("Music with this name already exists!");
-        }
+    public void createMusic(int albumId, String name, String genre, int duration, List<String> lyrics) {
+        uow.transaction(() -> {
+            Album album = albumService.findById(albumId);
 
-        // process lyrics
-        StringBuilder sb = new StringBuilder();
-        for (String lyric : lyrics) {
-            sb.append(lyric).append('\n');
-        }
+            if (album == null) {
+                throw new AlbumNotFoundException("Album not found!");
+            }
 
-        String lyricsString =  sb.toString();
+            if (album.getMusics().stream().anyMatch(m -> m.getTitle().equals(name))) {
+                throw new NameAlreadyUsedException("Music with this name already exists!");
+            }
 
-        Music newMusic = new Music(name, genre, lyricsString, duration, album);
+            Music newMusic = new Music(name, genre, duration, album);
 
-        save(newMusic);
+            save(newMusic);
+            lyricsService.save(newMusic, lyrics);
 
-        albumService.addMusic(album.getId(), newMusic);
+            albumService.addMusic(album.getId(), newMusic);
+        });
     }
 }
-
@@ -0,0 +1,146 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.MusicDAO;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.CatalogCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Play counters for Music.numPlays.
+ * Plays are accumulated in striped in-memory counters and periodically flushed as relative
+ * {@code num_plays = num_plays + delta} updates, so a hot track never holds its row lock per play.
+ * Plays not yet flushed when the process dies are recovered with {@link #rebuild()}.
+ */
+public class PlayCountService implements AutoCloseable {
+    public static final String FLUSH_INTERVAL = "spotifum.plays.flushIntervalSeconds";
+    private static final long DEFAULT_FLUSH_INTERVAL = 10;
+
+    private final MusicDAO musicDAO;
+    private final CatalogCache catalogCache;
+    private final ConcurrentHashMap<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private final LongAdder flushed = new LongAdder();
+
+    public PlayCountService(MusicDAO musicDAO, CatalogCache catalogCache) {
+        this.musicDAO = musicDAO;
+        this.catalogCache = catalogCache;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "play-count-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the periodic flush. The interval, in seconds, comes from the
+     * {@value #FLUSH_INTERVAL} system property (10 by default).
+     */
+    public void start() {
+        long interval = Long.getLong(FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL);
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("Could not flush play counts: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Counts one play of a music. Only touches memory.
+     * @param m music
+     */
+    public void recordPlay(Music m) {
+        recordPlay(m.getId());
+    }
+
+    /**
+     * Counts one play of a music. Only touches memory.
+     * @param musicId id of the music
+     */
+    public void recordPlay(int musicId) {
+        pending.computeIfAbsent(musicId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Number of plays not yet written to the database.
+     * @return plays pending
+     */
+    public long getPendingPlays() {
+        long total = 0;
+        for (LongAdder a : pending.values()) {
+            total += a.sum();
+        }
+        return total;
+    }
+
+    public long getFlushedPlays() {
+        return flushed.sum();
+    }
+
+    /**
+     * Writes every pending play to the database in one batch.
+     * If the write fails the deltas are put back and retried on the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, Long> deltas = drain();
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                musicDAO.incrementPlays(deltas);
+                catalogCache.evictMusics(deltas.keySet());
+                deltas.values().forEach(flushed::add);
+            } catch (RuntimeException e) {
+                deltas.forEach((id, delta) -> pending.computeIfAbsent(id, k -> new LongAdder()).add(delta));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every num_plays from the listening history, discarding the pending deltas
+     * (their plays are already in the history).
+     * @return number of musics whose count was corrected
+     */
+    public int rebuild() {
+        synchronized (flushLock) {
+            drain();
+            return musicDAO.rebuildPlayCounts();
+        }
+    }
+
+    private Map<Integer, Long> drain() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        pending.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        return deltas;
+    }
+
+    /**
+     * Stops the periodic flush and writes what is left.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
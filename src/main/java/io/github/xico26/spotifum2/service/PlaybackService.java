@@ -0,0 +1,40 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.playback.PlaybackSession;
+
+import java.util.List;
+
+/**
+ * Opens playback sessions for users, with their plan, explicit content setting and listening history.
+ */
+public class PlaybackService {
+    public static final String PREFETCH = "spotifum.playback.prefetch";
+    private static final int DEFAULT_PREFETCH = 2;
+
+    private final UserService userService;
+    private final MusicService musicService;
+    private final ListeningRecordService listeningRecordService;
+
+    public PlaybackService(UserService userService, MusicService musicService, ListeningRecordService listeningRecordService) {
+        this.userService = userService;
+        this.musicService = musicService;
+        this.listeningRecordService = listeningRecordService;
+    }
+
+    /**
+     * Starts playing a list of musics for a user. Every track played to the end is registered in the user's
+     * listening history. The number of tracks read ahead comes from the {@value #PREFETCH} system property
+     * (2 by default).
+     * @param u user
+     * @param musics musics, in playing order
+     * @return session, to be closed when the user stops listening
+     */
+    public PlaybackSession open(User u, List<Music> musics) {
+        boolean canGoBack = userService.getSubscriptionPlan(u).podeAvancarRetroceder();
+        return new PlaybackSession(musics, u.wantsExplicit(), canGoBack, musicService::getLyrics,
+                play -> listeningRecordService.registerMusicPlay(u, play.music(), play.key(), play.listenedAt()),
+                Integer.getInteger(PREFETCH, DEFAULT_PREFETCH));
+    }
+}
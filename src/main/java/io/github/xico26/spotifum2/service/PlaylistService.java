@@ -1,14 +1,18 @@
 package io.github.xico26.spotifum2.service;
 
 import io.github.xico26.spotifum2.dao.PlaylistDAO;
+import io.github.xico26.spotifum2.dao.PlaylistTrackDAO;
 import io.github.xico26.spotifum2.exceptions.NameAlreadyUsedException;
 import io.github.xico26.spotifum2.exceptions.NoPermissionsException;
 import io.github.xico26.spotifum2.exceptions.TooFewMusicsException;
+import io.github.xico26.spotifum2.model.dto.MusicPlayCount;
+import io.github.xico26.spotifum2.model.dto.Page;
 import io.github.xico26.spotifum2.model.entity.Album;
-import io.github.xico26.spotifum2.model.entity.Library;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.music.Music;
 import io.github.xico26.spotifum2.model.entity.playlist.*;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import io.github.xico26.spotifum2.playlist.LazyTrackList;
 
 import java.util.HashMap;
 import java.util.List;
@@ -16,19 +20,31 @@ import java.util.Map;
 import java.util.Random;
 
 public class PlaylistService {
+    public static final String WINDOW_SIZE = "spotifum.playlist.windowSize";
+    private static final int DEFAULT_WINDOW_SIZE = 200;
+    private static final int MAX_WINDOWS = 4;
+
     private final PlaylistDAO playlistDAO;
+    private final PlaylistTrackDAO trackDAO;
     private final LibraryService libraryService;
     private final ListeningRecordService listeningRecordService;
     private final MusicService musicService;
     private final AlbumService albumService;
+    private final SearchService searchService;
+    private final DeletionService deletionService;
+    private final UnitOfWork uow;
     private static final Random random = new Random();
 
-    public PlaylistService(PlaylistDAO playlistDAO, LibraryService libraryService, ListeningRecordService listeningRecordService, MusicService musicService, AlbumService albumService) {
+    public PlaylistService(PlaylistDAO playlistDAO, PlaylistTrackDAO trackDAO, LibraryService libraryService, ListeningRecordService listeningRecordService, MusicService musicService, AlbumService albumService, SearchService searchService, DeletionService deletionService, UnitOfWork uow) {
         this.playlistDAO = playlistDAO;
+        this.trackDAO = trackDAO;
         this.libraryService = libraryService;
         this.listeningRecordService = listeningRecordService;
         this.musicService = musicService;
         this.albumService = albumService;
+        this.searchService = searchService;
+        this.deletionService = deletionService;
+        this.uow = uow;
     }
 
     public Playlist findById(int id) {
@@ -39,94 +55,165 @@ public class PlaylistService {
         return playlistDAO.findByUser(user);
     }
 
+    public Page<Playlist> findByUser(User user, int afterId, int size) {
+        return playlistDAO.findByUser(user, afterId, size);
+    }
+
     public List<Playlist> findPublicPlaylists () {
         return playlistDAO.findPublicPlaylists();
     }
 
+    public Page<Playlist> findPublicPlaylists(int afterId, int size) {
+        return playlistDAO.findPublicPlaylists(afterId, size);
+    }
+
     public List<Playlist> findAll() {
         return playlistDAO.findAll();
     }
 
+    /**
+     * Saves a playlist. A new playlist is saved with the musics added to it so far.
+     * @param playlist playlist
+     */
     public void save(Playlist playlist) {
-        playlistDAO.save(playlist);
+        uow.transaction(() -> {
+            boolean created = playlist.getId() == 0;
+            playlistDAO.save(playlist);
+            if (created) {
+                trackDAO.append(playlist.getId(), playlist.getMusics().stream().map(Music::getId).toList());
+                playlist.setMusics(List.of());
+            }
+            uow.afterCommit(() -> searchService.indexPlaylist(playlist));
+        });
     }
 
-    public void delete(Playlist playlist) {
-        // remove from libraries
-        List<Library> libraries = libraryService.findAllWithPlaylist(playlist);
-        for (Library library : libraries) {
-            library.removePlaylist(playlist);
-            libraryService.save(library);
+    /**
+     * Musics of a playlist, in order. Those of a saved playlist are read from the database in windows as they are
+     * used; the window size comes from the {@value #WINDOW_SIZE} system property (200 by default).
+     * @param playlist playlist
+     * @return musics
+     */
+    public List<Music> getTracks(Playlist playlist) {
+        if (playlist.getId() == 0) {
+            return playlist.getMusics();
         }
+        return new LazyTrackList(trackDAO, playlist.getId(), Integer.getInteger(WINDOW_SIZE, DEFAULT_WINDOW_SIZE), MAX_WINDOWS);
+    }
 
-        playlistDAO.delete(playlist);
+    /**
+     * Adds a music to the end of a saved playlist, unless it is already there.
+     * @param playlist playlist
+     * @param music music
+     * @return false if the playlist already had the music
+     */
+    public boolean addMusic(Playlist playlist, Music music) {
+        return uow.transaction(() -> {
+            if (hasMusic(playlist, music)) {
+                return false;
+            }
+            trackDAO.append(playlist.getId(), List.of(music.getId()));
+            return true;
+        });
     }
 
-    public void update(Playlist playlist) {
-        playlistDAO.update(playlist);
+    /**
+     * Inserts a music in a saved playlist, unless it is already there.
+     * @param playlist playlist
+     * @param index index the music will have; past the end, it is added to the end
+     * @param music music
+     * @return false if the playlist already had the music
+     */
+    public boolean insertMusic(Playlist playlist, int index, Music music) {
+        return uow.transaction(() -> {
+            if (hasMusic(playlist, music)) {
+                return false;
+            }
+            trackDAO.insert(playlist.getId(), index, music.getId());
+            return true;
+        });
     }
 
-    public List<Playlist> searchByTitle(String title) {
-        return playlistDAO.findByTitle(title);
+    /**
+     * Moves a music of a saved playlist to another index.
+     * @param playlist playlist
+     * @param from index of the music
+     * @param to index the music will have
+     */
+    public void moveMusic(Playlist playlist, int from, int to) {
+        trackDAO.move(playlist.getId(), from, to);
     }
 
-    public List<Playlist> findAllWithMusic (Music music) {
-        return playlistDAO.findAllWithMusic(music);
+    /**
+     * Removes the music at an index of a saved playlist.
+     * @param playlist playlist
+     * @param index index of the music
+     */
+    public void removeMusic(Playlist playlist, int index) {
+        trackDAO.remove(playlist.getId(), index);
     }
 
-    public void generateFavouritesList(User user, int numMusics) throws TooFewMusicsException {
-        String name = "Favourites List";
-        if (listeningRecordService.getNumListened(user) < 10){
-            throw new TooFewMusicsException("You need to listen to at least 10 musics to be able to generate a Favourites List!");
-        }
+    public void delete(Playlist playlist) {
+        deletionService.deletePlaylist(playlist);
+    }
 
-        if (libraryService.hasPlaylistByName(user, name)) {
-            libraryService.removePlaylistByName(user, name);
-        }
+    public void update(Playlist playlist) {
+        playlistDAO.update(playlist);
+    }
 
-        List<Music> uniqueMusics = listeningRecordService.getUniqueListens(user);
-        Map<Music,Integer> weights = new HashMap<Music,Integer>();
+    public Page<Playlist> searchByTitle(String title, int cursor, int size) {
+        return searchService.searchPlaylists(title, cursor, size);
+    }
 
-        for (Music music : uniqueMusics) {
-            int weight = listeningRecordService.getNumListensToMusic(user, music);
-            weights.put(music, weight);
-        }
+    public void generateFavouritesList(User user, int numMusics) throws TooFewMusicsException {
+        uow.transaction(() -> {
+            String name = "Favourites List";
+            if (listeningRecordService.getNumListened(user) < 10){
+                throw new TooFewMusicsException("You need to listen to at least 10 musics to be able to generate a Favourites List!");
+            }
 
-        FavouriteList favouriteList = new FavouriteList(name, user);
+            if (libraryService.hasPlaylistByName(user, name)) {
+                libraryService.removePlaylistByName(user, name);
+            }
+
+            // most played first, computed by the database in a single grouped query
+            List<MusicPlayCount> top = listeningRecordService.getTopListened(user, numMusics);
+            Map<Integer, Music> musics = new HashMap<Integer, Music>();
+            musicService.findAllById(top.stream().map(MusicPlayCount::musicId).toList())
+                    .forEach(m -> musics.put(m.getId(), m));
 
-        weights.entrySet().stream()
-                .sorted(Map.Entry.<Music, Integer>comparingByValue().reversed())
-                .limit(numMusics)
-                .forEach(entry -> favouriteList.addMusic(entry.getKey()));
+            FavouriteList favouriteList = new FavouriteList(name, user);
+            top.forEach(count -> favouriteList.addMusic(musics.get(count.musicId())));
 
-        save(favouriteList);
-        libraryService.addPlaylist(user, favouriteList);
+            save(favouriteList);
+            libraryService.addPlaylist(user, favouriteList);
+        });
     }
 
     public void generateGenreList(String name, String genre, User u, int numMusics) throws NameAlreadyUsedException, TooFewMusicsException {
-        if (libraryService.hasPlaylistByName(u, name)) {
-            throw new NameAlreadyUsedException("There's already a playlist with the name: " + name);
-        }
+        uow.transaction(() -> {
+            if (libraryService.hasPlaylistByName(u, name)) {
+                throw new NameAlreadyUsedException("There's already a playlist with the name: " + name);
+            }
 
-        if (musicService.getTotalNumberOfMusics() == 0) {
-            throw new TooFewMusicsException("There aren't enough musics in the database!");
-        }
+            if (musicService.getTotalNumberOfMusics() == 0) {
+                throw new TooFewMusicsException("There aren't enough musics in the database!");
+            }
 
-        GenreList genreList = new GenreList(name, u);
+            GenreList genreList = new GenreList(name, u);
 
-        List<Music> genreMusics = musicService.searchByGenre(genre);
-        genreMusics.stream().limit(numMusics).forEach(genreList::addMusic);
+            List<Music> genreMusics = musicService.searchByGenre(genre);
+            genreMusics.stream().limit(numMusics).forEach(genreList::addMusic);
 
-        save(genreList);
-        libraryService.addPlaylist(u, genreList);
+            save(genreList);
+            libraryService.addPlaylist(u, genreList);
+        });
     }
 
     public boolean hasMusic(Playlist playlist, Music music) {
-        if (playlist.getMusics() == null || playlist.getMusics().isEmpty()) {
-            return false;
+        if (playlist.getId() == 0) {
+            return playlist.getMusics().contains(music);
         }
-
-        return playlist.getMusics().stream().anyMatch(m -> m.equals(music));
+        return trackDAO.contains(playlist.getId(), music.getId());
     }
 
     public void toggleVisbility(Playlist playlist) {
@@ -135,42 +222,44 @@ public class PlaylistService {
     }
 
     public RandomPlaylist generateRandomPlaylist(String name, int numMusics, User user) throws TooFewMusicsException {
-        RandomPlaylist randomPlaylist = new RandomPlaylist(name, user);
-        List<Album> albums = albumService.findAll();
+        return uow.transaction(() -> {
+            RandomPlaylist randomPlaylist = new RandomPlaylist(name, user);
+            List<Album> albums = albumService.findAll();
 
-        int totalMusics = musicService.getTotalNumberOfMusics();
+            int totalMusics = musicService.getTotalNumberOfMusics();
 
-        if (totalMusics == 0) {
-            throw new TooFewMusicsException("There aren't enough musics in the database!");
-        }
-        if (numMusics > totalMusics) {
-            numMusics = totalMusics;
-        }
-
-        while (randomPlaylist.getMusics().size() < numMusics) {
-            int r1 = random.nextInt(albums.size());
-            Album album = albums.get(r1);
-            List<Music> ms = album.getMusics();
-            if (ms.isEmpty()) {
-                continue;
+            if (totalMusics == 0) {
+                throw new TooFewMusicsException("There aren't enough musics in the database!");
             }
-            int r2 = random.nextInt(ms.size());
-            Music music = ms.get(r2);
-            if (!randomPlaylist.getMusics().contains(music)) {
-                randomPlaylist.addMusic(music);
+            int target = Math.min(numMusics, totalMusics);
+
+            while (randomPlaylist.getMusics().size() < target) {
+                int r1 = random.nextInt(albums.size());
+                Album album = albums.get(r1);
+                List<Music> ms = album.getMusics();
+                if (ms.isEmpty()) {
+                    continue;
+                }
+                int r2 = random.nextInt(ms.size());
+                Music music = ms.get(r2);
+                if (!randomPlaylist.getMusics().contains(music)) {
+                    randomPlaylist.addMusic(music);
+                }
             }
-        }
 
-        return randomPlaylist;
+            return randomPlaylist;
+        });
     }
 
     public void createPlaylist (String name, User user) {
-        if (libraryService.getUserLibrary(user).getPlaylists().stream().anyMatch(p -> p.getName().equals(name))) {
-            throw new NameAlreadyUsedException("There's already a playlist with this name!");
-        }
-        Playlist newPlaylist = new CustomPlaylist(name, user);
-        libraryService.addPlaylist(user, newPlaylist);
+        uow.transaction(() -> {
+            if (libraryService.hasPlaylistByName(user, name)) {
+                throw new NameAlreadyUsedException("There's already a playlist with this name!");
+            }
+            Playlist newPlaylist = new CustomPlaylist(name, user);
+            save(newPlaylist);
 
-        save(newPlaylist);
+            libraryService.addPlaylist(user, newPlaylist);
+        });
     }
 }
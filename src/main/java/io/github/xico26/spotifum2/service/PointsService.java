@@ -0,0 +1,181 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.PointsLedgerDAO;
+import io.github.xico26.spotifum2.dao.UserDAO;
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
+import io.github.xico26.spotifum2.model.entity.PointsEntry;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users' points.
+ * Every change is appended to the points ledger and added to users.points with a relative update in the same
+ * transaction, so concurrent plays never overwrite each other's points. The balance of each user is cached:
+ * the committed balance plus the points of plays still waiting to be written.
+ * Old ledger entries are periodically compacted into one entry per user.
+ */
+public class PointsService implements AutoCloseable {
+    public static final String COMPACT_INTERVAL = "spotifum.points.compactIntervalHours";
+    public static final String RETENTION = "spotifum.points.retentionDays";
+    private static final long DEFAULT_COMPACT_INTERVAL = 24;
+    private static final long DEFAULT_RETENTION = 90;
+
+    private final PointsLedgerDAO ledgerDAO;
+    private final UserDAO userDAO;
+    private final LeaderboardService leaderboardService;
+    private final UnitOfWork uow;
+    private final ConcurrentHashMap<Integer, Integer> committed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    public PointsService(PointsLedgerDAO ledgerDAO, UserDAO userDAO, LeaderboardService leaderboardService, UnitOfWork uow) {
+        this.ledgerDAO = ledgerDAO;
+        this.userDAO = userDAO;
+        this.leaderboardService = leaderboardService;
+        this.uow = uow;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "points-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the periodic compaction. The interval, in hours, comes from the {@value #COMPACT_INTERVAL}
+     * system property (24 by default); entries older than {@value #RETENTION} days (90 by default) are compacted.
+     */
+    public void start() {
+        long interval = Long.getLong(COMPACT_INTERVAL, DEFAULT_COMPACT_INTERVAL);
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                System.err.println("Could not compact the points ledger: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.HOURS);
+    }
+
+    /**
+     * Age after which ledger entries are compacted, from the {@value #RETENTION} system property.
+     * @return retention period
+     */
+    public static Duration getRetention() {
+        return Duration.ofDays(Long.getLong(RETENTION, DEFAULT_RETENTION));
+    }
+
+    /**
+     * Current points of a user, including plays not yet written.
+     * @param u user
+     * @return points
+     */
+    public int getBalance(User u) {
+        int balance = committed.computeIfAbsent(u.getId(), userDAO::findPoints);
+        return balance + pending.getOrDefault(u.getId(), 0);
+    }
+
+    /**
+     * Counts the points of a play that was queued but not yet written.
+     * @param play play
+     */
+    public void addPending(PlayEvent play) {
+        adjust(pending, play.userId(), play.points());
+    }
+
+    /**
+     * Forgets the points of a queued play that will not be written.
+     * @param play play
+     */
+    public void discard(PlayEvent play) {
+        adjust(pending, play.userId(), -play.points());
+    }
+
+    /**
+     * Writes the points of plays to the ledger and the balances. Runs in the caller's unit of work;
+     * the cached balances move from pending to committed once it commits.
+     * @param plays plays to credit
+     */
+    public void credit(Collection<PlayEvent> plays) {
+        List<PointsEntry> entries = new ArrayList<>(plays.size());
+        Map<Integer, Integer> deltas = new HashMap<>();
+        uow.run(em -> {
+            for (PlayEvent play : plays) {
+                if (play.points() != 0) {
+                    entries.add(new PointsEntry(em.getReference(User.class, play.userId()), play.points(), PointsEntry.PLAY, play.listenedAt()));
+                    deltas.merge(play.userId(), play.points(), Integer::sum);
+                }
+            }
+            ledgerDAO.saveAll(entries);
+            userDAO.incrementPoints(deltas);
+            uow.afterCommit(() -> deltas.forEach((userId, delta) -> {
+                committed.computeIfPresent(userId, (id, balance) -> balance + delta);
+                adjust(pending, userId, -delta);
+                leaderboardService.addPoints(userId, delta);
+            }));
+        });
+    }
+
+    /**
+     * Gives points to a user outside of a play.
+     * @param u user
+     * @param delta points
+     * @param reason reason, one of the {@link PointsEntry} constants
+     */
+    public void award(User u, int delta, String reason) {
+        uow.run(em -> {
+            ledgerDAO.saveAll(List.of(new PointsEntry(em.getReference(User.class, u.getId()), delta, reason, LocalDateTime.now())));
+            userDAO.incrementPoints(Map.of(u.getId(), delta));
+            uow.afterCommit(() -> {
+                committed.computeIfPresent(u.getId(), (id, balance) -> balance + delta);
+                leaderboardService.addPoints(u.getId(), delta);
+            });
+        });
+    }
+
+    /**
+     * Replaces each user's ledger entries older than the retention period by a single entry with their sum.
+     * Balances are unchanged.
+     * @return number of entries removed
+     */
+    public int compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(getRetention());
+        return uow.transaction(() -> {
+            Map<Integer, Long> sums = ledgerDAO.sumBefore(cutoff);
+            if (sums.isEmpty()) {
+                return 0;
+            }
+            int removed = ledgerDAO.deleteBefore(cutoff, sums.keySet());
+            uow.run(em -> {
+                List<PointsEntry> compacted = new ArrayList<>(sums.size());
+                sums.forEach((userId, sum) -> compacted.add(new PointsEntry(em.getReference(User.class, userId), Math.toIntExact(sum), PointsEntry.COMPACTED, cutoff)));
+                ledgerDAO.saveAll(compacted);
+            });
+            return removed - sums.size();
+        });
+    }
+
+    private static void adjust(ConcurrentHashMap<Integer, Integer> balances, int userId, int delta) {
+        if (delta != 0) {
+            balances.merge(userId, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    /**
+     * Stops the periodic compaction.
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.AlbumDAO;
+import io.github.xico26.spotifum2.dao.ArtistDAO;
+import io.github.xico26.spotifum2.dao.MusicDAO;
+import io.github.xico26.spotifum2.dao.PlaylistDAO;
+import io.github.xico26.spotifum2.model.dto.AlbumSummary;
+import io.github.xico26.spotifum2.model.dto.MusicSummary;
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.search.TrigramIndex;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Title search over musics, albums, artists and playlists.
+ * Matches are found in in-memory trigram indexes; the database is only asked for the final results.
+ * The indexes are built by {@link #rebuild()} at startup and kept up to date by the services' write paths.
+ * Ids left behind by changes made outside the application are harmless: they are dropped on hydration.
+ */
+public class SearchService {
+    /** Most artists a by-artist search expands to. */
+    public static final int MAX_ARTISTS = 1000;
+
+    private final MusicDAO musicDAO;
+    private final AlbumDAO albumDAO;
+    private final ArtistDAO artistDAO;
+    private final PlaylistDAO playlistDAO;
+
+    private final TrigramIndex musics = new TrigramIndex();
+    private final TrigramIndex albums = new TrigramIndex();
+    private final TrigramIndex artists = new TrigramIndex();
+    private final TrigramIndex playlists = new TrigramIndex();
+
+    public SearchService(MusicDAO musicDAO, AlbumDAO albumDAO, ArtistDAO artistDAO, PlaylistDAO playlistDAO) {
+        this.musicDAO = musicDAO;
+        this.albumDAO = albumDAO;
+        this.artistDAO = artistDAO;
+        this.playlistDAO = playlistDAO;
+    }
+
+    /**
+     * Reloads every index from the database, streaming only ids and names.
+     */
+    public void rebuild() {
+        musics.clear();
+        musicDAO.forEachName(e -> musics.put(e.id(), e.name()));
+        albums.clear();
+        albumDAO.forEachName(e -> albums.put(e.id(), e.name()));
+        artists.clear();
+        artistDAO.forEachName(e -> artists.put(e.id(), e.name()));
+        playlists.clear();
+        playlistDAO.forEachName(e -> playlists.put(e.id(), e.name()));
+    }
+
+    public Page<MusicSummary> searchMusics(String term, int cursor, int size) {
+        return ranked(musics, term, cursor, size, musicDAO::findSummaries, MusicSummary::id);
+    }
+
+    public Page<AlbumSummary> searchAlbums(String term, int cursor, int size) {
+        return ranked(albums, term, cursor, size, albumDAO::findSummaries, AlbumSummary::id);
+    }
+
+    public Page<Playlist> searchPlaylists(String term, int cursor, int size) {
+        return ranked(playlists, term, cursor, size, playlistDAO::findAllById, Playlist::getId);
+    }
+
+    /**
+     * Albums of the artists whose name contains a term, paged by album id.
+     * @param term search term
+     * @param afterId cursor
+     * @param size page size
+     * @return page of albums
+     */
+    public Page<AlbumSummary> searchAlbumsByArtist(String term, int afterId, int size) {
+        return albumDAO.findSummariesByArtistIds(artists.search(term, MAX_ARTISTS), afterId, size);
+    }
+
+    /**
+     * Musics of the artists whose name contains a term, paged by music id.
+     * @param term search term
+     * @param afterId cursor
+     * @param size page size
+     * @return page of musics
+     */
+    public Page<MusicSummary> searchMusicsByArtist(String term, int afterId, int size) {
+        return musicDAO.findSummariesByArtistIds(artists.search(term, MAX_ARTISTS), afterId, size);
+    }
+
+    /**
+     * Pages through ranked matches. The cursor is an offset into the ranking, which lives in memory;
+     * only the ids of the requested page are loaded from the database.
+     */
+    private static <T> Page<T> ranked(TrigramIndex index, String term, int offset, int size,
+                                      Function<Collection<Integer>, List<T>> loader, ToIntFunction<T> idOf) {
+        List<Integer> ids = index.search(term, offset + size + 1);
+        int to = Math.min(ids.size(), offset + size);
+        List<Integer> pageIds = ids.subList(Math.min(offset, to), to);
+
+        Map<Integer, T> byId = new HashMap<>();
+        loader.apply(pageIds).forEach(e -> byId.put(idOf.applyAsInt(e), e));
+        List<T> items = new ArrayList<>(pageIds.size());
+        for (int id : pageIds) {
+            T e = byId.get(id);
+            if (e != null) {
+                items.add(e);
+            }
+        }
+        return new Page<>(items, to, ids.size() > to);
+    }
+
+    public void indexMusic(Music m) {
+        if (m.getId() != 0) {
+            musics.put(m.getId(), m.getTitle());
+        }
+    }
+
+    public void removeMusic(int id) {
+        musics.remove(id);
+    }
+
+    public void indexAlbum(Album a) {
+        if (a.getId() != 0) {
+            albums.put(a.getId(), a.getName());
+        }
+    }
+
+    public void removeAlbum(int id) {
+        albums.remove(id);
+    }
+
+    public void removeArtist(int id) {
+        artists.remove(id);
+    }
+
+    public void indexPlaylist(Playlist p) {
+        if (p.getId() != 0) {
+            playlists.put(p.getId(), p.getName());
+        }
+    }
+
+    public void removePlaylist(int id) {
+        playlists.remove(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Musics: " + musics.size() + " names, " + musics.getPostingBytes() + " bytes\n"
+                + "Albums: " + albums.size() + " names, " + albums.getPostingBytes() + " bytes\n"
+                + "Artists: " + artists.size() + " names, " + artists.getPostingBytes() + " bytes\n"
+                + "Playlists: " + playlists.size() + " names, " + playlists.getPostingBytes() + " bytes";
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.StatisticsDAO;
+import io.github.xico26.spotifum2.model.dto.StatisticsSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application statistics. The aggregates are computed in the background and served from the last snapshot,
+ * so the statistics screen never waits on a scan of the listening history.
+ */
+public class StatisticsService implements AutoCloseable {
+    public static final String REFRESH_INTERVAL = "spotifum.stats.refreshIntervalSeconds";
+    private static final long DEFAULT_REFRESH_INTERVAL = 300;
+
+    private final StatisticsDAO statisticsDAO;
+    private final ScheduledExecutorService refresher;
+    private volatile StatisticsSnapshot snapshot;
+
+    public StatisticsService(StatisticsDAO statisticsDAO) {
+        this.statisticsDAO = statisticsDAO;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "statistics-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Computes the first snapshot in the background and keeps refreshing it. The interval, in seconds,
+     * comes from the {@value #REFRESH_INTERVAL} system property (300 by default).
+     */
+    public void start() {
+        long interval = Long.getLong(REFRESH_INTERVAL, DEFAULT_REFRESH_INTERVAL);
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                System.err.println("Could not refresh statistics: " + e.getMessage());
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the latest snapshot. Only computes it in the caller's thread if none exists yet.
+     * @return statistics
+     */
+    public StatisticsSnapshot getSnapshot() {
+        StatisticsSnapshot s = snapshot;
+        return s != null ? s : refresh();
+    }
+
+    /**
+     * Recomputes every statistic now.
+     * @return new snapshot
+     */
+    public synchronized StatisticsSnapshot refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        StatisticsSnapshot s = new StatisticsSnapshot(
+                statisticsDAO.countUsers(),
+                statisticsDAO.countMusics(),
+                statisticsDAO.countAlbums(),
+                statisticsDAO.countPublicPlaylists(),
+                statisticsDAO.countArtists(),
+                statisticsDAO.findMostPlayedMusic(),
+                statisticsDAO.findMostListenedArtist(),
+                statisticsDAO.findTopListenerSince(null),
+                statisticsDAO.findTopListenerSince(now.minusMonths(1)),
+                statisticsDAO.findMostPlayedGenre(),
+                statisticsDAO.findUserWithMostPlaylists(),
+                now);
+        this.snapshot = s;
+        return s;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
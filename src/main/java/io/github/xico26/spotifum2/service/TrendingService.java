@@ -0,0 +1,111 @@
+package io.github.xico26.spotifum2.service;
+
+import io.github.xico26.spotifum2.dao.MusicDAO;
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
+import io.github.xico26.spotifum2.model.dto.RankedEntry;
+import io.github.xico26.spotifum2.model.dto.TrackInfo;
+import io.github.xico26.spotifum2.trending.DecayingTopK;
+import io.github.xico26.spotifum2.trending.TrendingWindow;
+
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Trending musics, artists and genres over the last hour, day and week.
+ * Fed with every play written to the listening history; each chart is a {@link DecayingTopK} of fixed size,
+ * so the charts are always current without aggregating user_listened_music. They start empty on every run.
+ * Titles and artist names are kept only for the candidates of some chart, so memory does not grow with the
+ * number of different musics played.
+ */
+public class TrendingService {
+    private static final int CANDIDATES = 100;
+    private static final int SKETCH_WIDTH = 2048;
+    private static final int SKETCH_DEPTH = 4;
+
+    private final MusicDAO musicDAO;
+    private final Map<TrendingWindow, DecayingTopK<Integer>> musics = new EnumMap<>(TrendingWindow.class);
+    private final Map<TrendingWindow, DecayingTopK<Integer>> artists = new EnumMap<>(TrendingWindow.class);
+    private final Map<TrendingWindow, DecayingTopK<String>> genres = new EnumMap<>(TrendingWindow.class);
+    private final ConcurrentHashMap<Integer, TrackInfo> tracks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> artistNames = new ConcurrentHashMap<>();
+
+    public TrendingService(MusicDAO musicDAO) {
+        this.musicDAO = musicDAO;
+        for (TrendingWindow w : TrendingWindow.values()) {
+            musics.put(w, new DecayingTopK<>(w.getLifetime(), CANDIDATES, SKETCH_WIDTH, SKETCH_DEPTH));
+            artists.put(w, new DecayingTopK<>(w.getLifetime(), CANDIDATES, SKETCH_WIDTH, SKETCH_DEPTH));
+            genres.put(w, new DecayingTopK<>(w.getLifetime(), CANDIDATES, SKETCH_WIDTH, SKETCH_DEPTH));
+        }
+    }
+
+    /**
+     * Adds plays to every chart. Musics not seen before are read in one query.
+     * @param plays plays
+     */
+    public void record(Collection<PlayEvent> plays) {
+        List<Integer> unknown = plays.stream().map(PlayEvent::musicId).filter(id -> !tracks.containsKey(id)).distinct().toList();
+        for (TrackInfo t : musicDAO.findTrackInfo(unknown)) {
+            tracks.put(t.musicId(), t);
+            artistNames.put(t.artistId(), t.artistName());
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        for (PlayEvent play : plays) {
+            TrackInfo t = tracks.get(play.musicId());
+            if (t == null) {
+                continue;
+            }
+            long at = play.listenedAt().atZone(zone).toInstant().toEpochMilli();
+            for (TrendingWindow w : TrendingWindow.values()) {
+                musics.get(w).add(t.musicId(), at);
+                artists.get(w).add(t.artistId(), at);
+                if (t.genre() != null) {
+                    genres.get(w).add(t.genre(), at);
+                }
+            }
+        }
+        forgetDropped();
+    }
+
+    // keeps the names only of musics and artists still candidates in some window
+    private void forgetDropped() {
+        Set<Integer> keptMusics = new HashSet<>();
+        Set<Integer> keptArtists = new HashSet<>();
+        for (TrendingWindow w : TrendingWindow.values()) {
+            keptMusics.addAll(musics.get(w).candidates());
+            keptArtists.addAll(artists.get(w).candidates());
+        }
+        tracks.keySet().retainAll(keptMusics);
+        artistNames.keySet().retainAll(keptArtists);
+    }
+
+    public List<RankedEntry> getTopMusics(TrendingWindow window, int k) {
+        return chart(musics.get(window), k, id -> {
+            TrackInfo t = tracks.get(id);
+            return t != null ? t.title() : null;
+        });
+    }
+
+    public List<RankedEntry> getTopArtists(TrendingWindow window, int k) {
+        return chart(artists.get(window), k, artistNames::get);
+    }
+
+    public List<RankedEntry> getTopGenres(TrendingWindow window, int k) {
+        return chart(genres.get(window), k, Function.identity());
+    }
+
+    private static <K> List<RankedEntry> chart(DecayingTopK<K> topK, int k, Function<K, String> name) {
+        // a key can leave the candidates, and its name be forgotten, between reading the chart and naming it
+        return topK.top(k, System.currentTimeMillis()).stream()
+                .map(e -> new RankedEntry(name.apply(e.key()), Math.round(e.count())))
+                .filter(e -> e.name() != null)
+                .toList();
+    }
+}
@@ -4,18 +4,25 @@ import io.github.xico26.spotifum2.dao.UserDAO;
 import io.github.xico26.spotifum2.exceptions.InvalidLoginException;
 import io.github.xico26.spotifum2.exceptions.InvalidParamsException;
 import io.github.xico26.spotifum2.exceptions.UserNotFoundException;
+import io.github.xico26.spotifum2.model.entity.PointsEntry;
 import io.github.xico26.spotifum2.model.entity.User;
 import io.github.xico26.spotifum2.model.entity.plan.ISubscriptionPlan;
 import io.github.xico26.spotifum2.model.entity.plan.SubscriptionPlanFactory;
-import jakarta.persistence.NoResultException;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
 
 import java.time.LocalDate;
 
 public class UserService {
     private final UserDAO userDAO;
+    private final PointsService pointsService;
+    private final LeaderboardService leaderboardService;
+    private final UnitOfWork uow;
 
-    public UserService(UserDAO userDAO) {
+    public UserService(UserDAO userDAO, PointsService pointsService, LeaderboardService leaderboardService, UnitOfWork uow) {
         this.userDAO = userDAO;
+        this.pointsService = pointsService;
+        this.leaderboardService = leaderboardService;
+        this.uow = uow;
     }
 
     public User findById(int id) {
@@ -43,32 +50,45 @@ public class UserService {
     }
 
     public void createUser(String username, String password, String name, String address, String email, LocalDate birthDate) {
-        User newUser = new User(username, password, name, address, email, birthDate, "FREE");
+        uow.transaction(() -> {
+            User newUser = new User(username, password, name, address, email, birthDate, "FREE");
 
-        if (findByUsername(username) != null) {
-            throw new InvalidParamsException("Username already used!");
-        }
+            if (findByUsername(username) != null) {
+                throw new InvalidParamsException("Username already used!");
+            }
 
-        if (findByEmail(email) != null) {
-            throw new InvalidParamsException("Email already used!");
-        }
+            if (findByEmail(email) != null) {
+                throw new InvalidParamsException("Email already used!");
+            }
 
-        save(newUser);
+            save(newUser);
+            uow.afterCommit(() -> leaderboardService.addUser(newUser));
+        });
     }
 
     public void setPlan (User u, String newPlan) {
-        u.setSubscriptionPlan(newPlan);
-        if (newPlan.equals("PREMIUM")) {
-            u.addPoints(100);
-        }
+        uow.transaction(() -> {
+            u.setSubscriptionPlan(newPlan);
+            save(u);
+            if (newPlan.equals("PREMIUM")) {
+                pointsService.award(u, 100, PointsEntry.PREMIUM_UPGRADE);
+            }
+        });
     }
 
-    public void removeUser (User u) {
-        if (findById(u.getId()) == null) {
-            throw new UserNotFoundException("User not found!");
-        }
+    public int getPoints (User u) {
+        return pointsService.getBalance(u);
+    }
 
-        userDAO.delete(u);
+    public void removeUser (User u) {
+        uow.transaction(() -> {
+            if (findById(u.getId()) == null) {
+                throw new UserNotFoundException("User not found!");
+            }
+
+            userDAO.delete(u);
+            uow.afterCommit(() -> leaderboardService.removeUser(u));
+        });
     }
 
     public ISubscriptionPlan getSubscriptionPlan (User u) {
@@ -0,0 +1,219 @@
+package io.github.xico26.spotifum2.trending;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Most frequent keys of a stream, with every occurrence fading exponentially over time.
+ * Counts are estimated by a count-min sketch in fixed memory, and the best candidates are kept in a bounded
+ * min-heap, so neither grows with the number of distinct keys.
+ * Uses forward decay: an occurrence at time t adds e^((t - landmark) / lifetime), and every count is scaled by
+ * e^(-(now - landmark) / lifetime) when read. Only reads pay for the decay, and the relative order of keys never
+ * changes with time alone, so the heap stays valid. The landmark moves forward before the weights overflow.
+ */
+public class DecayingTopK<K> {
+    private static final double MAX_EXPONENT = 100;
+
+    private final double lifetimeMillis;
+    private final int capacity;
+    private final int width;
+    private final double[][] sketch;
+    private final int[] seeds;
+    private long landmark = -1;
+
+    private final List<Candidate<K>> heap = new ArrayList<>();
+    private final Map<K, Candidate<K>> candidates = new HashMap<>();
+
+    private static final class Candidate<K> {
+        final K key;
+        double weight;
+        int index;
+
+        Candidate(K key, double weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Decayed count of a key.
+     * @param key key
+     * @param count occurrences, decayed to the time of the query
+     */
+    public record Entry<K>(K key, double count) {
+    }
+
+    /**
+     * @param lifetime mean lifetime of an occurrence (its weight falls to 1/e after this long)
+     * @param capacity number of candidates kept, a few times the largest top-k asked for
+     * @param width counters per sketch row; more counters, less overestimation
+     * @param depth sketch rows; more rows, less chance of a large overestimation
+     */
+    public DecayingTopK(Duration lifetime, int capacity, int width, int depth) {
+        this.lifetimeMillis = lifetime.toMillis();
+        this.capacity = capacity;
+        this.width = width;
+        this.sketch = new double[depth][width];
+        this.seeds = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B9 * (i + 1);
+        }
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     * @param key key
+     * @param timeMillis time of the occurrence, in epoch milliseconds
+     */
+    public synchronized void add(K key, long timeMillis) {
+        if (landmark < 0) {
+            landmark = timeMillis;
+        }
+        if ((timeMillis - landmark) / lifetimeMillis > MAX_EXPONENT) {
+            rescale(timeMillis);
+        }
+        double w = Math.exp((timeMillis - landmark) / lifetimeMillis);
+
+        // conservative update: only raise the counters that hold the minimum
+        int h = key.hashCode();
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < sketch.length; i++) {
+            estimate = Math.min(estimate, sketch[i][slot(h, i)]);
+        }
+        estimate += w;
+        for (int i = 0; i < sketch.length; i++) {
+            int j = slot(h, i);
+            sketch[i][j] = Math.max(sketch[i][j], estimate);
+        }
+        offer(key, estimate);
+    }
+
+    /**
+     * Keys with the largest decayed counts.
+     * @param k number of keys
+     * @param nowMillis time of the query, in epoch milliseconds
+     * @return up to k keys, highest count first
+     */
+    public synchronized List<Entry<K>> top(int k, long nowMillis) {
+        if (landmark < 0) {
+            return List.of();
+        }
+        double decay = Math.exp(-(nowMillis - landmark) / lifetimeMillis);
+        return heap.stream()
+                .sorted(Comparator.comparingDouble((Candidate<K> c) -> c.weight).reversed())
+                .limit(k)
+                .map(c -> new Entry<>(c.key, c.weight * decay))
+                .toList();
+    }
+
+    /**
+     * Keys currently kept as candidates for the top-k; any other key has a count too small to be in it.
+     * @return copy of the candidate keys
+     */
+    public synchronized Set<K> candidates() {
+        return new HashSet<>(candidates.keySet());
+    }
+
+    /**
+     * Estimated decayed count of a key. Never below the true count.
+     * @param key key
+     * @param nowMillis time of the query, in epoch milliseconds
+     * @return count
+     */
+    public synchronized double estimate(K key, long nowMillis) {
+        if (landmark < 0) {
+            return 0;
+        }
+        int h = key.hashCode();
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < sketch.length; i++) {
+            estimate = Math.min(estimate, sketch[i][slot(h, i)]);
+        }
+        return estimate * Math.exp(-(nowMillis - landmark) / lifetimeMillis);
+    }
+
+    private int slot(int hash, int row) {
+        int x = (hash ^ seeds[row]) * 0x85EBCA6B;
+        x ^= x >>> 13;
+        x *= 0xC2B2AE35;
+        x ^= x >>> 16;
+        return Math.floorMod(x, width);
+    }
+
+    private void rescale(long timeMillis) {
+        double factor = Math.exp(-(timeMillis - landmark) / lifetimeMillis);
+        for (double[] row : sketch) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] *= factor;
+            }
+        }
+        for (Candidate<K> c : heap) {
+            c.weight *= factor;
+        }
+        landmark = timeMillis;
+    }
+
+    private void offer(K key, double weight) {
+        Candidate<K> c = candidates.get(key);
+        if (c != null) {
+            c.weight = weight;
+            siftDown(c.index);
+        } else if (heap.size() < capacity) {
+            c = new Candidate<>(key, weight);
+            candidates.put(key, c);
+            c.index = heap.size();
+            heap.add(c);
+            siftUp(c.index);
+        } else if (weight > heap.getFirst().weight) {
+            candidates.remove(heap.getFirst().key);
+            c = new Candidate<>(key, weight);
+            candidates.put(key, c);
+            set(0, c);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap.get(parent).weight <= heap.get(i).weight) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < heap.size(); child++) {
+                if (heap.get(child).weight < heap.get(smallest).weight) {
+                    smallest = child;
+                }
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Candidate<K> ca = heap.get(a);
+        set(a, heap.get(b));
+        set(b, ca);
+    }
+
+    private void set(int i, Candidate<K> c) {
+        heap.set(i, c);
+        c.index = i;
+    }
+}
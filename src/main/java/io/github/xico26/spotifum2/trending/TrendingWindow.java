@@ -0,0 +1,28 @@
+package io.github.xico26.spotifum2.trending;
+
+import java.time.Duration;
+
+/**
+ * Time scales of the trending charts. Each one weighs a play by e^(-age / lifetime).
+ */
+public enum TrendingWindow {
+    HOUR("Last hour", Duration.ofHours(1)),
+    DAY("Last day", Duration.ofDays(1)),
+    WEEK("Last week", Duration.ofDays(7));
+
+    private final String label;
+    private final Duration lifetime;
+
+    TrendingWindow(String label, Duration lifetime) {
+        this.label = label;
+        this.lifetime = lifetime;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Duration getLifetime() {
+        return lifetime;
+    }
+}
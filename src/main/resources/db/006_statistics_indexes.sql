@@ -0,0 +1,13 @@
+-- Indexes backing the aggregate queries of StatisticsDAOImpl.
+-- CONCURRENTLY keeps user_listened_music writable while they are built; run outside a transaction.
+
+-- top listener (all time): index-only GROUP BY user_id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_listened_music_user ON user_listened_music (user_id);
+-- top listener (last month): range scan on listened_at
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_listened_music_listened_at ON user_listened_music (listened_at, user_id);
+-- most played music: top-1 without a sort
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_music_num_plays ON music (num_plays DESC);
+-- user with most points
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_points ON users (points DESC);
+-- user with most playlists
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_playlist_user ON playlist (user_id);
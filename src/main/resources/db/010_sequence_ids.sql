@@ -0,0 +1,22 @@
+-- Moves every table from IDENTITY/SERIAL ids to the sequences used by the entities
+-- (<table>_seq, INCREMENT BY 50 to match allocationSize = 50 of the pooled optimizer).
+-- Existing ids are kept; each sequence starts past the current maximum. Run once, with the application stopped.
+
+DO $$
+DECLARE
+    t text;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['users', 'artist', 'album', 'music', 'library', 'playlist', 'user_listened_music'] LOOP
+        -- Hibernate now supplies the ids, so the column must accept them
+        IF EXISTS (SELECT 1 FROM pg_attribute
+                   WHERE attrelid = t::regclass AND attname = 'id' AND attidentity <> '') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', t);
+        ELSE
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP DEFAULT', t);
+        END IF;
+
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50 MINVALUE 1', t || '_seq');
+        -- the pooled optimizer hands out (value - 49 .. value], so the first block starts at max(id) + 1
+        EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 50, false)', t || '_seq', t);
+    END LOOP;
+END $$;
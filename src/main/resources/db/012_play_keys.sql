@@ -0,0 +1,6 @@
+-- Key of each play, taken from the local play journal (PlayJournal), so plays replayed after a crash are written once.
+-- Rows written before the journal keep a NULL key; the unique index ignores them.
+-- CONCURRENTLY keeps user_listened_music writable while the index is built; run outside a transaction.
+
+ALTER TABLE user_listened_music ADD COLUMN IF NOT EXISTS play_key uuid;
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_user_listened_music_play_key ON user_listened_music (play_key);
@@ -0,0 +1,25 @@
+-- Append-only points ledger (PointsEntry). users.points stays as the running balance, kept equal to the
+-- sum of each user's entries by atomic increments. Run once, with the application stopped.
+
+CREATE SEQUENCE IF NOT EXISTS points_ledger_seq INCREMENT BY 50 MINVALUE 1;
+
+CREATE TABLE IF NOT EXISTS points_ledger (
+    id         integer      PRIMARY KEY,
+    user_id    integer      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    delta      integer      NOT NULL,
+    reason     varchar(32)  NOT NULL,
+    created_at timestamp(6) NOT NULL
+);
+
+-- compaction: entries of a user older than the cutoff
+CREATE INDEX IF NOT EXISTS idx_points_ledger_created_at ON points_ledger (created_at, user_id);
+CREATE INDEX IF NOT EXISTS idx_points_ledger_user ON points_ledger (user_id);
+
+-- opening entry with each user's current balance, so the ledger accounts for every point
+INSERT INTO points_ledger (id, user_id, delta, reason, created_at)
+SELECT row_number() OVER (ORDER BY id), id, points, 'COMPACTED', now()
+FROM users
+WHERE points <> 0 AND NOT EXISTS (SELECT 1 FROM points_ledger);
+
+-- the pooled optimizer hands out (value - 49 .. value], so the first block starts at max(id) + 1
+SELECT setval('points_ledger_seq', COALESCE((SELECT MAX(id) FROM points_ledger), 0) + 50, false);
@@ -0,0 +1,7 @@
+-- Set of musics each user has listened to, as a serialized RoaringBitmap of music ids (ListenedSetService).
+-- Rows are created on first use from the listening history; deleting them is always safe.
+
+CREATE TABLE IF NOT EXISTS user_listened_set (
+    user_id integer PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    bitmap  bytea   NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Indexes on the referencing side of the join tables, so DeletionDAOImpl can remove every reference to a
+-- music, album or playlist with an index scan. The primary keys start with the owning side and do not help.
+-- CONCURRENTLY keeps the tables writable while they are built; run outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_playlist_music_music ON playlist_music (music_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_library_saved_musics_music ON library_saved_musics (music_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_library_saved_albums_album ON library_saved_albums (album_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_library_saved_playlists_playlist ON library_saved_playlists (playlist_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_listened_music_music ON user_listened_music (music_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_music_album ON music (album_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_album_artist ON album (artist_id);
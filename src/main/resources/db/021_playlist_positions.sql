@@ -0,0 +1,16 @@
+-- Ordered playlists: every playlist_music row gets a position, spaced by PlaylistTrack.GAP (1024) so a track can be
+-- inserted or moved by writing only its own row. Existing rows keep the order in which they are stored.
+
+ALTER TABLE playlist_music ADD COLUMN IF NOT EXISTS position bigint;
+
+UPDATE playlist_music pm
+SET position = n.rn * 1024
+FROM (SELECT ctid, row_number() OVER (PARTITION BY playlist_id ORDER BY ctid) AS rn FROM playlist_music) n
+WHERE pm.ctid = n.ctid AND pm.position IS NULL;
+
+ALTER TABLE playlist_music ALTER COLUMN position SET NOT NULL;
+ALTER TABLE playlist_music DROP CONSTRAINT IF EXISTS playlist_music_pkey;
+ALTER TABLE playlist_music ADD PRIMARY KEY (playlist_id, position);
+
+-- PlaylistService.hasMusic looks a music up within one playlist
+CREATE INDEX IF NOT EXISTS idx_playlist_music_playlist_music ON playlist_music (playlist_id, music_id);
@@ -0,0 +1,11 @@
+-- Lyrics in a table of their own, compressed (LyricsCodec), so that reading musics never reads them.
+-- After running this script, move the lyrics still in music.lyrics with "Migrate lyrics" in the administration
+-- menu (LyricsService.migrate), which compresses them into this table and clears the column. Then drop it:
+--   ALTER TABLE music DROP COLUMN lyrics;
+
+CREATE TABLE IF NOT EXISTS music_lyrics (
+    music_id   integer  PRIMARY KEY REFERENCES music (id) ON DELETE CASCADE,
+    dictionary smallint NOT NULL,
+    line_index bytea    NOT NULL,
+    body       bytea    NOT NULL
+);
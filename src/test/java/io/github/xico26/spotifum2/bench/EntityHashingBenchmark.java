@@ -0,0 +1,180 @@
+package io.github.xico26.spotifum2.bench;
+
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.CustomPlaylist;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set and map operations on the entities kept in libraries and playlists, in memory.
+ * "id" uses the entities themselves; "fields" wraps them in keys with the previous equals/hashCode, which hashed
+ * every field of a music (and its artist through the album) and the whole music list of a playlist.
+ * Albums and artists are compared by id in both, so "fields" slightly understates the previous cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityHashingBenchmark {
+    @Param({"id", "fields"})
+    public String identity;
+
+    @Param({"100", "1000"})
+    public int librarySize;
+
+    @Param({"50"})
+    public int playlistSize;
+
+    private List<Object> musics;
+    private List<Object> playlists;
+    private List<Object> history;
+    private Set<Object> savedMusics;
+    private Set<Object> savedPlaylists;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Artist artist = new Artist();
+        artist.setId(1);
+        artist.setName("Artist");
+        artist.setCountry("Portugal");
+        artist.setBirthDate(LocalDate.of(1970, 1, 1));
+        Album album = new Album("Album", "Label", 2000, artist);
+        album.setId(1);
+        User user = new User("user", "user", "User", "Braga", "user@spotifum", LocalDate.of(2000, 1, 1), "PREMIUM");
+        user.setId(1);
+
+        Random random = new Random(42);
+        List<Music> entities = new ArrayList<>(librarySize);
+        for (int i = 0; i < librarySize; i++) {
+            Music m = new Music("Music " + i, "Rock", 180 + i, album);
+            m.setId(i + 1);
+            entities.add(m);
+        }
+        List<Playlist> lists = new ArrayList<>();
+        for (int i = 0; i < librarySize / 10; i++) {
+            Playlist p = new CustomPlaylist("Playlist " + i, user);
+            for (int j = 0; j < playlistSize; j++) {
+                p.addMusic(entities.get(random.nextInt(librarySize)));
+            }
+            lists.add(p);
+        }
+
+        boolean byFields = identity.equals("fields");
+        musics = entities.stream().map(m -> byFields ? new MusicFields(m) : (Object) m).toList();
+        playlists = lists.stream().map(p -> byFields ? new PlaylistFields(p) : (Object) p).toList();
+        history = new ArrayList<>(librarySize * 5);
+        for (int i = 0; i < librarySize * 5; i++) {
+            double r = random.nextDouble();
+            history.add(musics.get((int) (librarySize * r * r)));
+        }
+        savedMusics = new HashSet<>(musics);
+        savedPlaylists = new HashSet<>(playlists);
+    }
+
+    /**
+     * What Library.getMusics() used to do on every call.
+     */
+    @Benchmark
+    public Set<Object> copyLibrary() {
+        return new HashSet<>(musics);
+    }
+
+    @Benchmark
+    public int libraryContains() {
+        int found = 0;
+        for (Object m : musics) {
+            if (savedMusics.contains(m)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int savedPlaylistContains() {
+        int found = 0;
+        for (Object p : playlists) {
+            if (savedPlaylists.contains(p)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Plays per music, as the Favourites List was built before it was computed by the database.
+     */
+    @Benchmark
+    public Map<Object, Integer> countPlays() {
+        Map<Object, Integer> plays = new HashMap<>();
+        for (Object m : history) {
+            plays.merge(m, 1, Integer::sum);
+        }
+        return plays;
+    }
+
+    // previous Music.equals/hashCode; musics then carried their lyrics
+    private record MusicFields(Music m) {
+        private static final String LYRICS = "la ".repeat(200);
+
+        @Override
+        public int hashCode() {
+            return m.getId() * 17 + m.getTitle().hashCode() + m.getArtist().hashCode() + m.getGenre().hashCode()
+                    + LYRICS.hashCode() + m.getDuration() * 5 + m.getNumPlays() * 3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MusicFields other)) {
+                return false;
+            }
+            Music n = other.m;
+            return m.getId() == n.getId() && m.getTitle().equals(n.getTitle()) && m.getAlbum().equals(n.getAlbum()) && m.getGenre().equals(n.getGenre());
+        }
+    }
+
+    // previous Playlist.equals/hashCode
+    private record PlaylistFields(Playlist p) {
+        @Override
+        public int hashCode() {
+            int musics = 1;
+            for (Music m : p.getMusics()) {
+                musics = 31 * musics + new MusicFields(m).hashCode();
+            }
+            return (p.getName().hashCode() + musics) * 17;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlaylistFields other)) {
+                return false;
+            }
+            List<Music> a = p.getMusics();
+            List<Music> b = other.p.getMusics();
+            if (!p.getName().equals(other.p.getName()) || p.isPublic() != other.p.isPublic() || a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                if (!new MusicFields(a.get(i)).equals(new MusicFields(b.get(i)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.xico26.spotifum2.bench;
+
+import io.github.xico26.spotifum2.dao.*;
+import io.github.xico26.spotifum2.model.dto.MusicPlayCount;
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.ListeningRecord;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Favourites List generation against a real spotifumPU database, for growing listening histories.
+ * Compares the grouped top-K query with the previous unique-listens + one COUNT per track approach.
+ * Every trial seeds its own artist, album, tracks and user and removes them afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FavouritesListBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int historyLength;
+
+    @Param({"20"})
+    public int listSize;
+
+    private TestCatalog catalog;
+    private UnitOfWork uow;
+    private ListeningRecordDAO lrDAO;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        catalog = TestCatalog.open("bench");
+        uow = catalog.getUnitOfWork();
+        lrDAO = new ListeningRecordDAOImpl(uow);
+
+        Album album = catalog.album("", catalog.artist(""));
+
+        // a heavy listener repeats tracks: one distinct track for every five plays
+        int distinct = Math.max(1, historyLength / 5);
+        List<Music> musics = catalog.musics("", distinct, album);
+
+        user = catalog.user("");
+
+        // skewed popularity so the top of the ranking is well defined
+        Random random = new Random(42);
+        List<ListeningRecord> history = new ArrayList<>(historyLength);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < historyLength; i++) {
+            double r = random.nextDouble();
+            Music music = musics.get((int) (distinct * r * r));
+            history.add(new ListeningRecord(user, music, now.minusMinutes(i)));
+        }
+        lrDAO.saveAll(history);
+    }
+
+    @Benchmark
+    public List<MusicPlayCount> groupedTopK() {
+        return uow.transaction(() -> lrDAO.findTopListened(user, listSize));
+    }
+
+    @Benchmark
+    public List<Music> countPerTrack() {
+        return uow.transaction(() -> {
+            Map<Music, Integer> weights = new HashMap<>();
+            for (Music music : lrDAO.getUniqueListens(user)) {
+                weights.put(music, lrDAO.getNumListensToMusic(user, music));
+            }
+            return weights.entrySet().stream()
+                    .sorted(Map.Entry.<Music, Integer>comparingByValue().reversed())
+                    .limit(listSize)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lrDAO.deleteByUser(user);
+        catalog.close();
+    }
+}
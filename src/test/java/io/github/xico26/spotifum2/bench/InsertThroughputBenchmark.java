@@ -0,0 +1,109 @@
+package io.github.xico26.spotifum2.bench;
+
+import jakarta.persistence.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts per second with IDENTITY ids (one round trip per row) against SEQUENCE ids with the pooled optimizer
+ * (JDBC batches of {@value #BATCH}). Each mode inserts rows shaped like user_listened_music into its own scratch
+ * table, created and dropped by the benchmark in the spotifum database. Connection settings can be overridden
+ * with -Dbench.jdbc.url, -Dbench.jdbc.user and -Dbench.jdbc.password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class InsertThroughputBenchmark {
+    private static final int ROWS = 1000;
+    private static final int BATCH = 50;
+
+    @Param({"IDENTITY", "SEQUENCE"})
+    public String ids;
+
+    private EntityManagerFactory emf;
+
+    @Entity(name = "IdentityRow")
+    @Table(name = "bench_identity_row")
+    public static class IdentityRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        int id;
+        int userId;
+        int musicId;
+        LocalDateTime listenedAt;
+    }
+
+    @Entity(name = "SequenceRow")
+    @Table(name = "bench_sequence_row")
+    public static class SequenceRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bench_sequence_row_seq")
+        @SequenceGenerator(name = "bench_sequence_row_seq", sequenceName = "bench_sequence_row_seq", allocationSize = BATCH)
+        int id;
+        int userId;
+        int musicId;
+        LocalDateTime listenedAt;
+    }
+
+    @Setup(Level.Trial)
+    public void createTables() {
+        emf = new PersistenceConfiguration("insert-throughput")
+                .managedClass(IdentityRow.class)
+                .managedClass(SequenceRow.class)
+                .property(PersistenceConfiguration.JDBC_DRIVER, "org.postgresql.Driver")
+                .property(PersistenceConfiguration.JDBC_URL, System.getProperty("bench.jdbc.url",
+                        "jdbc:postgresql://localhost:5432/spotifum?reWriteBatchedInserts=true"))
+                .property(PersistenceConfiguration.JDBC_USER, System.getProperty("bench.jdbc.user", "postgres"))
+                .property(PersistenceConfiguration.JDBC_PASSWORD, System.getProperty("bench.jdbc.password", "postgresroot"))
+                .property(PersistenceConfiguration.SCHEMAGEN_DATABASE_ACTION, "drop-and-create")
+                .property("hibernate.jdbc.batch_size", BATCH)
+                .property("hibernate.order_inserts", true)
+                .createEntityManagerFactory();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insert() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(row(i, now));
+                if ((i + 1) % BATCH == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private Object row(int i, LocalDateTime now) {
+        if (ids.equals("IDENTITY")) {
+            IdentityRow r = new IdentityRow();
+            r.userId = i % 100;
+            r.musicId = i;
+            r.listenedAt = now;
+            return r;
+        }
+        SequenceRow r = new SequenceRow();
+        r.userId = i % 100;
+        r.musicId = i;
+        r.listenedAt = now;
+        return r;
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTables() {
+        emf.getSchemaManager().drop(true);
+        emf.close();
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.dto.Page;
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import io.github.xico26.spotifum2.playlist.LazyTrackList;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Each screen reads what it shows in a number of SELECTs that does not grow with the number of tracks, albums
+ * or artists on it, and nothing is loaded lazily after the unit of work closes.
+ * Every screen is read for a small and a large data set, seeded in the spotifumPU database and removed afterwards;
+ * skipped when the database is not reachable.
+ */
+public class FetchPlanTest {
+    private static final int SMALL = 3;
+    private static final int LARGE = 30;
+
+    private static TestCatalog catalog;
+    private static UnitOfWork uow;
+    private static Statistics statistics;
+
+    private static final List<Music> singles = new ArrayList<>();
+    private static Album smallAlbum;
+    private static Album largeAlbum;
+    private static User small;
+    private static User large;
+    private static Playlist smallPlaylist;
+    private static Playlist largePlaylist;
+
+    @BeforeAll
+    public static void seed() {
+        catalog = TestCatalog.openIfReachable("fetch");
+        if (catalog == null) {
+            return;
+        }
+        uow = catalog.getUnitOfWork();
+        statistics = catalog.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        PlaylistTrackDAO trackDAO = new PlaylistTrackDAOImpl(uow);
+        LibraryDAO libraryDAO = new LibraryDAOImpl(uow);
+
+        uow.transaction(() -> {
+            // one album with one music per artist, so that every track of a list has its own album and artist
+            List<Artist> artists = new ArrayList<>();
+            for (int i = 0; i < LARGE; i++) {
+                Artist artist = catalog.artist(String.valueOf(i));
+                artists.add(artist);
+                singles.addAll(catalog.musics(String.valueOf(i), 1, catalog.album(String.valueOf(i), artist)));
+            }
+            smallAlbum = catalog.album("small", artists.getFirst());
+            largeAlbum = catalog.album("large", artists.getFirst());
+            catalog.musics("small", SMALL, smallAlbum);
+            catalog.musics("large", LARGE, largeAlbum);
+
+            small = catalog.user("small");
+            large = catalog.user("large");
+
+            smallPlaylist = catalog.playlist("small", small);
+            largePlaylist = catalog.playlist("large", large);
+            List<Integer> ids = singles.stream().map(Music::getId).toList();
+            trackDAO.append(smallPlaylist.getId(), ids.subList(0, SMALL));
+            trackDAO.append(largePlaylist.getId(), ids);
+        });
+        uow.transaction(() -> {
+            int smallLibrary = libraryDAO.findContents(small.getId()).libraryId();
+            int largeLibrary = libraryDAO.findContents(large.getId()).libraryId();
+            for (int i = 0; i < LARGE; i++) {
+                if (i < SMALL) {
+                    libraryDAO.addMusic(smallLibrary, singles.get(i).getId());
+                    libraryDAO.addAlbum(smallLibrary, singles.get(i).getAlbum().getId());
+                }
+                libraryDAO.addMusic(largeLibrary, singles.get(i).getId());
+                libraryDAO.addAlbum(largeLibrary, singles.get(i).getAlbum().getId());
+            }
+            libraryDAO.addPlaylist(smallLibrary, smallPlaylist.getId());
+            libraryDAO.addPlaylist(largeLibrary, smallPlaylist.getId());
+            libraryDAO.addPlaylist(largeLibrary, largePlaylist.getId());
+        });
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    @BeforeEach
+    public void requireDatabase() {
+        Assumptions.assumeTrue(catalog != null, "spotifumPU database not reachable");
+    }
+
+    @Test
+    public void testAlbumDetail() {
+        AlbumDAO albumDAO = new AlbumDAOImpl(uow);
+        long smallCount = selects(() -> show(albumDAO.findDetail(smallAlbum.getId()).getMusics()));
+        long largeCount = selects(() -> show(albumDAO.findDetail(largeAlbum.getId()).getMusics()));
+        assertEquals(smallCount, largeCount);
+    }
+
+    @Test
+    public void testPlaylistPlayback() {
+        PlaylistTrackDAO trackDAO = new PlaylistTrackDAOImpl(uow);
+        long smallCount = selects(() -> show(new LazyTrackList(trackDAO, smallPlaylist.getId(), 200, 4)));
+        long largeCount = selects(() -> show(new LazyTrackList(trackDAO, largePlaylist.getId(), 200, 4)));
+        assertEquals(smallCount, largeCount);
+    }
+
+    @Test
+    public void testLibraryOverview() {
+        LibraryDAO libraryDAO = new LibraryDAOImpl(uow);
+        long smallCount = selects(() -> overview(libraryDAO, small, SMALL, 1));
+        long largeCount = selects(() -> overview(libraryDAO, large, LARGE, 2));
+        assertEquals(smallCount, largeCount);
+    }
+
+    private static void overview(LibraryDAO libraryDAO, User u, int expected, int playlists) {
+        assertEquals(expected, show(libraryDAO.findSavedMusics(u, Page.FIRST, LARGE).items()));
+        assertEquals(expected, show(libraryDAO.findSavedAlbums(u, Page.FIRST, LARGE).items()));
+        assertEquals(playlists, show(libraryDAO.findSavedPlaylists(u, Page.FIRST, LARGE).items()));
+    }
+
+    // what the screens print; throws if anything was left to load lazily
+    private static int show(List<?> items) {
+        items.forEach(Object::toString);
+        return items.size();
+    }
+
+    // SELECTs run by a screen, with the second-level cache empty
+    private static long selects(Runnable screen) {
+        catalog.getEntityManagerFactory().getCache().evictAll();
+        statistics.clear();
+        screen.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.model.entity.playlist.PlaylistTrack;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order of playlist tracks after inserts, moves and removes, including the renumbering of a playlist whose
+ * neighbouring positions have no room left between them.
+ * Every test gets a new playlist with the musics a, b and c, in the spotifumPU database; the data is removed
+ * afterwards. Skipped when the database is not reachable.
+ */
+public class PlaylistTrackDAOTest {
+    private static final int MUSICS = 16;
+
+    private static TestCatalog catalog;
+    private static PlaylistTrackDAO trackDAO;
+
+    private static final List<Integer> musics = new ArrayList<>();
+    private static User user;
+    private Playlist playlist;
+
+    @BeforeAll
+    public static void seed() {
+        catalog = TestCatalog.openIfReachable("tracks");
+        if (catalog == null) {
+            return;
+        }
+        trackDAO = new PlaylistTrackDAOImpl(catalog.getUnitOfWork());
+        catalog.getUnitOfWork().transaction(() -> {
+            Album album = catalog.album("", catalog.artist(""));
+            List<Music> saved = catalog.musics("", MUSICS, album);
+            user = catalog.user("");
+            catalog.getUnitOfWork().afterCommit(() -> saved.forEach(m -> musics.add(m.getId())));
+        });
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    @BeforeEach
+    public void createPlaylist() {
+        Assumptions.assumeTrue(catalog != null, "spotifumPU database not reachable");
+        catalog.getUnitOfWork().transaction(() -> {
+            playlist = catalog.playlist(String.valueOf(System.nanoTime()), user);
+            trackDAO.append(playlist.getId(), List.of(music(0), music(1), music(2)));
+        });
+    }
+
+    @Test
+    public void testInsertAtStart() {
+        trackDAO.insert(playlist.getId(), 0, music(3));
+        assertEquals(List.of(music(3), music(0), music(1), music(2)), order());
+    }
+
+    @Test
+    public void testInsertInTheMiddle() {
+        trackDAO.insert(playlist.getId(), 2, music(3));
+        assertEquals(List.of(music(0), music(1), music(3), music(2)), order());
+    }
+
+    @Test
+    public void testInsertPastTheEnd() {
+        trackDAO.insert(playlist.getId(), 3, music(3));
+        trackDAO.insert(playlist.getId(), 10, music(4));
+        assertEquals(List.of(music(0), music(1), music(2), music(3), music(4)), order());
+    }
+
+    @Test
+    public void testMove() {
+        trackDAO.move(playlist.getId(), 0, 2);
+        assertEquals(List.of(music(1), music(2), music(0)), order());
+        trackDAO.move(playlist.getId(), 2, 0);
+        assertEquals(List.of(music(0), music(1), music(2)), order());
+        trackDAO.move(playlist.getId(), 2, 1);
+        assertEquals(List.of(music(0), music(2), music(1)), order());
+    }
+
+    @Test
+    public void testRemove() {
+        trackDAO.remove(playlist.getId(), 1);
+        assertEquals(List.of(music(0), music(2)), order());
+        trackDAO.remove(playlist.getId(), 5);
+        assertEquals(2, trackDAO.count(playlist.getId()));
+    }
+
+    @Test
+    public void testRenumber() {
+        // each insert after the first track halves the gap left there; the eleventh finds none and renumbers
+        List<Integer> expected = new ArrayList<>(List.of(music(0), music(1), music(2)));
+        for (int i = 3; i < MUSICS; i++) {
+            trackDAO.insert(playlist.getId(), 1, music(i));
+            expected.add(1, music(i));
+        }
+        assertEquals(expected, order());
+
+        List<PlaylistTrack> tracks = trackDAO.findAt(playlist.getId(), 0, MUSICS);
+        assertTrue(tracks.getFirst().getPosition() > 0);
+        assertTrue(tracks.getLast().getPosition() > 3 * PlaylistTrack.GAP, "playlist was not renumbered");
+        for (int i = 1; i < tracks.size(); i++) {
+            assertTrue(tracks.get(i - 1).getPosition() < tracks.get(i).getPosition());
+        }
+    }
+
+    private static int music(int i) {
+        return musics.get(i);
+    }
+
+    private List<Integer> order() {
+        return trackDAO.findAt(playlist.getId(), 0, MUSICS + 1).stream().map(t -> t.getMusic().getId()).toList();
+    }
+}
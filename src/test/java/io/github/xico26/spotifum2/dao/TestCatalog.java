@@ -0,0 +1,134 @@
+package io.github.xico26.spotifum2.dao;
+
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.User;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import io.github.xico26.spotifum2.model.entity.playlist.CustomPlaylist;
+import io.github.xico26.spotifum2.model.entity.playlist.Playlist;
+import io.github.xico26.spotifum2.persistence.UnitOfWork;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test data in the spotifumPU database, for the tests and benchmarks that need a real database.
+ * Everything is named after one run, so runs never see each other's data, and is removed on {@link #close()}.
+ */
+public final class TestCatalog implements AutoCloseable {
+    private final EntityManagerFactory emf;
+    private final UnitOfWork uow;
+    private final String run;
+
+    private final List<Artist> artists = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private final List<Playlist> playlists = new ArrayList<>();
+
+    private TestCatalog(EntityManagerFactory emf, String prefix) {
+        this.emf = emf;
+        this.uow = new UnitOfWork(emf);
+        this.run = prefix + "-" + System.nanoTime();
+    }
+
+    /**
+     * Connects to the spotifumPU database.
+     * @param prefix start of the names given to the data
+     * @return the catalog
+     * @throws RuntimeException if the database is not reachable
+     */
+    public static TestCatalog open(String prefix) {
+        return new TestCatalog(Persistence.createEntityManagerFactory("spotifumPU"), prefix);
+    }
+
+    /**
+     * Connects to the spotifumPU database, for tests that are skipped without one.
+     * @param prefix start of the names given to the data
+     * @return the catalog, null if the database is not reachable
+     */
+    public static TestCatalog openIfReachable(String prefix) {
+        try {
+            return open(prefix);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+
+    public UnitOfWork getUnitOfWork() {
+        return uow;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public Artist artist(String name) {
+        Artist artist = new Artist();
+        artist.setName(name(name));
+        new ArtistDAOImpl(uow).save(artist);
+        artists.add(artist);
+        return artist;
+    }
+
+    public Album album(String name, Artist artist) {
+        Album album = new Album(name(name), "test", 2000, artist);
+        new AlbumDAOImpl(uow).save(album);
+        return album;
+    }
+
+    /**
+     * Saves musics named name-0, name-1, ... in one batch.
+     * @param name start of the titles
+     * @param count number of musics
+     * @param album album of the musics
+     * @return the musics, in order
+     */
+    public List<Music> musics(String name, int count, Album album) {
+        List<Music> musics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            musics.add(new Music(name(name) + "-" + i, "test", 180, album));
+        }
+        new MusicDAOImpl(uow).saveAll(musics);
+        return musics;
+    }
+
+    public User user(String name) {
+        String username = name(name);
+        User user = new User(username, run, run, run, username + "@test", LocalDate.of(2000, 1, 1), "PREMIUM");
+        new UserDAOImpl(uow).save(user);
+        users.add(user);
+        return user;
+    }
+
+    public Playlist playlist(String name, User creator) {
+        Playlist playlist = new CustomPlaylist(name(name), creator);
+        new PlaylistDAOImpl(uow).save(playlist);
+        playlists.add(playlist);
+        return playlist;
+    }
+
+    /**
+     * Removes the playlists, the artists with their albums and musics, and the users, then disconnects.
+     */
+    @Override
+    public void close() {
+        DeletionDAO deletionDAO = new DeletionDAOImpl(uow);
+        UserDAO userDAO = new UserDAOImpl(uow);
+        uow.transaction(() -> {
+            playlists.forEach(p -> deletionDAO.deletePlaylist(p.getId()));
+            artists.forEach(a -> deletionDAO.deleteArtist(a.getId()));
+        });
+        users.forEach(userDAO::delete);
+        emf.close();
+    }
+
+    private String name(String name) {
+        return name.isEmpty() ? run : run + "-" + name;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.xico26.spotifum2.lyrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LyricsCodecTest {
+    private static final List<String> LINES = List.of(
+            "Is this the real life?",
+            "",
+            "Is this just fantasy?",
+            "Ó mar salgado, quanto do teu sal",
+            "São lágrimas de Portugal!",
+            "oh oh oh, na na na 🎵");
+
+    @Test
+    public void testLinesRoundTrip() {
+        Lyrics lyrics = LyricsCodec.open(LyricsCodec.compress(LINES));
+        assertEquals(LINES.size(), lyrics.lineCount());
+        assertEquals(LINES, read(lyrics));
+        // every iteration decodes from the start
+        assertEquals(LINES, read(lyrics));
+    }
+
+    @Test
+    public void testTextRoundTrip() {
+        String text = String.join("\n", LINES);
+        assertEquals(text, LyricsCodec.open(LyricsCodec.compress(text + "\n")).toString());
+        assertEquals(text, LyricsCodec.open(LyricsCodec.compress(text)).toString());
+    }
+
+    @Test
+    public void testEmptyLyrics() {
+        Lyrics lyrics = LyricsCodec.open(LyricsCodec.compress(""));
+        assertTrue(lyrics.isEmpty());
+        assertFalse(lyrics.iterator().hasNext());
+        assertTrue(read(Lyrics.EMPTY).isEmpty());
+    }
+
+    @Test
+    public void testPartialIteration() {
+        Iterator<String> it = LyricsCodec.open(LyricsCodec.compress(LINES)).iterator();
+        assertEquals(LINES.get(0), it.next());
+        assertEquals(LINES.get(1), it.next());
+        assertTrue(it.hasNext());
+    }
+
+    @Test
+    public void testLongLyricsCompress() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add("I don't know why you say goodbye, I say hello " + i);
+        }
+        CompressedLyrics compressed = LyricsCodec.compress(lines);
+        assertTrue(compressed.body().length < String.join("", lines).length() / 4);
+        assertEquals(lines, read(LyricsCodec.open(compressed)));
+    }
+
+    @Test
+    public void testTruncatedBodyFails() {
+        CompressedLyrics compressed = LyricsCodec.compress(LINES);
+        CompressedLyrics truncated = new CompressedLyrics(compressed.dictionary(), compressed.lineIndex(),
+                Arrays.copyOf(compressed.body(), compressed.body().length / 2));
+        assertThrows(IllegalStateException.class, () -> read(LyricsCodec.open(truncated)));
+    }
+
+    private static List<String> read(Lyrics lyrics) {
+        List<String> lines = new ArrayList<>();
+        lyrics.forEach(lines::add);
+        return lines;
+    }
+}
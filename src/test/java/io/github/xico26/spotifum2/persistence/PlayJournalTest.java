@@ -0,0 +1,111 @@
+package io.github.xico26.spotifum2.persistence;
+
+import io.github.xico26.spotifum2.model.dto.PlayEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayJournalTest {
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testUncommittedPlaysSurviveReopening() {
+        PlayEvent first;
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            first = journal.append(1, 10, AT, 5);
+            journal.append(2, 20, AT.plusSeconds(1), 10);
+            journal.append(3, 30, AT.plusSeconds(2), 15);
+            journal.commit(1);
+        }
+
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            List<PlayEvent> replay = journal.uncommitted();
+            assertEquals(2, replay.size());
+            assertEquals(2, replay.get(0).userId());
+            assertEquals(20, replay.get(0).musicId());
+            assertEquals(AT.plusSeconds(1), replay.get(0).listenedAt());
+            assertEquals(10, replay.get(0).points());
+            assertEquals(3, replay.get(1).userId());
+            assertNotEquals(first.key(), replay.get(0).key());
+
+            // new plays go after the replayed ones
+            journal.append(4, 40, AT, 0);
+            assertEquals(3, journal.getUncommitted());
+        }
+    }
+
+    @Test
+    public void testKeysAreKeptAcrossReplays() {
+        PlayEvent play;
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            play = journal.append(1, 10, AT, 5);
+        }
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            assertEquals(play.key(), journal.uncommitted().getFirst().key());
+        }
+    }
+
+    @Test
+    public void testTornRecordEndsReplay() throws IOException {
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            journal.append(1, 10, AT, 5);
+            journal.append(2, 20, AT, 5);
+        }
+        // corrupt the second record as if the process died while writing it
+        Path segment = segments().getFirst();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{7}), PlayJournal.RECORD_BYTES + 22);
+        }
+
+        try (PlayJournal journal = new PlayJournal(dir, 16)) {
+            assertEquals(1, journal.uncommitted().size());
+            journal.append(3, 30, AT, 5);
+            List<PlayEvent> replay = journal.uncommitted();
+            assertEquals(2, replay.size());
+            assertEquals(3, replay.get(1).userId());
+        }
+    }
+
+    @Test
+    public void testCommittedSegmentsAreDeleted() throws IOException {
+        try (PlayJournal journal = new PlayJournal(dir, 4)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(i, i, AT, i);
+            }
+            assertEquals(3, segments().size());
+            assertEquals(10, journal.getUncommitted());
+
+            journal.commit(5);
+            assertEquals(2, segments().size());
+            assertEquals(5, journal.uncommitted().getFirst().userId());
+
+            journal.commit(5);
+            assertEquals(1, segments().size());
+            assertTrue(journal.uncommitted().isEmpty());
+        }
+
+        try (PlayJournal journal = new PlayJournal(dir, 4)) {
+            assertTrue(journal.uncommitted().isEmpty());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("plays-")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.xico26.spotifum2.playback;
+
+import io.github.xico26.spotifum2.lyrics.Lyrics;
+import io.github.xico26.spotifum2.lyrics.LyricsCodec;
+import io.github.xico26.spotifum2.model.entity.Album;
+import io.github.xico26.spotifum2.model.entity.Artist;
+import io.github.xico26.spotifum2.model.entity.music.ExplicitMusic;
+import io.github.xico26.spotifum2.model.entity.music.Music;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlaybackSessionTest {
+    private final List<Music> played = Collections.synchronizedList(new ArrayList<>());
+    private final Consumer<FinishedPlay> sink = play -> played.add(play.music());
+    private List<Music> musics;
+
+    @BeforeEach
+    public void setup() {
+        Album album = new Album("Album", "Label", 2000, new Artist());
+        musics = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Music m = new Music("Music " + i, "Rock", 180, album);
+            if (i == 3) {
+                m = new ExplicitMusic(m);
+            }
+            m.setId(i);
+            musics.add(m);
+        }
+    }
+
+    private PlaybackSession open(boolean wantsExplicit, boolean canGoBack) {
+        return new PlaybackSession(musics, wantsExplicit, canGoBack, m -> LyricsCodec.open(LyricsCodec.compress(m.getTitle())), sink, 2);
+    }
+
+    @Test
+    public void testPlaysInOrderSkippingExplicit() {
+        try (PlaybackSession session = open(false, true)) {
+            while (session.hasCurrent()) {
+                session.finish();
+            }
+        }
+        assertEquals(List.of(1, 2, 4, 5), played.stream().map(Music::getId).toList());
+    }
+
+    @Test
+    public void testTracksCarryTheirLyrics() {
+        try (PlaybackSession session = open(true, true)) {
+            Lyrics lyrics = session.current().lyrics();
+            assertEquals("Music 1", lyrics.toString());
+            assertEquals(musics.get(1), session.upcoming());
+        }
+    }
+
+    @Test
+    public void testPreviousNeedsThePlan() {
+        try (PlaybackSession session = open(false, false)) {
+            session.next();
+            assertFalse(session.previous());
+            assertEquals(2, session.current().music().getId());
+        }
+        try (PlaybackSession session = open(false, true)) {
+            assertFalse(session.previous());
+            session.next();
+            session.next();
+            assertEquals(4, session.current().music().getId());
+            assertTrue(session.previous());
+            assertEquals(2, session.current().music().getId());
+        }
+        assertTrue(played.isEmpty());
+    }
+
+    @Test
+    public void testRepeat() {
+        try (PlaybackSession session = open(true, true)) {
+            session.setRepeat(RepeatMode.ONE);
+            session.finish();
+            session.finish();
+            assertEquals(1, session.current().music().getId());
+
+            session.setRepeat(RepeatMode.ALL);
+            for (int i = 0; i < musics.size(); i++) {
+                session.finish();
+            }
+            assertTrue(session.hasCurrent());
+            assertEquals(1, session.current().music().getId());
+        }
+        assertEquals(7, played.size());
+    }
+
+    @Test
+    public void testRandomNeverRepeatsTheCurrentTrack() {
+        try (PlaybackSession session = open(false, true)) {
+            for (int i = 0; i < 50; i++) {
+                int before = session.current().music().getId();
+                session.random();
+                Music now = session.current().music();
+                assertNotEquals(before, now.getId());
+                assertFalse(now.isExplicit());
+            }
+        }
+    }
+
+    @Test
+    public void testFailedPlaysAreRetried() {
+        Set<Integer> failing = ConcurrentHashMap.newKeySet();
+        failing.add(1);
+        List<FinishedPlay> attempts = Collections.synchronizedList(new ArrayList<>());
+        Consumer<FinishedPlay> flaky = play -> {
+            attempts.add(play);
+            if (failing.remove(play.music().getId())) {
+                throw new IllegalStateException("database down");
+            }
+            played.add(play.music());
+        };
+        try (PlaybackSession session = new PlaybackSession(musics, true, true, m -> Lyrics.EMPTY, flaky, 2)) {
+            session.finish();
+            session.finish();
+            assertTrue(session.getUnregistered().isEmpty());
+        }
+        assertEquals(Set.of(1, 2), played.stream().map(Music::getId).collect(Collectors.toSet()));
+        // the retried play is the same play: same key, same time
+        List<FinishedPlay> first = attempts.stream().filter(p -> p.music().getId() == 1).toList();
+        assertEquals(2, first.size());
+        assertEquals(first.get(0), first.get(1));
+    }
+
+    @Test
+    public void testPlaysStillFailingOnCloseAreReported() {
+        PlaybackSession session = new PlaybackSession(musics, true, true, m -> Lyrics.EMPTY, m -> {
+            throw new IllegalStateException("database down");
+        }, 2);
+        session.finish();
+        session.finish();
+        session.close();
+        assertEquals(List.of(1, 2), session.getUnregistered().stream().map(p -> p.music().getId()).toList());
+    }
+
+    @Test
+    public void testSkippingExplicitDoesNotReadAhead() {
+        List<Integer> read = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 6; i <= 100; i++) {
+            Music m = new ExplicitMusic(new Music("Music " + i, "Rock", 180, musics.getFirst().getAlbum()));
+            m.setId(i);
+            musics.add(m);
+        }
+        try (PlaybackSession session = new PlaybackSession(musics, false, true, m -> {
+            read.add(m.getId());
+            return Lyrics.EMPTY;
+        }, sink, 2)) {
+            for (int i = 0; i < 4; i++) {
+                session.finish();
+            }
+            assertFalse(session.hasCurrent());
+        }
+        assertTrue(read.stream().allMatch(id -> id != 3 && id <= 5), "lyrics read for " + read);
+    }
+
+    @Test
+    public void testStopAndEmptyQueue() {
+        try (PlaybackSession session = open(true, true)) {
+            session.stop();
+            assertFalse(session.hasCurrent());
+        }
+        musics.clear();
+        try (PlaybackSession session = open(true, true)) {
+            assertFalse(session.hasCurrent());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.xico26.spotifum2.ranking;
+
+import io.github.xico26.spotifum2.model.dto.LeaderboardEntry;
+import io.github.xico26.spotifum2.model.dto.UserPoints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardTest {
+
+    private Leaderboard board;
+
+    @BeforeEach
+    public void setup() {
+        board = new Leaderboard();
+        board.put(1, "ana", 50);
+        board.put(2, "bruno", 120);
+        board.put(3, "carla", 80);
+        board.put(4, "duarte", 80);
+        board.put(5, "eva", 10);
+    }
+
+    @Test
+    public void testTopIsOrderedByPointsThenId() {
+        assertEquals(List.of(
+                new LeaderboardEntry(1, 2, "bruno", 120),
+                new LeaderboardEntry(2, 3, "carla", 80),
+                new LeaderboardEntry(3, 4, "duarte", 80)), board.top(3));
+        assertEquals(5, board.top(10).size());
+    }
+
+    @Test
+    public void testAdjustMovesUser() {
+        assertEquals(5, board.rankOf(5));
+        assertTrue(board.adjust(5, 100));
+        assertEquals(2, board.rankOf(5));
+        assertEquals(3, board.rankOf(3));
+        assertFalse(board.adjust(42, 1));
+    }
+
+    @Test
+    public void testAround() {
+        assertEquals(List.of(3, 4, 1), board.around(4, 1).stream().map(LeaderboardEntry::userId).toList());
+        assertEquals(List.of(2, 3), board.around(2, 1).stream().map(LeaderboardEntry::userId).toList());
+        assertTrue(board.around(42, 1).isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        board.remove(2);
+        assertEquals(0, board.rankOf(2));
+        assertEquals(1, board.rankOf(3));
+        assertEquals(4, board.size());
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        board.writeTo(new DataOutputStream(bytes));
+        List<UserPoints> users = Leaderboard.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Leaderboard copy = new Leaderboard();
+        users.forEach(u -> copy.put(u.userId(), u.username(), u.points()));
+        assertEquals(board.top(10), copy.top(10));
+    }
+
+    @Test
+    public void testMatchesSortedListUnderRandomUpdates() {
+        Leaderboard big = new Leaderboard();
+        Map<Integer, Integer> points = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int user = random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                big.remove(user);
+                points.remove(user);
+            } else if (points.containsKey(user)) {
+                int delta = random.nextInt(50);
+                big.adjust(user, delta);
+                points.merge(user, delta, Integer::sum);
+            } else {
+                int p = random.nextInt(1000);
+                big.put(user, "u" + user, p);
+                points.put(user, p);
+            }
+        }
+
+        List<Integer> expected = points.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(points::get).reversed().thenComparing(Comparator.naturalOrder()))
+                .toList();
+        assertEquals(expected, big.top(points.size()).stream().map(LeaderboardEntry::userId).toList());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, big.rankOf(expected.get(i)));
+        }
+    }
+}
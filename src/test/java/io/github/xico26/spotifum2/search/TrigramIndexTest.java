@@ -0,0 +1,81 @@
+package io.github.xico26.spotifum2.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new TrigramIndex();
+        index.put(1, "Bohemian Rhapsody");
+        index.put(2, "Rhapsody in Blue");
+        index.put(3, "Hungarian Rhapsody No. 2");
+        index.put(4, "Canção do Mar");
+        index.put(5, "Blue");
+    }
+
+    @Test
+    public void testSubstringMatchesRankedByPosition() {
+        assertEquals(List.of(2, 1, 3), index.search("rhapsody", 10));
+        assertEquals(List.of(5, 2), index.search("blue", 10));
+    }
+
+    @Test
+    public void testTrigramsWithoutSubstringAreRejected() {
+        // every trigram of "ody in" exists, but only one name contains it
+        assertEquals(List.of(2), index.search("ody in", 10));
+        assertTrue(index.search("xyz", 10).isEmpty());
+    }
+
+    @Test
+    public void testCaseAndAccentsAreIgnored() {
+        assertEquals(List.of(4), index.search("CANCAO", 10));
+        assertEquals(List.of(4), index.search("ção", 10));
+    }
+
+    @Test
+    public void testShortTermsAndLimit() {
+        assertEquals(List.of(5, 2), index.search("bl", 10));
+        assertEquals(List.of(2), index.search("rhapsody", 1));
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        index.put(2, "Summertime");
+        assertEquals(List.of(1, 3), index.search("rhapsody", 10));
+        assertEquals(List.of(2), index.search("summer", 10));
+
+        index.remove(1);
+        assertEquals(List.of(3), index.search("rhapsody", 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testPostingListsMatchLinearScan() {
+        TrigramIndex big = new TrigramIndex();
+        Random random = new Random(7);
+        String[] words = {"love", "song", "night", "blue", "dance", "fire", "heart", "road"};
+        String[] names = new String[5000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+        }
+        // insert out of order so the posting lists are re-encoded as well as appended to
+        for (int i = names.length - 1; i >= 0; i -= 2) big.put(i, names[i]);
+        for (int i = names.length - 2; i >= 0; i -= 2) big.put(i, names[i]);
+
+        long expected = Arrays.stream(names).filter(n -> n.contains("fire heart")).count();
+        List<Integer> found = big.search("fire heart", names.length);
+        assertEquals(expected, found.size());
+        found.forEach(id -> assertTrue(names[id].contains("fire heart")));
+        assertTrue(big.getPostingBytes() > 0);
+    }
+}
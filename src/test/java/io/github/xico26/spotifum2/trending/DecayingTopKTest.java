@@ -0,0 +1,83 @@
+package io.github.xico26.spotifum2.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecayingTopKTest {
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @Test
+    public void testHeavyHittersAmongManyKeys() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(Duration.ofDays(365), 20, 512, 4);
+        Random random = new Random(1);
+        long t = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // keys 0..4 take half the stream, the other half is spread over 50000 keys
+            int key = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(50_000);
+            topK.add(key, t++);
+        }
+        List<Integer> top = topK.top(5, t).stream().map(DecayingTopK.Entry::key).sorted().toList();
+        assertEquals(List.of(0, 1, 2, 3, 4), top);
+    }
+
+    @Test
+    public void testRecentPlaysOutrankOldOnes() {
+        DecayingTopK<String> topK = new DecayingTopK<>(Duration.ofHours(1), 10, 256, 4);
+        for (int i = 0; i < 100; i++) {
+            topK.add("old", 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            topK.add("new", 6 * HOUR);
+        }
+        List<DecayingTopK.Entry<String>> top = topK.top(2, 6 * HOUR);
+        assertEquals("new", top.get(0).key());
+        assertEquals(10, top.get(0).count(), 1e-9);
+        // 100 plays six lifetimes ago weigh 100 / e^6
+        assertEquals(100 * Math.exp(-6), top.get(1).count(), 1e-6);
+    }
+
+    @Test
+    public void testCountsSurviveLandmarkRescale() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(Duration.ofMinutes(1), 10, 256, 4);
+        long t = 0;
+        for (int i = 0; i < 1000; i++) {
+            t += Duration.ofMinutes(1).toMillis();
+            topK.add(i % 2, t);
+        }
+        double count = topK.top(1, t).getFirst().count();
+        assertTrue(Double.isFinite(count));
+        // each key is played every two lifetimes: 1 + e^-2 + e^-4 + ...
+        assertEquals(1 / (1 - Math.exp(-2)), count, 1e-6);
+    }
+
+    @Test
+    public void testEstimateNeverUnderCounts() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(Duration.ofDays(365), 10, 64, 3);
+        for (int key = 0; key < 1000; key++) {
+            for (int n = 0; n <= key % 7; n++) {
+                topK.add(key, 0);
+            }
+        }
+        for (int key = 0; key < 1000; key++) {
+            assertTrue(topK.estimate(key, 0) >= key % 7 + 1);
+        }
+    }
+
+    @Test
+    public void testCandidatesStayBounded() {
+        DecayingTopK<Integer> topK = new DecayingTopK<>(Duration.ofDays(365), 10, 256, 4);
+        for (int key = 0; key < 1000; key++) {
+            topK.add(key, 0);
+        }
+        for (int i = 0; i < 50; i++) {
+            topK.add(7, 0);
+        }
+        assertEquals(10, topK.candidates().size());
+        assertTrue(topK.candidates().contains(7));
+    }
+}